@@ -1,9 +1,12 @@
 package hr.fer.zemris.java.custom.collections;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * This class is an implementation of a resizable array-backed collection of objects.
@@ -76,11 +79,7 @@ public class ArrayIndexedCollection<E> implements List<E> {
 	public ArrayIndexedCollection(Collection<E> other, int initialCapacity) {
 		this(initialCapacity);
 		
-		if (size > initialCapacity) {	// If the collection overstepped the requested capacity, the capacity must be increased to the collection's size.
-			elements = Arrays.copyOf(elements, size);
-		}
-		
-		addAll(Objects.requireNonNull(other)); // Copying the other collections elements to this collection
+		addAll(Objects.requireNonNull(other)); // The array grows at most once, to the size of the other collection if needed.
 	}
 	
 	/**
@@ -164,6 +163,140 @@ public class ArrayIndexedCollection<E> implements List<E> {
 		}
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Spliterator<E> spliterator() {
+		return new ArraySpliterator<>(this, 0, -1, 0);
+	}
+	
+	/**
+	 * Private static class <code>ArraySpliterator</code> is a spliterator over a range of positions of ArrayIndexedCollection.
+	 * The range is bound to the size of the collection when the spliterator is first used, not when it is created.
+	 * 
+	 * @author stipe
+	 * @param <E>
+	 */
+	private static class ArraySpliterator<E> implements Spliterator<E> {
+		/**
+		 * array backed collection of all the elements
+		 */
+		private ArrayIndexedCollection<E> collection;
+		/**
+		 * index of next element to be fetched
+		 */
+		private int index;
+		/**
+		 * index after the last element of the range, or -1 until the range is bound
+		 */
+		private int fence;
+		/**
+		 * modification count of the collection at the time the range was bound
+		 */
+		private long savedModificationCount;
+		
+		/**
+		 * The constructor that creates a new spliterator over the given range of the collection.
+		 * @param collection the collection to be traversed
+		 * @param index index of the first element
+		 * @param fence index after the last element, or -1 to bind it to the size of the collection on first use
+		 * @param savedModificationCount modification count of the collection at the time the range was bound
+		 */
+		private ArraySpliterator(ArrayIndexedCollection<E> collection, int index, int fence, long savedModificationCount) {
+			this.collection = collection;
+			this.index = index;
+			this.fence = fence;
+			this.savedModificationCount = savedModificationCount;
+		}
+		
+		/**
+		 * Binds the range to the size of the collection if it isn't bound yet.
+		 * @return {@link #fence}
+		 */
+		private int getFence() {
+			if (fence < 0) {
+				fence = collection.size;
+				savedModificationCount = collection.modificationCount;
+			}
+			return fence;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * The first half of the remaining range is split off.
+		 */
+		@Override
+		public Spliterator<E> trySplit() {
+			int hi = getFence();
+			int lo = index;
+			int mid = (lo + hi) >>> 1;
+			if (lo >= mid) {
+				return null;
+			}
+			index = mid;
+			return new ArraySpliterator<>(collection, lo, mid, savedModificationCount);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * @throws ConcurrentModificationException if the collection has been modified since the range was bound
+		 */
+		@Override
+		public boolean tryAdvance(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			if (index >= getFence()) {
+				return false;
+			}
+			action.accept(collection.elements[index++]);
+			checkModifications();
+			return true;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * The collection is checked for modifications once, after all elements have been processed.
+		 * @throws ConcurrentModificationException if the collection has been modified since the range was bound
+		 */
+		@Override
+		public void forEachRemaining(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			E[] elements = collection.elements;
+			int hi = getFence();
+			for (int i = index; i < hi; i++) {
+				action.accept(elements[i]);
+			}
+			index = hi;
+			checkModifications();
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long estimateSize() {
+			return getFence() - index;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL;
+		}
+		
+		/**
+		 * Compares if the collection has been modified since the range was bound.
+		 * @throws ConcurrentModificationException if the collection has been modified
+		 */
+		private void checkModifications() {
+			if (collection.modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+	
 	/**
 	 * Adds the given non-null object into this collection by adding the reference into first empty place in the elements array;
 	 * if the elements array is full, it is reallocated by doubling its size, which is done in the private checkIfNullOrNoSpace method.
@@ -173,22 +306,116 @@ public class ArrayIndexedCollection<E> implements List<E> {
 	 */
 	@Override
 	public void add(E value) {
-		checkIfNoSpace();
+		ensureCapacity(size + 1);
 		elements[size] = Objects.requireNonNull(value);
 		size++;
 		modificationCount++;
 	}
 	
 	/**
-	 * Checks if there is enough space in the elements array for a new element.
-	 * If not, the array is reallocated and its size is doubled.
+	 * Checks if there is enough space in the elements array for the given number of elements.
+	 * If not, the array is reallocated once, doubling its size or growing it to the given number if doubling isn't enough.
+	 * @param capacity number of elements the array must be able to hold
 	 */
-	private void checkIfNoSpace() {
-		if (size == elements.length) {
-			elements = Arrays.copyOf(elements, 2 * elements.length);
+	private void ensureCapacity(int capacity) {
+		if (capacity > elements.length) {
+			elements = Arrays.copyOf(elements, Math.max(capacity, 2 * elements.length));
 		}
 	}
 	
+	/**
+	 * Adds all elements from the given collection at the end of this collection, leaving the given collection unchanged.
+	 * The array is reallocated at most once and the elements are copied in bulk.
+	 * @param other the collection whose elements are to be copied into the current collection
+	 * @throws NullPointerException if the given collection is null
+	 */
+	@Override
+	public void addAll(Collection<? extends E> other) {
+		insertAll(other, size);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * The array is reallocated at most once and both the elements of this collection and the inserted ones
+	 * are moved with a single bulk copy. The complexity of this method is O(n + k).
+	 * @throws IndexOutOfBoundsException if position is not in [0, size]
+	 * @throws NullPointerException if the given collection is null
+	 */
+	@Override
+	public void insertAll(Collection<? extends E> other, int position) {
+		checkIndexValidity(position, 0, size);
+		Object[] values = other instanceof ArrayIndexedCollection && other != this
+				? ((ArrayIndexedCollection<?>) other).elements
+				: other.toArray();
+		int count = other.size();
+		if (count == 0) {
+			return;
+		}
+		
+		ensureCapacity(size + count);
+		System.arraycopy(elements, position, elements, position + count, size - position);
+		System.arraycopy(values, 0, elements, position, count);
+		size += count;
+		modificationCount++;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * The following elements are moved with a single bulk copy. The complexity of this method is O(n).
+	 * @throws IndexOutOfBoundsException if fromIndex is not in [0, toIndex] or toIndex is not in [fromIndex, size]
+	 */
+	@Override
+	public void removeRange(int fromIndex, int toIndex) {
+		checkIndexValidity(fromIndex, 0, size);
+		checkIndexValidity(toIndex, fromIndex, size);
+		if (fromIndex == toIndex) {
+			return;
+		}
+		
+		System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+		int newSize = size - (toIndex - fromIndex);
+		Arrays.fill(elements, newSize, size, null);
+		size = newSize;
+		modificationCount++;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * The tester is called for every element before anything is removed, so the collection is left unchanged
+	 * if the tester throws. The remaining elements are then moved to the front in a single pass,
+	 * so the complexity of this method is O(n).
+	 */
+	@Override
+	public boolean removeIf(Tester<? super E> tester) {
+		Objects.requireNonNull(tester);
+		int from = 0;
+		while (from < size && !tester.test(elements[from])) {
+			from++;
+		}
+		if (from == size) {
+			return false;
+		}
+		
+		BitSet removed = new BitSet(size - from); // Bit i marks the element at from + i.
+		removed.set(0);
+		for (int i = from + 1; i < size; i++) {
+			if (tester.test(elements[i])) {
+				removed.set(i - from);
+			}
+		}
+		
+		int kept = from;
+		for (int i = from; i < size; i++) {
+			if (!removed.get(i - from)) {
+				elements[kept++] = elements[i];
+			}
+		}
+		Arrays.fill(elements, kept, size, null);
+		size = kept;
+		modificationCount++;
+		return true;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 * This method has the average complexity of O(1).
@@ -237,10 +464,8 @@ public class ArrayIndexedCollection<E> implements List<E> {
 	public void insert(E value, int position) {
 		checkIndexValidity(position, 0, size);
 		Objects.requireNonNull(value);
-		checkIfNoSpace();
-		for (int i = size; i > position; i--) {
-			elements[i] = elements[i - 1];
-		}
+		ensureCapacity(size + 1);
+		System.arraycopy(elements, position, elements, position + 1, size - position);
 		elements[position] = value;
 		size++;
 		modificationCount++;
@@ -269,10 +494,8 @@ public class ArrayIndexedCollection<E> implements List<E> {
 	 */
 	public void remove(int index) {
 		checkIndexValidity(index, 0, size - 1);
-		for (int i = index; i < size; i++) {
-			elements[i] = elements[i + 1];
-		}
-		size--;
+		System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+		elements[--size] = null;
 		modificationCount++;
 	}
 	
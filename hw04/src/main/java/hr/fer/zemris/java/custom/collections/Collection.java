@@ -1,5 +1,9 @@
 package hr.fer.zemris.java.custom.collections;
 
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * Interface <code>Collection</code> represents some general collection of objects 
  * that can be manipulated by using the defined methods.
@@ -92,8 +96,40 @@ public interface Collection<E> {
 	 */
 	ElementsGetter<E> createElementsGetter();
 	
+	/**
+	 * Creates a spliterator over the elements of this collection. It splits the elements into halves, so
+	 * the work of a parallel stream is spread evenly, and it checks for modifications of the collection
+	 * once per traversed batch instead of once per element.
+	 * @return new spliterator of this collection
+	 */
+	Spliterator<E> spliterator();
+	
+	/**
+	 * Returns a sequential stream of the elements of this collection.
+	 * @return stream of the elements
+	 */
+	default Stream<E> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	/**
+	 * Returns a parallel stream of the elements of this collection.
+	 * @return parallel stream of the elements
+	 */
+	default Stream<E> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	/**
+	 * Removes all elements of this collection which satisfy the given tester.
+	 * @param tester instance of Tester that decides which elements are removed
+	 * @return <code>true</code> if any element was removed, otherwise <code>false</code>
+	 */
+	boolean removeIf(Tester<? super E> tester);
+	
 	/**
 	 * Adds all satisfying elements from the given collection to this collection, as determined by the given Tester.
+	 * The given collection is traversed once and every satisfying element is added as soon as it is reached.
 	 * @param col the collection whose elements are to be copied
 	 * @param tester instance of Tester that decides which elements are added
 	 */
@@ -0,0 +1,17 @@
+package hr.fer.zemris.java.custom.collections;
+
+/**
+ * Specialisation of {@link Tester} for <code>int</code> values, which are tested without being boxed.
+ *
+ * @author stipe
+ */
+public interface IntTester {
+
+	/**
+	 * Determines if the given value satisfies the condition in the method.
+	 * @param value value to be tested
+	 * @return <code>true</code> if the value satisfied the condition and is to be accepted, <code>false</code> otherwise
+	 */
+	boolean test(int value);
+
+}
@@ -1,8 +1,12 @@
 package hr.fer.zemris.java.custom.collections;
 
+import java.util.BitSet;
 import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 
 /**
  * This class is an implementation of a linked list-backed collection of objects.
@@ -146,6 +150,149 @@ public class LinkedListIndexedCollection<E> implements List<E> {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Spliterator<E> spliterator() {
+		return new LinkedListSpliterator<>(this);
+	}
+	
+	/**
+	 * Private static class <code>LinkedListSpliterator</code> is a spliterator over the nodes of LinkedListIndexedCollection.
+	 * A list can't be split without walking through it, so the first half of the remaining nodes is copied into
+	 * an array, which is split off and then splits evenly on its own. The spliterator is bound to the list
+	 * when it is first used, not when it is created.
+	 * 
+	 * @author stipe
+	 */
+	private static class LinkedListSpliterator<E> implements Spliterator<E> {
+		/**
+		 * linked list backed collection of all the elements
+		 */
+		private LinkedListIndexedCollection<E> collection;
+		/**
+		 * node whose value is to be returned next
+		 */
+		private ListNode<E> current;
+		/**
+		 * number of elements left to be traversed, or -1 until the spliterator is bound
+		 */
+		private int remaining;
+		/**
+		 * modification count of the collection at the time the spliterator was bound
+		 */
+		private long savedModificationCount;
+		
+		/**
+		 * The constructor that creates a new instance of <code>LinkedListSpliterator</code> of the given collection.
+		 * @param collection the collection to be traversed
+		 */
+		private LinkedListSpliterator(LinkedListIndexedCollection<E> collection) {
+			this.collection = collection;
+			this.remaining = -1;
+		}
+		
+		/**
+		 * Binds the spliterator to the current nodes of the collection if it isn't bound yet.
+		 * @return {@link #remaining}
+		 */
+		private int getRemaining() {
+			if (remaining < 0) {
+				current = collection.first;
+				remaining = collection.size;
+				savedModificationCount = collection.modificationCount;
+			}
+			return remaining;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * @throws ConcurrentModificationException if the collection has been modified since the spliterator was bound
+		 */
+		@Override
+		public Spliterator<E> trySplit() {
+			int length = getRemaining() / 2;
+			if (length == 0) {
+				return null;
+			}
+			
+			Object[] values = new Object[length];
+			ListNode<E> node = current;
+			for (int i = 0; i < length && node != null; i++) {
+				values[i] = node.value;
+				node = node.next;
+			}
+			checkModifications();
+			current = node;
+			remaining -= length;
+			return Spliterators.spliterator(values, ORDERED | NONNULL);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * @throws ConcurrentModificationException if the collection has been modified since the spliterator was bound
+		 */
+		@Override
+		public boolean tryAdvance(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			if (getRemaining() == 0) {
+				return false;
+			}
+			E value = current.value;
+			current = current.next;
+			remaining--;
+			action.accept(value);
+			checkModifications();
+			return true;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * The collection is checked for modifications once, after all elements have been processed.
+		 * @throws ConcurrentModificationException if the collection has been modified since the spliterator was bound
+		 */
+		@Override
+		public void forEachRemaining(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			int count = getRemaining();
+			ListNode<E> node = current;
+			for (int i = count; i > 0 && node != null; i--) { // Nodes can be missing only if the list was modified.
+				action.accept(node.value);
+				node = node.next;
+			}
+			current = null;
+			remaining = 0;
+			checkModifications();
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long estimateSize() {
+			return getRemaining();
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL;
+		}
+		
+		/**
+		 * Compares if the collection has been modified since the spliterator was bound.
+		 * @throws ConcurrentModificationException if the collection has been modified
+		 */
+		private void checkModifications() {
+			if (collection.modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
 	/**
 	 * Adds the given non-null object into this collection at the end of collection; 
 	 * newly added element becomes the element at the biggest index. 
@@ -307,14 +454,141 @@ public class LinkedListIndexedCollection<E> implements List<E> {
 	 * @see #remove(Object)
 	 */
 	private void dereferenceNode(ListNode<E> current) {
-		if (!current.equals(first)) {
+		if (current == first) {
+			first = current.next;
+		} else {
 			current.previous.next = current.next; // The previous node now points to the next node.
 		}
-		if (!current.equals(last)) {
+		if (current == last) {
+			last = current.previous;
+		} else {
 			current.next.previous = current.previous; // The next node points back to the previous node.
 		}
 	}
 	
+	/**
+	 * Adds all elements from the given collection at the end of this collection, leaving the given collection unchanged.
+	 * The complexity of this method is O(k), where k is the number of added elements.
+	 * @param other the collection whose elements are to be copied into the current collection
+	 * @throws NullPointerException if the given collection is null
+	 */
+	@Override
+	public void addAll(Collection<? extends E> other) {
+		insertAll(other, size);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * The new nodes are linked into a chain first, which is then spliced into this list at once.
+	 * The complexity of this method is O(k) plus the complexity of finding the node at the given position.
+	 * @throws IndexOutOfBoundsException if position is not in [0, size]
+	 * @throws NullPointerException if the given collection is null
+	 */
+	@Override
+	public void insertAll(Collection<? extends E> other, int position) {
+		checkIndexValidity(position, 0, size);
+		
+		ListNode<E> head = null;
+		ListNode<E> tail = null;
+		int count = 0;
+		ElementsGetter<? extends E> getter = other.createElementsGetter();
+		while (getter.hasNextElement()) { // This list isn't changed yet, so it can be inserted into itself.
+			ListNode<E> newNode = new ListNode<>();
+			newNode.value = getter.getNextElement();
+			if (head == null) {
+				head = newNode;
+			} else {
+				tail.next = newNode;
+				newNode.previous = tail;
+			}
+			tail = newNode;
+			count++;
+		}
+		if (count == 0) {
+			return;
+		}
+		
+		ListNode<E> next = position == size ? null : getNode(position);
+		ListNode<E> previous = next == null ? last : next.previous;
+		head.previous = previous;
+		tail.next = next;
+		if (previous == null) {
+			first = head;
+		} else {
+			previous.next = head;
+		}
+		if (next == null) {
+			last = tail;
+		} else {
+			next.previous = tail;
+		}
+		size += count;
+		modificationCount++;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * The removed nodes are unlinked at once, so the complexity of this method is O(k) plus the complexity
+	 * of finding the node at <code>fromIndex</code>.
+	 * @throws IndexOutOfBoundsException if fromIndex is not in [0, toIndex] or toIndex is not in [fromIndex, size]
+	 */
+	@Override
+	public void removeRange(int fromIndex, int toIndex) {
+		checkIndexValidity(fromIndex, 0, size);
+		checkIndexValidity(toIndex, fromIndex, size);
+		if (fromIndex == toIndex) {
+			return;
+		}
+		
+		ListNode<E> start = getNode(fromIndex);
+		ListNode<E> end = start;
+		for (int i = fromIndex + 1; i < toIndex; i++) {
+			end = end.next;
+		}
+		if (start == first) {
+			first = end.next;
+		} else {
+			start.previous.next = end.next;
+		}
+		if (end == last) {
+			last = start.previous;
+		} else {
+			end.next.previous = start.previous;
+		}
+		size -= toIndex - fromIndex;
+		modificationCount++;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * The tester is called for every element before any node is unlinked, so the collection is left unchanged
+	 * if the tester throws. The complexity of this method is O(n).
+	 */
+	@Override
+	public boolean removeIf(Tester<? super E> tester) {
+		Objects.requireNonNull(tester);
+		BitSet removed = new BitSet(size);
+		int index = 0;
+		for (ListNode<E> current = first; current != null; current = current.next, index++) {
+			if (tester.test(current.value)) {
+				removed.set(index);
+			}
+		}
+		if (removed.isEmpty()) {
+			return false;
+		}
+		
+		index = 0;
+		for (ListNode<E> current = first; current != null; current = current.next, index++) {
+			if (removed.get(index)) {
+				dereferenceNode(current); // The node keeps its next reference, so the iteration goes on.
+			}
+		}
+		size -= removed.cardinality();
+		modificationCount++;
+		return true;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
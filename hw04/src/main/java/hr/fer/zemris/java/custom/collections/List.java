@@ -35,4 +35,20 @@ public interface List<E> extends Collection<E> {
 	 */
 	void remove(int index);
 	
+	/**
+	 * Inserts all elements of the given collection at the given position, in their order.
+	 * Element that was previously at location position is after this operation at location position+other.size(), etc.
+	 * @param other collection whose elements are to be inserted
+	 * @param position the index in this list at which the first element is inserted
+	 */
+	void insertAll(Collection<? extends E> other, int position);
+	
+	/**
+	 * Removes elements at positions from <code>fromIndex</code>, inclusive, to <code>toIndex</code>, exclusive.
+	 * Element that was previously at location toIndex is after this operation at location fromIndex, etc.
+	 * @param fromIndex index of the first element to be removed
+	 * @param toIndex index after the last element to be removed
+	 */
+	void removeRange(int fromIndex, int toIndex);
+	
 }
@@ -0,0 +1,245 @@
+package hr.fer.zemris.java.custom.collections;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Resizable array-backed collection of <code>long</code> values. It offers the same operations as
+ * {@link ArrayIndexedCollection}, but the values are kept in a <code>long[]</code>, so they are never boxed
+ * into <code>Long</code> objects, neither when stored nor when passed to a {@link LongProcessor} or a {@link LongTester}.
+ *
+ * @author stipe
+ */
+public class LongArrayIndexedCollection {
+
+	/**
+	 * default capacity at which the capacity is set unless written otherwise
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+	/**
+	 * number of elements in this collection
+	 */
+	private int size;
+	/**
+	 * array in which all elements of this collection are stored
+	 */
+	private long[] elements;
+
+	/**
+	 * Default constructor that creates a collection of the default capacity.
+	 */
+	public LongArrayIndexedCollection() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor that requests the capacity of the collection to be set to the given value.
+	 * @param initialCapacity int value of the capacity this collection should be set to
+	 * @throws IllegalArgumentException if initialCapacity is less than 1
+	 */
+	public LongArrayIndexedCollection(int initialCapacity) {
+		if (initialCapacity < 1) {
+			throw new IllegalArgumentException("The capacity must be greater than 0!");
+		}
+		elements = new long[initialCapacity];
+	}
+
+	/**
+	 * Method that checks if the collection is empty.
+	 * @return <code>true</code> if collection contains no values and <code>false</code> otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Method that determines the number of currently stored elements in this collection.
+	 * @return int value of the number of currently stored elements
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds the given value at the end of this collection. If the elements array is full, its size is doubled.
+	 * Average complexity of this method is O(1).
+	 * @param value the value to be added into the collection
+	 */
+	public void add(long value) {
+		ensureCapacity(size + 1);
+		elements[size++] = value;
+	}
+
+	/**
+	 * Adds all values of the given array at the end of this collection, reallocating the elements array at most once.
+	 * @param values values to be added
+	 * @throws NullPointerException if the given array is null
+	 */
+	public void addAll(long[] values) {
+		addAll(values, values.length);
+	}
+
+	/**
+	 * Adds all elements of the given collection at the end of this collection, leaving the given collection unchanged.
+	 * @param other the collection whose elements are to be copied into the current collection
+	 * @throws NullPointerException if the given collection is null
+	 */
+	public void addAll(LongArrayIndexedCollection other) {
+		addAll(other.elements, other.size);
+	}
+
+	/**
+	 * Copies the first <code>length</code> values of the given array at the end of this collection.
+	 * @param values values to be added
+	 * @param length number of values to be added
+	 */
+	private void addAll(long[] values, int length) {
+		ensureCapacity(size + length);
+		System.arraycopy(values, 0, elements, size, length);
+		size += length;
+	}
+
+	/**
+	 * Adds all satisfying elements from the given collection to this collection, as determined by the given tester.
+	 * @param col the collection whose elements are to be copied
+	 * @param tester tester that decides which elements are added
+	 */
+	public void addAllSatisfying(LongArrayIndexedCollection col, LongTester tester) {
+		Objects.requireNonNull(tester);
+		// The size is read once, so adding the elements of this collection to itself terminates.
+		int length = col.size;
+		for (int i = 0; i < length; i++) {
+			long value = col.elements[i];
+			if (tester.test(value)) {
+				add(value);
+			}
+		}
+	}
+
+	/**
+	 * Returns the element at the given position in this collection.
+	 * @param index int value of the position of the element to return
+	 * @return value at the given position
+	 * @throws IndexOutOfBoundsException if index is not in [0, size-1]
+	 */
+	public long get(int index) {
+		checkIndexValidity(index, 0, size - 1);
+		return elements[index];
+	}
+
+	/**
+	 * Inserts the given value at the given position, shifting the elements from that position one place further.
+	 * The average complexity of this method is O(n).
+	 * @param value value to be inserted
+	 * @param position int value of the position at which the value is inserted
+	 * @throws IndexOutOfBoundsException if position is not in [0, size]
+	 */
+	public void insert(long value, int position) {
+		checkIndexValidity(position, 0, size);
+		ensureCapacity(size + 1);
+		System.arraycopy(elements, position, elements, position + 1, size - position);
+		elements[position] = value;
+		size++;
+	}
+
+	/**
+	 * Searches the collection and returns the index of the first occurrence of the given value.
+	 * The average complexity of this method is O(n).
+	 * @param value value to be searched for
+	 * @return index of the first occurrence of the value, or -1 if the value isn't present
+	 */
+	public int indexOf(long value) {
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Determines if the collection contains the given value.
+	 * @param value the value to be tested if it is present in the collection
+	 * @return <code>true</code> if the collection contains given value, otherwise returns <code>false</code>
+	 */
+	public boolean contains(long value) {
+		return indexOf(value) != -1;
+	}
+
+	/**
+	 * Removes the element at the given position, shifting the following elements one place back.
+	 * @param index int value of the position of the element to be removed
+	 * @throws IndexOutOfBoundsException if index is not in [0, size-1]
+	 */
+	public void remove(int index) {
+		checkIndexValidity(index, 0, size - 1);
+		System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+		size--;
+	}
+
+	/**
+	 * Removes the first occurrence of the given value. It is named differently from {@link #remove(int)},
+	 * which removes the element at the given position.
+	 * @param value value of which one occurrence is to be removed
+	 * @return <code>true</code> if the collection contained given value and removed one occurrence of it, otherwise <code>false</code>
+	 */
+	public boolean removeValue(long value) {
+		int index = indexOf(value);
+		if (index == -1) {
+			return false;
+		}
+		remove(index);
+		return true;
+	}
+
+	/**
+	 * Removes all elements from the collection without changing the capacity of the array.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Allocates new array with size equal to the size of this collection and fills it with collection content.
+	 * @return array of values from this collection
+	 */
+	public long[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+
+	/**
+	 * Calls the given processor for every element of this collection, in order.
+	 * @param processor the processor whose method process will be called
+	 */
+	public void forEach(LongProcessor processor) {
+		Objects.requireNonNull(processor);
+		for (int i = 0; i < size; i++) {
+			processor.process(elements[i]);
+		}
+	}
+
+	/**
+	 * Reallocates the elements array if it can't hold the given number of elements.
+	 * Its size is doubled, or set to the given number if doubling isn't enough.
+	 * @param capacity number of elements the array must be able to hold
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity > elements.length) {
+			elements = Arrays.copyOf(elements, Math.max(capacity, 2 * elements.length));
+		}
+	}
+
+	/**
+	 * Checks if the given index is a valid position in the collection.
+	 * @param index int value of the position
+	 * @param minIndex smallest valid index
+	 * @param maxIndex largest valid index
+	 * @throws IndexOutOfBoundsException if index is not in [minIndex, maxIndex]
+	 */
+	private void checkIndexValidity(int index, int minIndex, int maxIndex) {
+		if (index < minIndex || index > maxIndex) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+}
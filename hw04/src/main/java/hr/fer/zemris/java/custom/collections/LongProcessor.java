@@ -0,0 +1,16 @@
+package hr.fer.zemris.java.custom.collections;
+
+/**
+ * Specialisation of {@link Processor} for <code>long</code> values, which are processed without being boxed.
+ * @author stipe
+ *
+ */
+public interface LongProcessor {
+
+	/**
+	 * Method that every processor uses to perform an operation on a value.
+	 * @param value value to be processed
+	 */
+	void process(long value);
+
+}
@@ -0,0 +1,485 @@
+package hr.fer.zemris.java.custom.collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Class <code>OpenAddressingHashtable</code> represents a hash table which enables storage of mapping pairs (key -> value),
+ * with the same interface as {@link SimpleHashtable}. Instead of a chain of entries per slot, keys, values and their hashes
+ * are kept in parallel arrays, so no object is created per mapping.
+ * <p>
+ * Collisions are resolved by Robin Hood linear probing: a key being inserted takes the slot of a key which is closer to
+ * its own home slot, which keeps the probe sequences short and lets a lookup of a missing key stop early. Removed entries
+ * are filled by shifting the following entries back, so no deleted markers are left in the table.
+ *
+ * @author stipe
+ *
+ * @param <K> type of key in <code>OpenAddressingHashtable</code>
+ * @param <V> type of value in <code>OpenAddressingHashtable</code>
+ */
+public class OpenAddressingHashtable<K, V> implements Iterable<SimpleHashtable.TableEntry<K,V>> {
+
+	/**
+	 * number of entries in this table
+	 */
+	private int size;
+	/**
+	 * keys of the entries, or null in empty slots
+	 */
+	private Object[] keys;
+	/**
+	 * values of the entries
+	 */
+	private Object[] values;
+	/**
+	 * spread hash codes of the keys, or 0 in empty slots, so probing reads only this array
+	 */
+	private int[] hashes;
+	/**
+	 * counter of modifications made to this hash table
+	 */
+	private int modificationCount;
+
+	/**
+	 * The default capacity of the table, used when the wanted capacity is not specified.
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+	/**
+	 * The percentage threshold of capacity filled at which rehashing happens.
+	 */
+	private static final double REHASH_TRESHOLD = 0.75;
+	/**
+	 * Multiplier which determines how much will the table increase during rehashing.
+	 */
+	private static final int REHASH_MULTIPLIER = 2;
+
+	/**
+	 * Default constructor that creates an instance of this class using the default size of the table.
+	 */
+	public OpenAddressingHashtable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor that creates an instance of this class with table with size of the smallest power of 2,
+	 * equal or greater to the given capacity.
+	 *
+	 * @param capacity used for the size of the table
+	 * @throws IllegalArgumentException if given capacity is less than 1
+	 */
+	public OpenAddressingHashtable(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Table capacity must be bigger!");
+		}
+		// A table of a single slot would have no empty slot left after the first insertion.
+		int tableCapacity = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+		allocate(tableCapacity);
+	}
+
+	/**
+	 * Creates empty arrays of the given length.
+	 *
+	 * @param length length of the table, a power of 2
+	 */
+	private void allocate(int length) {
+		keys = new Object[length];
+		values = new Object[length];
+		hashes = new int[length];
+	}
+
+	/**
+	 * Returns the hash code of the given key with the higher bits mixed into the lower ones,
+	 * which are the only ones used to find the slot of the key. The highest bit is always set,
+	 * which doesn't change the slot but tells the hash apart from an empty slot.
+	 *
+	 * @param key key
+	 * @return spread hash code
+	 */
+	private static int spread(Object key) {
+		int hash = key.hashCode();
+		return hash ^ (hash >>> 16) | Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Returns the distance of the slot at the given index from the home slot of the given hash.
+	 *
+	 * @param index index of the slot
+	 * @param hash spread hash code
+	 * @return probe distance
+	 */
+	private int distance(int index, int hash) {
+		return (index - hash) & (keys.length - 1);
+	}
+
+	/**
+	 * Finds the slot of the given key. The search stops at an empty slot or at a key which
+	 * is closer to its home slot than the given key would be, as the key would have taken its slot.
+	 *
+	 * @param key key
+	 * @param hash spread hash code of the key
+	 * @return index of the slot, or -1 if the key isn't present
+	 */
+	private int find(Object key, int hash) {
+		int mask = keys.length - 1;
+		for (int index = hash & mask, distance = 0; ; index = (index + 1) & mask, distance++) {
+			int candidate = hashes[index];
+			if (candidate == 0 || distance(index, candidate) < distance) {
+				return -1;
+			}
+			if (candidate == hash && keys[index].equals(key)) {
+				return index;
+			}
+		}
+	}
+
+	/**
+	 * If no entry with the given key is present, a new entry is created and added into the table.
+	 * If the key is present, the old value mapped to that key is overwritten with the new, given value.
+	 * After the number of entries has surpassed the {@link #REHASH_TRESHOLD}, {@link #rehash()} happens.
+	 *
+	 * @param key new entry's key
+	 * @param value new entry's value
+	 * @throws NullPointerException if the given key is null
+	 */
+	public void put(K key, V value) {
+		int hash = spread(Objects.requireNonNull(key));
+		int index = find(key, hash);
+		if (index >= 0) {
+			values[index] = value;
+			return;
+		}
+
+		insert(key, value, hash);
+		modificationCount++;
+		if (++size >= REHASH_TRESHOLD * keys.length) {
+			rehash();
+		}
+	}
+
+	/**
+	 * Inserts an entry whose key isn't present in the table. Every entry on the way which is
+	 * closer to its home slot is displaced by the inserted one and is inserted further on in its place.
+	 *
+	 * @param key key
+	 * @param value value
+	 * @param hash spread hash code of the key
+	 */
+	private void insert(Object key, Object value, int hash) {
+		int mask = keys.length - 1;
+		for (int index = hash & mask, distance = 0; ; index = (index + 1) & mask, distance++) {
+			if (hashes[index] == 0) {
+				keys[index] = key;
+				values[index] = value;
+				hashes[index] = hash;
+				return;
+			}
+
+			int residentDistance = distance(index, hashes[index]);
+			if (residentDistance < distance) {
+				Object residentKey = keys[index];
+				Object residentValue = values[index];
+				int residentHash = hashes[index];
+				keys[index] = key;
+				values[index] = value;
+				hashes[index] = hash;
+				key = residentKey;
+				value = residentValue;
+				hash = residentHash;
+				distance = residentDistance;
+			}
+		}
+	}
+
+	/**
+	 * Increases the capacity of the hash table by {@link #REHASH_MULTIPLIER}
+	 * so the probe sequences stay short and the average complexity stays O(1).
+	 * Entries are inserted using their stored hashes, without comparing any keys.
+	 */
+	private void rehash() {
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldHashes = hashes;
+		allocate(REHASH_MULTIPLIER * oldKeys.length);
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				insert(oldKeys[i], oldValues[i], oldHashes[i]);
+			}
+		}
+		modificationCount++;
+	}
+
+	/**
+	 * Returns the value mapped to the given key.
+	 * The value returned is null in cases when the key isn't in the dictionary or if it is present but its value is null.
+	 *
+	 * @param key key to which the value is mapped
+	 * @return the value which is mapped to the given key, or null if the key isnt present in the dictionary
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		if (key != null) {
+			int index = find(key, spread(key));
+			if (index >= 0) {
+				return (V) values[index];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of entries in hash table.
+	 *
+	 * @return size of table
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if this hash table contains the given key.
+	 *
+	 * @param key the key whose presence is checked
+	 * @return <code>true</code> if the hash table contains given key, otherwise returns <code>false</code>
+	 */
+	public boolean containsKey(Object key) {
+		return key != null && find(key, spread(key)) >= 0;
+	}
+
+	/**
+	 * Checks if this hash table contains the given value.
+	 *
+	 * @param value the value whose presence is checked
+	 * @return <code>true</code> if the hash table contains given value, otherwise returns <code>false</code>
+	 */
+	public boolean containsValue(Object value) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null && Objects.equals(values[i], value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the entry whose key is equal to the given key.
+	 *
+	 * @param key key of the entry to be removed
+	 */
+	public void remove(Object key) {
+		if (key != null) {
+			int index = find(key, spread(key));
+			if (index >= 0) {
+				removeAt(index);
+			}
+		}
+	}
+
+	/**
+	 * Removes the entry in the slot at the given index. Following entries which aren't in their
+	 * home slots are shifted back by one slot, up to the first one which is.
+	 *
+	 * @param index index of the slot
+	 */
+	private void removeAt(int index) {
+		int mask = keys.length - 1;
+		int next = (index + 1) & mask;
+		while (hashes[next] != 0 && distance(next, hashes[next]) > 0) {
+			keys[index] = keys[next];
+			values[index] = values[next];
+			hashes[index] = hashes[next];
+			index = next;
+			next = (next + 1) & mask;
+		}
+		keys[index] = null;
+		values[index] = null;
+		hashes[index] = 0;
+		size--;
+		modificationCount++;
+	}
+
+	/**
+	 * Checks if this hash table is empty.
+	 *
+	 * @return <code>true</code> if the hash table is empty, otherwise returns <code>false</code>
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Creates a String representation of this hash table used for printing its content.
+	 *
+	 * @return String of this hash table's content
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("[");
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				sb.append(keys[i] + "=" + values[i] + ", ");
+			}
+		}
+		if (sb.length() > 1) { // if anything was added after "["
+			sb.setLength(sb.length() - 2); // deletes the last ", "
+		}
+		return sb.append("]").toString();
+	}
+
+	/**
+	 * Removes all entries from the hash table.
+	 */
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		Arrays.fill(hashes, 0);
+		modificationCount++;
+		size = 0;
+	}
+
+	/**
+	 * Creates and returns an iterator of entries from this hash table.
+	 * Changes of the values of returned entries are written to this hash table.
+	 *
+	 * @return Iterator of <code>TableEntries</code> from this hash table.
+	 */
+	@Override
+	public Iterator<SimpleHashtable.TableEntry<K, V>> iterator() {
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Class <code>IteratorImpl</code> is the iterator used for iterating content of instances of <code>OpenAddressingHashtable</code>.
+	 * <p>
+	 * Iteration starts right after an empty slot and wraps around the table, so the entries shifted back by a removal
+	 * through the iterator never cross its starting point. After a removal, the slot of the removed entry is visited again,
+	 * as the next entry may have been shifted into it.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private class IteratorImpl implements Iterator<SimpleHashtable.TableEntry<K,V>> {
+		/**
+		 * The index of the slot at which the iteration starts.
+		 */
+		private int start;
+		/**
+		 * The number of slots visited from the start.
+		 */
+		private int position;
+		/**
+		 * The number of iterated entries that haven't been deleted from within the iterator.
+		 */
+		private int iterated;
+		/**
+		 * The number of modifications made to this hash table from the moment this iterator was created,
+		 * plus the modifications from within this iterator.
+		 */
+		private int modCount;
+		/**
+		 * The number of visited slots before the last returned entry, or -1 if there is no entry to be removed.
+		 */
+		private int lastReturned = -1;
+
+		/**
+		 * Default constructor used for saving the number of modifications at the time of this iterator's creation.
+		 */
+		public IteratorImpl() {
+			modCount = modificationCount;
+			int empty = 0;
+			while (keys[empty] != null) {
+				empty++;
+			}
+			start = empty + 1;
+		}
+
+		/**
+		 * Checks if there are more entries in this collection.
+		 *
+		 * @return <code>true</code> if there are more entries, otherwise returns <code>false</code>
+		 */
+		public boolean hasNext() {
+			checkModifications();
+			return iterated < size;
+		}
+
+		/**
+		 * Gets the next entry and returns it.
+		 *
+		 * @return the next entry
+		 */
+		public SimpleHashtable.TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int mask = keys.length - 1;
+			while (keys[(start + position) & mask] == null) {
+				position++;
+			}
+			lastReturned = position;
+			int index = (start + position++) & mask;
+			iterated++;
+			return new Entry(index);
+		}
+
+		/**
+		 * Removes the last returned entry, so this iterator can still keep iterating.
+		 *
+		 * @throws IllegalStateException if this method is called twice without {@link #next()} being called,
+		 * or if it is called before first {@link #next()} was called
+		 */
+		public void remove() {
+			checkModifications();
+			if (lastReturned == -1) {
+				throw new IllegalStateException("That element has already been returned!");
+			}
+			removeAt((start + lastReturned) & (keys.length - 1));
+			modCount++;
+			iterated--;
+			position = lastReturned;
+			lastReturned = -1;
+		}
+
+		/**
+		 * Checks if there have been any modifications to this hash table from out of this iterator.
+		 */
+		private void checkModifications() {
+			if (modCount != modificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+	}
+
+	/**
+	 * Entry returned by the iterator, whose value is written to the table when it is changed.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private class Entry extends SimpleHashtable.TableEntry<K, V> {
+
+		/**
+		 * Constructor which copies the entry in the slot at the given index.
+		 *
+		 * @param index index of the slot
+		 */
+		@SuppressWarnings("unchecked")
+		Entry(int index) {
+			super((K) keys[index], (V) values[index]);
+		}
+
+		@Override
+		public void setValue(V value) {
+			super.setValue(value);
+			K key = getKey();
+			int index = find(key, spread(key));
+			if (index >= 0) {
+				values[index] = value;
+			}
+		}
+	}
+}
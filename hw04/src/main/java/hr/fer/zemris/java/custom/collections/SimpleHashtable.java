@@ -1,10 +1,13 @@
 package hr.fer.zemris.java.custom.collections;
 
-import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Class <code>SimpleHashTable</code> represents a hash table which enables storage of mapping pairs (key -> value).
@@ -77,14 +80,17 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	 * @throws NullPointerException if the given key is null
 	 */
 	public void put(K key, V value) {
-		int index = Math.abs(Objects.requireNonNull(key).hashCode()) % table.length;
+		int index = index(Objects.requireNonNull(key), table.length);
 		TableEntry<K, V> entry = table[index];
 		if (table[index] != null) {
-			while (entry.next != null) { // try to find the key to be added
+			while (true) { // try to find the key to be added
 				if (entry.key.equals(key)) {
 					entry.value = value;
 					return; 			 // if the key already existed, update it's value and return from the method
 				}
+				if (entry.next == null) {
+					break;
+				}
 				entry = entry.next;
 			}
 			entry.next = new TableEntry<>(key, value); // if the key didn't previously exist, add it with the given value to the next spot
@@ -98,25 +104,38 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		}
 	}
 	
+	/**
+	 * Returns the index of the slot of the given key in a table of the given length.
+	 * The higher bits of the hash code are mixed into the lower ones, which are the only
+	 * ones used by a table whose length is a power of 2.
+	 * 
+	 * @param key key
+	 * @param length length of the table, a power of 2
+	 * @return index of the slot
+	 */
+	static int index(Object key, int length) {
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (length - 1);
+	}
+	
 	/**
 	 * Increases the capacity of the hash table by {@link #REHASH_MULTIPLIER} 
 	 * so the hashing is more efficient and the average complexity stays O(1).
-	 * Rehashes all existing entries so their locations in the table don't stay the same.
+	 * Existing entries are moved into their new slots, as their keys are known to be unique.
 	 */
 	@SuppressWarnings("unchecked")
 	private void rehash() {
-		TableEntry<K, V>[] oldTable = Arrays.copyOf(table, table.length);
+		TableEntry<K, V>[] oldTable = table;
 		table = (TableEntry<K, V>[]) new TableEntry<?, ?>[REHASH_MULTIPLIER * oldTable.length];
-		size = 0; // size is set to 0 so when all entries are put back in, they increase the size back to the real number
 		
 		for (int i = 0; i < oldTable.length; i++) {
-			if (oldTable[i] == null) { // skip all indices in the table that dont have anything
-				continue;
-			}
 			TableEntry<K, V> entry = oldTable[i];
-			while (entry != null) { // add all elements from the old table to the new one
-				put(entry.key, entry.value);
-				entry = entry.next;
+			while (entry != null) { // move all elements from the old table to the new one
+				TableEntry<K, V> next = entry.next;
+				int index = index(entry.key, table.length);
+				entry.next = table[index];
+				table[index] = entry;
+				entry = next;
 			}
 		}
 		modificationCount++;
@@ -131,7 +150,7 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	 */
 	public V get(Object key) {
 		if (key != null) {			
-			int index = Math.abs(key.hashCode()) % table.length;
+			int index = index(key, table.length);
 			TableEntry<K, V> entry = table[index];
 			while (entry != null) {
 				if (entry.key.equals(key)) {
@@ -160,7 +179,7 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	 */
 	public boolean containsKey(Object key) {
 		if (key != null) {	
-			int index = Math.abs(key.hashCode()) % table.length;
+			int index = index(key, table.length);
 			TableEntry<K, V> entry = table[index];
 			while (entry != null) {
 				if (entry.key.equals(key)) {
@@ -197,7 +216,7 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	 */
 	public void remove(Object key) {
 		if (key != null) {
-			int index = Math.abs(key.hashCode()) % table.length;
+			int index = index(key, table.length);
 			TableEntry<K, V> entry = table[index];
 			TableEntry<K, V> prevEntry = null;
 			while (entry != null) {
@@ -271,6 +290,198 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		return new IteratorImpl();
 	}
 	
+	/**
+	 * Creates and returns a spliterator of entries from this hash table. The slots of the table are split
+	 * into halves, so the work of a parallel stream is spread evenly, and the table is checked for
+	 * modifications once per traversed batch instead of once per entry.
+	 * 
+	 * @return Spliterator of <code>TableEntries</code> from this hash table.
+	 */
+	@Override
+	public Spliterator<TableEntry<K, V>> spliterator() {
+		return new TableSpliterator(0, -1, 0, false);
+	}
+	
+	/**
+	 * Returns a sequential stream of entries from this hash table.
+	 * 
+	 * @return stream of <code>TableEntries</code>
+	 */
+	public Stream<TableEntry<K, V>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	/**
+	 * Returns a parallel stream of entries from this hash table.
+	 * 
+	 * @return parallel stream of <code>TableEntries</code>
+	 */
+	public Stream<TableEntry<K, V>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	/**
+	 * Class <code>TableSpliterator</code> is the spliterator over a range of slots of the table.
+	 * The range is bound to the table when the spliterator is first used, not when it is created.
+	 * Only the spliterator over the whole table knows its exact size, the split ones estimate it.
+	 * 
+	 * @author stipe
+	 *
+	 */
+	private class TableSpliterator implements Spliterator<TableEntry<K, V>> {
+		/**
+		 * The table whose slots are traversed.
+		 */
+		private TableEntry<K, V>[] slots;
+		/**
+		 * The index of the next slot to be traversed.
+		 */
+		private int index;
+		/**
+		 * The index after the last slot of the range, or -1 until the range is bound.
+		 */
+		private int fence;
+		/**
+		 * The number of entries left in the range, exact only if the spliterator hasn't been split.
+		 */
+		private int estimate;
+		/**
+		 * Flag showing whether the range is a part of the table.
+		 */
+		private boolean split;
+		/**
+		 * The next entry in the current slot, or null if the next slot is to be traversed.
+		 */
+		private TableEntry<K, V> entry;
+		/**
+		 * The number of modifications made to this hash table at the time the range was bound.
+		 */
+		private int modCount;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param index {@link #index}
+		 * @param fence {@link #fence}
+		 * @param estimate {@link #estimate}
+		 * @param split {@link #split}
+		 */
+		private TableSpliterator(int index, int fence, int estimate, boolean split) {
+			this.index = index;
+			this.fence = fence;
+			this.estimate = estimate;
+			this.split = split;
+		}
+		
+		/**
+		 * Binds the range to the whole table if it isn't bound yet.
+		 * 
+		 * @return {@link #fence}
+		 */
+		private int getFence() {
+			if (fence < 0) {
+				slots = table;
+				fence = slots.length;
+				estimate = size;
+				modCount = modificationCount;
+			}
+			return fence;
+		}
+		
+		/**
+		 * Splits off the first half of the remaining slots, unless the traversal of a slot has already started.
+		 */
+		@Override
+		public Spliterator<TableEntry<K, V>> trySplit() {
+			int hi = getFence();
+			int lo = index;
+			int mid = (lo + hi) >>> 1;
+			if (lo >= mid || entry != null) {
+				return null;
+			}
+			TableSpliterator prefix = new TableSpliterator(lo, mid, estimate >>>= 1, true);
+			prefix.slots = slots;
+			prefix.modCount = modCount;
+			index = mid;
+			split = true;
+			return prefix;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * @throws ConcurrentModificationException if the hash table has been modified since the range was bound
+		 */
+		@Override
+		public boolean tryAdvance(Consumer<? super TableEntry<K, V>> action) {
+			Objects.requireNonNull(action);
+			int hi = getFence();
+			while (entry == null && index < hi) {
+				entry = slots[index++];
+			}
+			if (entry == null) {
+				return false;
+			}
+			TableEntry<K, V> current = entry;
+			entry = entry.next;
+			if (!split) {
+				estimate--;
+			}
+			action.accept(current);
+			checkModifications();
+			return true;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * The hash table is checked for modifications once, after all entries have been processed.
+		 * @throws ConcurrentModificationException if the hash table has been modified since the range was bound
+		 */
+		@Override
+		public void forEachRemaining(Consumer<? super TableEntry<K, V>> action) {
+			Objects.requireNonNull(action);
+			int hi = getFence();
+			TableEntry<K, V> current = entry;
+			entry = null;
+			while (true) {
+				for (; current != null; current = current.next) {
+					action.accept(current);
+				}
+				if (index >= hi) {
+					break;
+				}
+				current = slots[index++];
+			}
+			estimate = 0;
+			checkModifications();
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long estimateSize() {
+			getFence();
+			return estimate;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int characteristics() {
+			return (split ? 0 : SIZED) | DISTINCT | NONNULL;
+		}
+		
+		/**
+		 * Checks if there have been any modifications to this hash table since the range was bound.
+		 */
+		private void checkModifications() {
+			if (modCount != modificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+	
 	/**
 	 * Class <code>IteratorImpl</code> is the iterator used for iterating content of instances of <code>SimpleHashTable</code>.
 	 * The iterator works with <code>TableEntry</code> and implements methods {@link #hasNext()}, {@link #next()}, and {@link #remove()}.
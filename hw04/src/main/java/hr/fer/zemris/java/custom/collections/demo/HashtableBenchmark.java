@@ -0,0 +1,323 @@
+package hr.fer.zemris.java.custom.collections.demo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import hr.fer.zemris.java.custom.collections.OpenAddressingHashtable;
+import hr.fer.zemris.java.custom.collections.SimpleHashtable;
+
+/**
+ * Benchmark comparing the chained {@link SimpleHashtable} with the {@link OpenAddressingHashtable}.
+ * Both tables are filled with the same random keys, starting from the default capacity, and then
+ * present and missing keys are looked up, all entries are iterated over and all of them are removed.
+ * The time per operation is printed for each of those, together with the number of bytes allocated
+ * while filling a table and the number of bytes the filled table keeps, per entry.
+ * Keys are boxed beforehand, so their allocation isn't measured.
+ * <p>
+ * Arguments (optional): number of entries and number of measured rounds.
+ *
+ * @author stipe
+ *
+ */
+public class HashtableBenchmark {
+
+	/**
+	 * Main method.
+	 *
+	 * @param args arguments
+	 */
+	public static void main(String[] args) {
+		int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		Random random = new Random(42);
+		Integer[] keys = new Integer[entries];
+		Integer[] missing = new Integer[entries];
+		for (int i = 0; i < entries; i++) {
+			// Even keys are present and odd ones are missing.
+			keys[i] = random.nextInt() & ~1;
+			missing[i] = random.nextInt() | 1;
+		}
+
+		Table[] tables = { new Chained(), new Open() };
+		for (int i = 0; i < 3; i++) {
+			for (Table table : tables) {
+				run(table, keys, missing, null);
+			}
+		}
+
+		System.out.printf("%-10s %10s %10s %10s %10s %10s %12s %12s%n", "table", "put ns", "get ns",
+				"miss ns", "iter ns", "remove ns", "alloc B/e", "retained B/e");
+		for (Table table : tables) {
+			long[] total = new long[5];
+			for (int i = 0; i < rounds; i++) {
+				run(table, keys, missing, total);
+			}
+			System.out.printf("%-10s %10.1f %10.1f %10.1f %10.1f %10.1f %12.1f %12.1f%n", table.name(),
+					total[0] / (double) rounds / entries, total[1] / (double) rounds / entries,
+					total[2] / (double) rounds / entries, total[3] / (double) rounds / entries,
+					total[4] / (double) rounds / entries,
+					allocatedBytes(table, keys) / (double) entries, retainedBytes(table, keys) / (double) entries);
+		}
+	}
+
+	/**
+	 * Fills a new table with the given keys, looks up all keys, iterates over the entries and removes them.
+	 *
+	 * @param table table
+	 * @param keys keys which are put
+	 * @param missing keys which aren't put
+	 * @param total times in nanoseconds of all five phases, to which the measured times are added, or null
+	 */
+	private static void run(Table table, Integer[] keys, Integer[] missing, long[] total) {
+		long[] times = new long[6];
+		times[0] = System.nanoTime();
+		table.create();
+		for (Integer key : keys) {
+			table.put(key, key);
+		}
+		times[1] = System.nanoTime();
+		long sum = 0;
+		for (Integer key : keys) {
+			sum += table.get(key);
+		}
+		times[2] = System.nanoTime();
+		for (Integer key : missing) {
+			if (table.get(key) != null) {
+				sum++;
+			}
+		}
+		times[3] = System.nanoTime();
+		sum += table.iterate();
+		times[4] = System.nanoTime();
+		for (Integer key : keys) {
+			table.remove(key);
+		}
+		times[5] = System.nanoTime();
+
+		if (sum == 42 || table.size() != 0) {
+			System.out.println("Unexpected result!");
+		}
+		if (total != null) {
+			for (int i = 0; i < 5; i++) {
+				total[i] += times[i + 1] - times[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes allocated by this thread while a new table is filled with the given keys.
+	 *
+	 * @param table table
+	 * @param keys keys
+	 * @return number of bytes, or 0 if it can't be measured
+	 */
+	private static long allocatedBytes(Table table, Integer[] keys) {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return 0;
+		}
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+		long id = Thread.currentThread().getId();
+
+		long before = allocations.getThreadAllocatedBytes(id);
+		table.create();
+		for (Integer key : keys) {
+			table.put(key, key);
+		}
+		return allocations.getThreadAllocatedBytes(id) - before;
+	}
+
+	/**
+	 * Returns the number of bytes of the heap used by a table filled with the given keys.
+	 *
+	 * @param table table
+	 * @param keys keys
+	 * @return number of bytes
+	 */
+	private static long retainedBytes(Table table, Integer[] keys) {
+		table.clear();
+		long before = usedMemory();
+		table.create();
+		for (Integer key : keys) {
+			table.put(key, key);
+		}
+		long after = usedMemory();
+		table.clear();
+		return after - before;
+	}
+
+	/**
+	 * Returns the size of the used heap after a garbage collection.
+	 *
+	 * @return number of bytes
+	 */
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Benchmarked table, which is replaced by a new one on every {@link #create()}.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private interface Table {
+		/**
+		 * @return name of the implementation
+		 */
+		String name();
+
+		/**
+		 * Replaces the table with a new, empty one.
+		 */
+		void create();
+
+		/**
+		 * Drops the table.
+		 */
+		void clear();
+
+		/**
+		 * @param key key
+		 * @param value value
+		 */
+		void put(Integer key, Integer value);
+
+		/**
+		 * @param key key
+		 * @return value, or null
+		 */
+		Integer get(Integer key);
+
+		/**
+		 * @param key key
+		 */
+		void remove(Integer key);
+
+		/**
+		 * @return number of entries
+		 */
+		int size();
+
+		/**
+		 * Iterates over all entries.
+		 *
+		 * @return sum of the values
+		 */
+		long iterate();
+	}
+
+	/**
+	 * {@link SimpleHashtable} as a benchmarked table.
+	 */
+	private static class Chained implements Table {
+		/**
+		 * Current table.
+		 */
+		private SimpleHashtable<Integer, Integer> table;
+
+		@Override
+		public String name() {
+			return "chained";
+		}
+
+		@Override
+		public void create() {
+			table = new SimpleHashtable<>();
+		}
+
+		@Override
+		public void clear() {
+			table = null;
+		}
+
+		@Override
+		public void put(Integer key, Integer value) {
+			table.put(key, value);
+		}
+
+		@Override
+		public Integer get(Integer key) {
+			return table.get(key);
+		}
+
+		@Override
+		public void remove(Integer key) {
+			table.remove(key);
+		}
+
+		@Override
+		public int size() {
+			return table.size();
+		}
+
+		@Override
+		public long iterate() {
+			long sum = 0;
+			for (SimpleHashtable.TableEntry<Integer, Integer> entry : table) {
+				sum += entry.getValue();
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * {@link OpenAddressingHashtable} as a benchmarked table.
+	 */
+	private static class Open implements Table {
+		/**
+		 * Current table.
+		 */
+		private OpenAddressingHashtable<Integer, Integer> table;
+
+		@Override
+		public String name() {
+			return "open";
+		}
+
+		@Override
+		public void create() {
+			table = new OpenAddressingHashtable<>();
+		}
+
+		@Override
+		public void clear() {
+			table = null;
+		}
+
+		@Override
+		public void put(Integer key, Integer value) {
+			table.put(key, value);
+		}
+
+		@Override
+		public Integer get(Integer key) {
+			return table.get(key);
+		}
+
+		@Override
+		public void remove(Integer key) {
+			table.remove(key);
+		}
+
+		@Override
+		public int size() {
+			return table.size();
+		}
+
+		@Override
+		public long iterate() {
+			long sum = 0;
+			for (SimpleHashtable.TableEntry<Integer, Integer> entry : table) {
+				sum += entry.getValue();
+			}
+			return sum;
+		}
+	}
+}
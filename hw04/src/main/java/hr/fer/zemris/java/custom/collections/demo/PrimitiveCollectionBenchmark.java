@@ -0,0 +1,324 @@
+package hr.fer.zemris.java.custom.collections.demo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import hr.fer.zemris.java.custom.collections.ArrayIndexedCollection;
+import hr.fer.zemris.java.custom.collections.IntArrayIndexedCollection;
+
+/**
+ * Benchmark comparing {@link ArrayIndexedCollection} of <code>Integer</code>s with the {@link IntArrayIndexedCollection}.
+ * Both collections are filled with the same random values one by one, starting from the default capacity,
+ * then the values are summed with a processor, searched for and copied into an array.
+ * The time per element is printed for each of those, together with the number of bytes allocated while
+ * filling a collection and the number of bytes the filled collection keeps, per element.
+ * Values are random, so almost none of them are taken from the cache of small <code>Integer</code>s.
+ * <p>
+ * Arguments (optional): number of elements and number of measured rounds.
+ *
+ * @author stipe
+ *
+ */
+public class PrimitiveCollectionBenchmark {
+
+	/**
+	 * Number of values searched for in every round. Every search goes through the whole collection.
+	 */
+	private static final int SEARCHES = 20;
+
+	/**
+	 * Main method.
+	 *
+	 * @param args arguments
+	 */
+	public static void main(String[] args) {
+		int elements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		Random random = new Random(42);
+		int[] values = new int[elements];
+		for (int i = 0; i < elements; i++) {
+			// Values are even, so the odd searched ones are never found.
+			values[i] = random.nextInt() & ~1;
+		}
+
+		Collection[] collections = { new Boxed(), new Primitive() };
+		for (int i = 0; i < 3; i++) {
+			for (Collection collection : collections) {
+				run(collection, values, null);
+			}
+		}
+
+		System.out.printf("%-10s %10s %10s %10s %10s %12s %12s%n", "collection", "add ns", "sum ns",
+				"search ns", "array ns", "alloc B/e", "retained B/e");
+		for (Collection collection : collections) {
+			long[] total = new long[4];
+			for (int i = 0; i < rounds; i++) {
+				run(collection, values, total);
+			}
+			double perElement = (double) rounds * elements;
+			System.out.printf("%-10s %10.2f %10.2f %10.2f %10.2f %12.1f %12.1f%n", collection.name(),
+					total[0] / perElement, total[1] / perElement, total[2] / perElement / SEARCHES,
+					total[3] / perElement,
+					allocatedBytes(collection, values) / (double) elements,
+					retainedBytes(collection, values) / (double) elements);
+		}
+	}
+
+	/**
+	 * Fills a new collection with the given values, sums them, searches for missing values and copies them into an array.
+	 *
+	 * @param collection collection
+	 * @param values values which are added
+	 * @param total times in nanoseconds of all four phases, to which the measured times are added, or null
+	 */
+	private static void run(Collection collection, int[] values, long[] total) {
+		long[] times = new long[5];
+		times[0] = System.nanoTime();
+		collection.create();
+		for (int value : values) {
+			collection.add(value);
+		}
+		times[1] = System.nanoTime();
+		long sum = collection.sum();
+		times[2] = System.nanoTime();
+		for (int i = 0; i < SEARCHES; i++) {
+			if (collection.contains(2 * i + 1)) {
+				sum++;
+			}
+		}
+		times[3] = System.nanoTime();
+		sum += collection.toArrayLength();
+		times[4] = System.nanoTime();
+
+		if (sum == 42 || collection.size() != values.length) {
+			System.out.println("Unexpected result!");
+		}
+		if (total != null) {
+			for (int i = 0; i < 4; i++) {
+				total[i] += times[i + 1] - times[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes allocated by this thread while a new collection is filled with the given values.
+	 *
+	 * @param collection collection
+	 * @param values values
+	 * @return number of bytes, or 0 if it can't be measured
+	 */
+	private static long allocatedBytes(Collection collection, int[] values) {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return 0;
+		}
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+		long id = Thread.currentThread().getId();
+
+		long before = allocations.getThreadAllocatedBytes(id);
+		collection.create();
+		for (int value : values) {
+			collection.add(value);
+		}
+		return allocations.getThreadAllocatedBytes(id) - before;
+	}
+
+	/**
+	 * Returns the number of bytes of the heap used by a collection filled with the given values.
+	 *
+	 * @param collection collection
+	 * @param values values
+	 * @return number of bytes
+	 */
+	private static long retainedBytes(Collection collection, int[] values) {
+		collection.clear();
+		long before = usedMemory();
+		collection.create();
+		for (int value : values) {
+			collection.add(value);
+		}
+		long after = usedMemory();
+		collection.clear();
+		return after - before;
+	}
+
+	/**
+	 * Returns the size of the used heap after a garbage collection.
+	 *
+	 * @return number of bytes
+	 */
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Benchmarked collection, which is replaced by a new one on every {@link #create()}.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private interface Collection {
+		/**
+		 * @return name of the implementation
+		 */
+		String name();
+
+		/**
+		 * Replaces the collection with a new, empty one.
+		 */
+		void create();
+
+		/**
+		 * Drops the collection.
+		 */
+		void clear();
+
+		/**
+		 * @param value value
+		 */
+		void add(int value);
+
+		/**
+		 * Sums all elements with a processor.
+		 *
+		 * @return sum of the elements
+		 */
+		long sum();
+
+		/**
+		 * @param value value
+		 * @return <code>true</code> if the value is present
+		 */
+		boolean contains(int value);
+
+		/**
+		 * Copies the elements into an array.
+		 *
+		 * @return length of the array
+		 */
+		int toArrayLength();
+
+		/**
+		 * @return number of elements
+		 */
+		int size();
+	}
+
+	/**
+	 * {@link ArrayIndexedCollection} of <code>Integer</code>s as a benchmarked collection.
+	 */
+	private static class Boxed implements Collection {
+		/**
+		 * Current collection.
+		 */
+		private ArrayIndexedCollection<Integer> collection;
+		/**
+		 * Sum computed by the processor.
+		 */
+		private long sum;
+
+		@Override
+		public String name() {
+			return "boxed";
+		}
+
+		@Override
+		public void create() {
+			collection = new ArrayIndexedCollection<>();
+		}
+
+		@Override
+		public void clear() {
+			collection = null;
+		}
+
+		@Override
+		public void add(int value) {
+			collection.add(value);
+		}
+
+		@Override
+		public long sum() {
+			sum = 0;
+			collection.forEach(value -> sum += value);
+			return sum;
+		}
+
+		@Override
+		public boolean contains(int value) {
+			return collection.contains(value);
+		}
+
+		@Override
+		public int toArrayLength() {
+			return collection.toArray().length;
+		}
+
+		@Override
+		public int size() {
+			return collection.size();
+		}
+	}
+
+	/**
+	 * {@link IntArrayIndexedCollection} as a benchmarked collection.
+	 */
+	private static class Primitive implements Collection {
+		/**
+		 * Current collection.
+		 */
+		private IntArrayIndexedCollection collection;
+		/**
+		 * Sum computed by the processor.
+		 */
+		private long sum;
+
+		@Override
+		public String name() {
+			return "primitive";
+		}
+
+		@Override
+		public void create() {
+			collection = new IntArrayIndexedCollection();
+		}
+
+		@Override
+		public void clear() {
+			collection = null;
+		}
+
+		@Override
+		public void add(int value) {
+			collection.add(value);
+		}
+
+		@Override
+		public long sum() {
+			sum = 0;
+			collection.forEach(value -> sum += value);
+			return sum;
+		}
+
+		@Override
+		public boolean contains(int value) {
+			return collection.contains(value);
+		}
+
+		@Override
+		public int toArrayLength() {
+			return collection.toArray().length;
+		}
+
+		@Override
+		public int size() {
+			return collection.size();
+		}
+	}
+}
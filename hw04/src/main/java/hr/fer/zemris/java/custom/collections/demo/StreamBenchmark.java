@@ -0,0 +1,106 @@
+package hr.fer.zemris.java.custom.collections.demo;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongSupplier;
+
+import hr.fer.zemris.java.custom.collections.ArrayIndexedCollection;
+import hr.fer.zemris.java.custom.collections.ElementsGetter;
+import hr.fer.zemris.java.custom.collections.LinkedListIndexedCollection;
+import hr.fer.zemris.java.custom.collections.SimpleHashtable;
+
+/**
+ * Benchmark of summing the elements of {@link ArrayIndexedCollection}, {@link LinkedListIndexedCollection}
+ * and {@link SimpleHashtable} with an {@link ElementsGetter} (or an iterator for the table), a sequential stream
+ * and a parallel stream. The time per element is printed for each of those. The speedup of parallel streams
+ * is bounded by the parallelism of the common pool, which is printed as well.
+ * <p>
+ * Arguments (optional): number of elements and number of measured rounds.
+ *
+ * @author stipe
+ *
+ */
+public class StreamBenchmark {
+
+	/**
+	 * Main method.
+	 *
+	 * @param args arguments
+	 */
+	public static void main(String[] args) {
+		int elements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		Random random = new Random(42);
+		ArrayIndexedCollection<Integer> array = new ArrayIndexedCollection<>();
+		LinkedListIndexedCollection<Integer> list = new LinkedListIndexedCollection<>();
+		SimpleHashtable<Integer, Integer> table = new SimpleHashtable<>();
+		for (int i = 0; i < elements; i++) {
+			Integer value = random.nextInt(1000);
+			array.add(value);
+			list.add(value);
+			table.put(i, value);
+		}
+
+		System.out.printf("parallelism: %d%n", ForkJoinPool.getCommonPoolParallelism());
+		System.out.printf("%-10s %12s %12s %12s%n", "collection", "getter ns", "stream ns", "parallel ns");
+		print("array", elements, rounds,
+				() -> sum(array.createElementsGetter()),
+				() -> array.stream().mapToLong(Integer::longValue).sum(),
+				() -> array.parallelStream().mapToLong(Integer::longValue).sum());
+		print("list", elements, rounds,
+				() -> sum(list.createElementsGetter()),
+				() -> list.stream().mapToLong(Integer::longValue).sum(),
+				() -> list.parallelStream().mapToLong(Integer::longValue).sum());
+		print("table", elements, rounds,
+				() -> {
+					long sum = 0;
+					for (SimpleHashtable.TableEntry<Integer, Integer> entry : table) {
+						sum += entry.getValue();
+					}
+					return sum;
+				},
+				() -> table.stream().mapToLong(entry -> entry.getValue()).sum(),
+				() -> table.parallelStream().mapToLong(entry -> entry.getValue()).sum());
+	}
+
+	/**
+	 * Measures the given ways of summing the elements and prints the time per element of each.
+	 *
+	 * @param name name of the collection
+	 * @param elements number of elements
+	 * @param rounds number of measured rounds
+	 * @param ways ways of summing the elements
+	 */
+	private static void print(String name, int elements, int rounds, LongSupplier... ways) {
+		double[] times = new double[ways.length];
+		long expected = ways[0].getAsLong();
+		for (int i = 0; i < ways.length; i++) {
+			for (int r = 0; r < 3; r++) {
+				ways[i].getAsLong();
+			}
+			long start = System.nanoTime();
+			for (int r = 0; r < rounds; r++) {
+				if (ways[i].getAsLong() != expected) {
+					System.out.println("Unexpected result!");
+				}
+			}
+			times[i] = (System.nanoTime() - start) / (double) rounds / elements;
+		}
+		System.out.printf("%-10s %12.2f %12.2f %12.2f%n", name, times[0], times[1], times[2]);
+	}
+
+	/**
+	 * Sums the elements with the given getter.
+	 *
+	 * @param getter getter
+	 * @return sum of the elements
+	 */
+	private static long sum(ElementsGetter<Integer> getter) {
+		long sum = 0;
+		while (getter.hasNextElement()) {
+			sum += getter.getNextElement();
+		}
+		return sum;
+	}
+}
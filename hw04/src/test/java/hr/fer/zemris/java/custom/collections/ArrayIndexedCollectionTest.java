@@ -0,0 +1,208 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ArrayIndexedCollectionTest {
+
+	ArrayIndexedCollection<Integer> numbers;
+
+	@BeforeEach
+	void initCollection() {
+		numbers = new ArrayIndexedCollection<>(2);
+		for (int i = 0; i < 5; i++) {
+			numbers.add(i);
+		}
+	}
+
+	@Test
+	void testInsertAllInTheMiddle() {
+		numbers.insertAll(collectionOf(10, 11, 12), 2);
+		assertArrayEquals(new Object[] {0, 1, 10, 11, 12, 2, 3, 4}, numbers.toArray());
+		assertEquals(8, numbers.size());
+	}
+
+	@Test
+	void testInsertAllAtTheEnds() {
+		numbers.insertAll(collectionOf(10, 11), 0);
+		numbers.insertAll(collectionOf(20), numbers.size());
+		assertArrayEquals(new Object[] {10, 11, 0, 1, 2, 3, 4, 20}, numbers.toArray());
+	}
+
+	@Test
+	void testInsertAllGrowsBeyondDoubleCapacity() {
+		ArrayIndexedCollection<Integer> other = new ArrayIndexedCollection<>();
+		for (int i = 0; i < 100; i++) {
+			other.add(100 + i);
+		}
+		numbers.insertAll(other, 1);
+		assertEquals(105, numbers.size());
+		assertEquals(0, numbers.get(0));
+		assertEquals(100, numbers.get(1));
+		assertEquals(199, numbers.get(100));
+		assertEquals(1, numbers.get(101));
+		assertEquals(4, numbers.get(104));
+	}
+
+	@Test
+	void testInsertAllFromLinkedList() {
+		LinkedListIndexedCollection<Integer> other = new LinkedListIndexedCollection<>();
+		other.add(7);
+		other.add(8);
+		numbers.insertAll(other, 3);
+		assertArrayEquals(new Object[] {0, 1, 2, 7, 8, 3, 4}, numbers.toArray());
+	}
+
+	@Test
+	void testInsertAllIntoItself() {
+		numbers.insertAll(numbers, 1);
+		assertArrayEquals(new Object[] {0, 0, 1, 2, 3, 4, 1, 2, 3, 4}, numbers.toArray());
+		numbers.addAll(numbers);
+		assertEquals(20, numbers.size());
+		assertEquals(4, numbers.get(19));
+	}
+
+	@Test
+	void testInsertAllEmptyAndInvalid() {
+		numbers.insertAll(new ArrayIndexedCollection<>(), 2);
+		assertEquals(5, numbers.size());
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.insertAll(collectionOf(1), 6));
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.insertAll(collectionOf(1), -1));
+		assertThrows(NullPointerException.class, () -> numbers.insertAll(null, 0));
+	}
+
+	@Test
+	void testRemoveRange() {
+		numbers.removeRange(1, 3);
+		assertArrayEquals(new Object[] {0, 3, 4}, numbers.toArray());
+		numbers.removeRange(2, 3);
+		assertArrayEquals(new Object[] {0, 3}, numbers.toArray());
+		numbers.removeRange(1, 1);
+		assertEquals(2, numbers.size());
+		numbers.removeRange(0, 2);
+		assertTrue(numbers.isEmpty());
+		numbers.add(9);
+		assertEquals(9, numbers.get(0));
+	}
+
+	@Test
+	void testRemoveRangeInvalid() {
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.removeRange(-1, 2));
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.removeRange(3, 2));
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.removeRange(0, 6));
+		assertEquals(5, numbers.size());
+	}
+
+	@Test
+	void testRemoveIf() {
+		assertTrue(numbers.removeIf(value -> value % 2 == 0));
+		assertArrayEquals(new Object[] {1, 3}, numbers.toArray());
+		assertFalse(numbers.removeIf(value -> value > 10));
+		assertEquals(2, numbers.size());
+		assertTrue(numbers.removeIf(value -> true));
+		assertTrue(numbers.isEmpty());
+		assertThrows(NullPointerException.class, () -> numbers.removeIf(null));
+	}
+
+	@Test
+	void testRemoveAtEndOfFullArray() {
+		ArrayIndexedCollection<Integer> full = new ArrayIndexedCollection<>(2);
+		full.add(1);
+		full.add(2);
+		full.remove(1);
+		full.remove(0);
+		assertTrue(full.isEmpty());
+		full.add(3);
+		assertArrayEquals(new Object[] {3}, full.toArray());
+	}
+
+	@Test
+	void testRemoveIfWithThrowingTester() {
+		assertThrows(IllegalStateException.class, () -> numbers.removeIf(value -> {
+			if (value == 3) {
+				throw new IllegalStateException();
+			}
+			return value < 2;
+		}));
+		assertArrayEquals(new Object[] {0, 1, 2, 3, 4}, numbers.toArray());
+		assertEquals(5, numbers.size());
+		assertEquals(4, numbers.get(4));
+	}
+
+	@Test
+	void testAddAllSatisfying() {
+		ArrayIndexedCollection<Integer> odd = new ArrayIndexedCollection<>();
+		odd.add(-1);
+		odd.addAllSatisfying(numbers, value -> value % 2 != 0);
+		assertArrayEquals(new Object[] {-1, 1, 3}, odd.toArray());
+
+		odd.addAllSatisfying(new LinkedListIndexedCollection<>(numbers), value -> value > 3);
+		assertArrayEquals(new Object[] {-1, 1, 3, 4}, odd.toArray());
+		assertArrayEquals(new Object[] {0, 1, 2, 3, 4}, numbers.toArray());
+	}
+
+	@Test
+	void testStreamOrder() {
+		ArrayIndexedCollection<Integer> big = new ArrayIndexedCollection<>();
+		ArrayList<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			big.add(i);
+			expected.add(i);
+		}
+		assertEquals(expected, big.stream().collect(Collectors.toList()));
+		assertEquals(expected, big.parallelStream().collect(Collectors.toList()));
+		assertEquals(expected.size(), big.parallelStream().count());
+		assertEquals(49_995_000L, big.parallelStream().mapToLong(Integer::longValue).sum());
+	}
+
+	@Test
+	void testSpliteratorSplitsCoverAllElements() {
+		Spliterator<Integer> whole = numbers.spliterator();
+		assertEquals(5, whole.estimateSize());
+		Spliterator<Integer> prefix = whole.trySplit();
+		assertNotNull(prefix);
+		assertEquals(5, prefix.estimateSize() + whole.estimateSize());
+
+		ArrayList<Integer> visited = new ArrayList<>();
+		while (prefix.tryAdvance(visited::add)) {
+			// The elements are collected by the action.
+		}
+		whole.forEachRemaining(visited::add);
+		assertArrayEquals(new Object[] {0, 1, 2, 3, 4}, visited.toArray());
+		assertFalse(whole.tryAdvance(visited::add));
+	}
+
+	@Test
+	void testStreamConcurrentModification() {
+		assertThrows(ConcurrentModificationException.class, () -> numbers.stream().forEach(value -> numbers.add(value)));
+
+		Spliterator<Integer> spliterator = numbers.spliterator();
+		assertTrue(spliterator.tryAdvance(value -> {}));
+		numbers.add(100);
+		assertThrows(ConcurrentModificationException.class, () -> spliterator.tryAdvance(value -> {}));
+	}
+
+	@Test
+	void testStreamBoundOnFirstUse() {
+		Spliterator<Integer> spliterator = numbers.spliterator();
+		numbers.add(5);
+		ArrayList<Integer> visited = new ArrayList<>();
+		spliterator.forEachRemaining(visited::add);
+		assertArrayEquals(new Object[] {0, 1, 2, 3, 4, 5}, visited.toArray());
+	}
+
+	private static ArrayIndexedCollection<Integer> collectionOf(Integer... values) {
+		ArrayIndexedCollection<Integer> collection = new ArrayIndexedCollection<>();
+		for (Integer value : values) {
+			collection.add(value);
+		}
+		return collection;
+	}
+}
@@ -0,0 +1,65 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DoubleArrayIndexedCollectionTest {
+
+	DoubleArrayIndexedCollection numbers;
+
+	@BeforeEach
+	void initCollection() {
+		numbers = new DoubleArrayIndexedCollection(1);
+	}
+
+	@Test
+	void testAddGetAndResize() {
+		for (int i = 0; i < 50; i++) {
+			numbers.add(i / 2.0);
+		}
+		assertEquals(50, numbers.size());
+		assertEquals(24.5, numbers.get(49));
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.get(50));
+	}
+
+	@Test
+	void testInsertRemoveAndIndexOf() {
+		numbers.addAll(new double[] {1.5, 3.5});
+		numbers.insert(2.5, 1);
+		numbers.insert(0.5, 0);
+		assertArrayEquals(new double[] {0.5, 1.5, 2.5, 3.5}, numbers.toArray());
+		assertEquals(2, numbers.indexOf(2.5));
+
+		numbers.remove(0);
+		assertTrue(numbers.removeValue(3.5));
+		assertArrayEquals(new double[] {1.5, 2.5}, numbers.toArray());
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.remove(2));
+	}
+
+	@Test
+	void testIndexOfSpecialValues() {
+		numbers.addAll(new double[] {0.0, Double.NaN, -0.0});
+		assertEquals(1, numbers.indexOf(Double.NaN));
+		assertEquals(0, numbers.indexOf(0.0));
+		assertEquals(2, numbers.indexOf(-0.0));
+		assertTrue(numbers.removeValue(-0.0));
+		assertFalse(numbers.contains(-0.0));
+		assertTrue(numbers.contains(0.0));
+	}
+
+	@Test
+	void testForEachAndAddAllSatisfying() {
+		numbers.addAll(new double[] {1, 2, 3, 4});
+		double[] sum = new double[1];
+		numbers.forEach(value -> sum[0] += value);
+		assertEquals(10, sum[0]);
+
+		DoubleArrayIndexedCollection large = new DoubleArrayIndexedCollection();
+		large.addAllSatisfying(numbers, value -> value > 2);
+		assertArrayEquals(new double[] {3, 4}, large.toArray());
+		numbers.addAll(large);
+		assertEquals(6, numbers.size());
+	}
+}
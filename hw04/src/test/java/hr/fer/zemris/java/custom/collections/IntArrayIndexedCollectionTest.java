@@ -0,0 +1,133 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IntArrayIndexedCollectionTest {
+
+	IntArrayIndexedCollection numbers;
+
+	@BeforeEach
+	void initCollection() {
+		numbers = new IntArrayIndexedCollection(2);
+	}
+
+	@Test
+	void testConstructor() {
+		assertThrows(IllegalArgumentException.class, () -> new IntArrayIndexedCollection(0));
+		assertTrue(new IntArrayIndexedCollection().isEmpty());
+	}
+
+	@Test
+	void testAddAndGetWithResize() {
+		for (int i = 0; i < 100; i++) {
+			numbers.add(i * 3);
+		}
+		assertEquals(100, numbers.size());
+		assertFalse(numbers.isEmpty());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i * 3, numbers.get(i));
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.get(100));
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.get(-1));
+	}
+
+	@Test
+	void testAddAll() {
+		numbers.add(1);
+		numbers.addAll(new int[] {2, 3, 4, 5, 6});
+		assertArrayEquals(new int[] {1, 2, 3, 4, 5, 6}, numbers.toArray());
+
+		IntArrayIndexedCollection other = new IntArrayIndexedCollection();
+		other.add(7);
+		numbers.addAll(other);
+		numbers.addAll(numbers);
+		assertArrayEquals(new int[] {1, 2, 3, 4, 5, 6, 7, 1, 2, 3, 4, 5, 6, 7}, numbers.toArray());
+		assertArrayEquals(new int[] {7}, other.toArray());
+		assertThrows(NullPointerException.class, () -> numbers.addAll((int[]) null));
+	}
+
+	@Test
+	void testInsert() {
+		numbers.insert(2, 0);
+		numbers.insert(0, 0);
+		numbers.insert(1, 1);
+		numbers.insert(3, 3);
+		assertArrayEquals(new int[] {0, 1, 2, 3}, numbers.toArray());
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.insert(5, 5));
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.insert(5, -1));
+	}
+
+	@Test
+	void testIndexOfAndContains() {
+		numbers.addAll(new int[] {5, -1, 5, Integer.MIN_VALUE});
+		assertEquals(0, numbers.indexOf(5));
+		assertEquals(1, numbers.indexOf(-1));
+		assertEquals(3, numbers.indexOf(Integer.MIN_VALUE));
+		assertEquals(-1, numbers.indexOf(0));
+		assertTrue(numbers.contains(-1));
+		assertFalse(numbers.contains(6));
+	}
+
+	@Test
+	void testRemove() {
+		numbers.addAll(new int[] {0, 1, 2, 3, 4});
+		numbers.remove(0);
+		numbers.remove(3);
+		numbers.remove(1);
+		assertArrayEquals(new int[] {1, 3}, numbers.toArray());
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.remove(2));
+	}
+
+	@Test
+	void testRemoveValue() {
+		numbers.addAll(new int[] {1, 2, 1});
+		assertTrue(numbers.removeValue(1));
+		assertArrayEquals(new int[] {2, 1}, numbers.toArray());
+		assertFalse(numbers.removeValue(3));
+		assertTrue(numbers.removeValue(1));
+		assertTrue(numbers.removeValue(2));
+		assertTrue(numbers.isEmpty());
+	}
+
+	@Test
+	void testClear() {
+		numbers.addAll(new int[] {1, 2, 3});
+		numbers.clear();
+		assertTrue(numbers.isEmpty());
+		assertArrayEquals(new int[0], numbers.toArray());
+		numbers.add(4);
+		assertEquals(4, numbers.get(0));
+	}
+
+	@Test
+	void testForEach() {
+		numbers.addAll(new int[] {1, 2, 3, 4});
+		IntArrayIndexedCollection visited = new IntArrayIndexedCollection();
+		numbers.forEach(visited::add);
+		assertArrayEquals(numbers.toArray(), visited.toArray());
+		assertThrows(NullPointerException.class, () -> numbers.forEach(null));
+	}
+
+	@Test
+	void testAddAllSatisfying() {
+		numbers.addAll(new int[] {1, 2, 3, 4, 5});
+		IntArrayIndexedCollection even = new IntArrayIndexedCollection();
+		even.addAllSatisfying(numbers, value -> value % 2 == 0);
+		assertArrayEquals(new int[] {2, 4}, even.toArray());
+
+		numbers.addAllSatisfying(numbers, value -> value > 3);
+		assertArrayEquals(new int[] {1, 2, 3, 4, 5, 4, 5}, numbers.toArray());
+		assertThrows(NullPointerException.class, () -> numbers.addAllSatisfying(even, null));
+	}
+
+	@Test
+	void testToArrayIsCopy() {
+		numbers.addAll(new int[] {1, 2});
+		int[] array = numbers.toArray();
+		array[0] = 10;
+		assertEquals(1, numbers.get(0));
+	}
+}
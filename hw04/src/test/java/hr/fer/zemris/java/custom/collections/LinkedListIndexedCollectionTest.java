@@ -0,0 +1,210 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LinkedListIndexedCollectionTest {
+
+	LinkedListIndexedCollection<Integer> numbers;
+
+	@BeforeEach
+	void initCollection() {
+		numbers = new LinkedListIndexedCollection<>();
+		for (int i = 0; i < 5; i++) {
+			numbers.add(i);
+		}
+	}
+
+	@Test
+	void testInsertAllInTheMiddle() {
+		numbers.insertAll(listOf(10, 11, 12), 2);
+		assertArrayEquals(new Object[] {0, 1, 10, 11, 12, 2, 3, 4}, numbers.toArray());
+		assertEquals(8, numbers.size());
+		assertEquals(12, numbers.get(4));
+		assertEquals(2, numbers.get(5));
+	}
+
+	@Test
+	void testInsertAllAtTheEnds() {
+		numbers.insertAll(listOf(10, 11), 0);
+		numbers.insertAll(listOf(20), numbers.size());
+		assertArrayEquals(new Object[] {10, 11, 0, 1, 2, 3, 4, 20}, numbers.toArray());
+		assertEquals(10, numbers.get(0));
+		assertEquals(20, numbers.get(7));
+	}
+
+	@Test
+	void testInsertAllIntoEmptyList() {
+		LinkedListIndexedCollection<Integer> empty = new LinkedListIndexedCollection<>();
+		empty.insertAll(numbers, 0);
+		assertArrayEquals(numbers.toArray(), empty.toArray());
+		empty.add(5);
+		assertEquals(5, empty.get(5));
+	}
+
+	@Test
+	void testInsertAllIntoItself() {
+		numbers.insertAll(numbers, 1);
+		assertArrayEquals(new Object[] {0, 0, 1, 2, 3, 4, 1, 2, 3, 4}, numbers.toArray());
+		numbers.addAll(numbers);
+		assertEquals(20, numbers.size());
+		assertEquals(4, numbers.get(19));
+	}
+
+	@Test
+	void testInsertAllEmptyAndInvalid() {
+		numbers.insertAll(new LinkedListIndexedCollection<>(), 2);
+		assertEquals(5, numbers.size());
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.insertAll(listOf(1), 6));
+		assertThrows(NullPointerException.class, () -> numbers.insertAll(null, 0));
+	}
+
+	@Test
+	void testRemoveRange() {
+		numbers.removeRange(1, 3);
+		assertArrayEquals(new Object[] {0, 3, 4}, numbers.toArray());
+		numbers.removeRange(2, 3);
+		assertArrayEquals(new Object[] {0, 3}, numbers.toArray());
+		assertEquals(3, numbers.get(1));
+		numbers.removeRange(0, 1);
+		assertArrayEquals(new Object[] {3}, numbers.toArray());
+		numbers.removeRange(0, 1);
+		assertTrue(numbers.isEmpty());
+		numbers.add(9);
+		assertArrayEquals(new Object[] {9}, numbers.toArray());
+	}
+
+	@Test
+	void testRemoveRangeInvalid() {
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.removeRange(-1, 2));
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.removeRange(3, 2));
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.removeRange(0, 6));
+		assertEquals(5, numbers.size());
+	}
+
+	@Test
+	void testRemoveIf() {
+		assertTrue(numbers.removeIf(value -> value % 2 == 0));
+		assertArrayEquals(new Object[] {1, 3}, numbers.toArray());
+		assertEquals(3, numbers.get(1));
+		assertFalse(numbers.removeIf(value -> value > 10));
+		assertTrue(numbers.removeIf(value -> true));
+		assertTrue(numbers.isEmpty());
+		numbers.add(7);
+		assertArrayEquals(new Object[] {7}, numbers.toArray());
+	}
+
+	@Test
+	void testRemoveFirstAndLastNodes() {
+		numbers.remove(0);
+		assertEquals(1, numbers.get(0));
+		numbers.remove(numbers.size() - 1);
+		assertEquals(3, numbers.get(numbers.size() - 1));
+		assertArrayEquals(new Object[] {1, 2, 3}, numbers.toArray());
+
+		numbers.insert(0, 0);
+		numbers.add(4);
+		assertArrayEquals(new Object[] {0, 1, 2, 3, 4}, numbers.toArray());
+		assertEquals(4, numbers.get(4));
+	}
+
+	@Test
+	void testRemoveValueAtTheEnds() {
+		assertTrue(numbers.remove(Integer.valueOf(4)));
+		assertTrue(numbers.remove(Integer.valueOf(0)));
+		assertArrayEquals(new Object[] {1, 2, 3}, numbers.toArray());
+		assertEquals(3, numbers.get(2));
+
+		numbers.removeRange(0, 3);
+		numbers.add(5);
+		assertEquals(5, numbers.get(0));
+		assertArrayEquals(new Object[] {5}, numbers.toArray());
+	}
+
+	@Test
+	void testRemoveIfWithThrowingTester() {
+		assertThrows(IllegalStateException.class, () -> numbers.removeIf(value -> {
+			if (value == 3) {
+				throw new IllegalStateException();
+			}
+			return value < 2;
+		}));
+		assertArrayEquals(new Object[] {0, 1, 2, 3, 4}, numbers.toArray());
+		assertEquals(5, numbers.size());
+		assertEquals(4, numbers.get(4));
+	}
+
+	@Test
+	void testAddAllSatisfying() {
+		LinkedListIndexedCollection<Integer> odd = new LinkedListIndexedCollection<>();
+		odd.addAllSatisfying(numbers, value -> value % 2 != 0);
+		assertArrayEquals(new Object[] {1, 3}, odd.toArray());
+		assertEquals(3, odd.get(1));
+		assertArrayEquals(new Object[] {0, 1, 2, 3, 4}, numbers.toArray());
+	}
+
+	@Test
+	void testStreamOrder() {
+		LinkedListIndexedCollection<Integer> big = new LinkedListIndexedCollection<>();
+		ArrayList<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			big.add(i);
+			expected.add(i);
+		}
+		assertEquals(expected, big.stream().collect(Collectors.toList()));
+		assertEquals(expected, big.parallelStream().collect(Collectors.toList()));
+		assertEquals(expected.size(), big.parallelStream().count());
+		assertEquals(49_995_000L, big.parallelStream().mapToLong(Integer::longValue).sum());
+	}
+
+	@Test
+	void testSpliteratorSplitsCoverAllElements() {
+		Spliterator<Integer> whole = numbers.spliterator();
+		assertEquals(5, whole.estimateSize());
+		Spliterator<Integer> prefix = whole.trySplit();
+		assertNotNull(prefix);
+		assertEquals(5, prefix.estimateSize() + whole.estimateSize());
+
+		ArrayList<Integer> visited = new ArrayList<>();
+		while (prefix.tryAdvance(visited::add)) {
+			// The elements are collected by the action.
+		}
+		whole.forEachRemaining(visited::add);
+		assertArrayEquals(new Object[] {0, 1, 2, 3, 4}, visited.toArray());
+		assertFalse(whole.tryAdvance(visited::add));
+	}
+
+	@Test
+	void testStreamConcurrentModification() {
+		assertThrows(ConcurrentModificationException.class, () -> numbers.stream().forEach(value -> numbers.add(value)));
+
+		Spliterator<Integer> spliterator = numbers.spliterator();
+		assertTrue(spliterator.tryAdvance(value -> {}));
+		numbers.add(100);
+		assertThrows(ConcurrentModificationException.class, () -> spliterator.tryAdvance(value -> {}));
+	}
+
+	@Test
+	void testStreamBoundOnFirstUse() {
+		Spliterator<Integer> spliterator = numbers.spliterator();
+		numbers.add(5);
+		ArrayList<Integer> visited = new ArrayList<>();
+		spliterator.forEachRemaining(visited::add);
+		assertArrayEquals(new Object[] {0, 1, 2, 3, 4, 5}, visited.toArray());
+	}
+
+	private static LinkedListIndexedCollection<Integer> listOf(Integer... values) {
+		LinkedListIndexedCollection<Integer> list = new LinkedListIndexedCollection<>();
+		for (Integer value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,59 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LongArrayIndexedCollectionTest {
+
+	LongArrayIndexedCollection numbers;
+
+	@BeforeEach
+	void initCollection() {
+		numbers = new LongArrayIndexedCollection(1);
+	}
+
+	@Test
+	void testAddGetAndResize() {
+		for (long i = 0; i < 50; i++) {
+			numbers.add(i << 40);
+		}
+		assertEquals(50, numbers.size());
+		assertEquals(49L << 40, numbers.get(49));
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.get(50));
+		numbers.addAll(new long[] {Long.MIN_VALUE, Long.MAX_VALUE});
+		assertEquals(Long.MAX_VALUE, numbers.get(51));
+	}
+
+	@Test
+	void testInsertRemoveAndIndexOf() {
+		numbers.addAll(new long[] {1, 3, 1L << 33});
+		numbers.insert(2, 1);
+		numbers.insert(0, 0);
+		assertArrayEquals(new long[] {0, 1, 2, 3, 1L << 33}, numbers.toArray());
+		assertEquals(4, numbers.indexOf(1L << 33));
+		assertEquals(-1, numbers.indexOf(1L << 34));
+
+		numbers.remove(4);
+		assertTrue(numbers.removeValue(0));
+		assertFalse(numbers.removeValue(5));
+		assertArrayEquals(new long[] {1, 2, 3}, numbers.toArray());
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.remove(3));
+		assertThrows(IndexOutOfBoundsException.class, () -> numbers.insert(4, 4));
+	}
+
+	@Test
+	void testForEachAndAddAllSatisfying() {
+		numbers.addAll(new long[] {1, 2, 3, 4});
+		long[] sum = new long[1];
+		numbers.forEach(value -> sum[0] += value);
+		assertEquals(10, sum[0]);
+
+		LongArrayIndexedCollection odd = new LongArrayIndexedCollection();
+		odd.addAllSatisfying(numbers, value -> value % 2 != 0);
+		assertArrayEquals(new long[] {1, 3}, odd.toArray());
+		numbers.addAll(odd);
+		assertArrayEquals(new long[] {1, 2, 3, 4, 1, 3}, numbers.toArray());
+	}
+}
@@ -0,0 +1,242 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OpenAddressingHashtableTest {
+
+	OpenAddressingHashtable<Integer, String> table;
+
+	@BeforeEach
+	void initTable() {
+		table = new OpenAddressingHashtable<>(1);
+	}
+
+	@Test
+	void testConstructor() {
+		assertThrows(IllegalArgumentException.class, () -> new OpenAddressingHashtable<>(0));
+		assertTrue(new OpenAddressingHashtable<>().isEmpty());
+	}
+
+	@Test
+	void testPutAndGetAcrossResizes() {
+		for (int i = 0; i < 1000; i++) {
+			table.put(i, "v" + i);
+			assertEquals(i + 1, table.size());
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("v" + i, table.get(i));
+		}
+		assertNull(table.get(1000));
+		assertNull(table.get(null));
+
+		table.put(500, "changed");
+		assertEquals("changed", table.get(500));
+		assertEquals(1000, table.size());
+		assertThrows(NullPointerException.class, () -> table.put(null, "x"));
+	}
+
+	@Test
+	void testNullValues() {
+		table.put(1, null);
+		assertTrue(table.containsKey(1));
+		assertTrue(table.containsValue(null));
+		assertNull(table.get(1));
+		assertEquals(1, table.size());
+	}
+
+	@Test
+	void testRemoveAcrossResizes() {
+		for (int i = 0; i < 1000; i++) {
+			table.put(i, "v" + i);
+		}
+		for (int i = 0; i < 1000; i += 2) {
+			table.remove(i);
+		}
+		assertEquals(500, table.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i % 2 == 0 ? null : "v" + i, table.get(i));
+			assertEquals(i % 2 != 0, table.containsKey(i));
+		}
+		table.remove(0);
+		table.remove(null);
+		assertEquals(500, table.size());
+	}
+
+	@Test
+	void testRemoveInTheMiddleOfProbeRun() {
+		OpenAddressingHashtable<Key, Integer> colliding = new OpenAddressingHashtable<>(16);
+		Key[] keys = { new Key(1, 5), new Key(2, 5), new Key(3, 5), new Key(4, 6), new Key(5, 5), new Key(6, 7) };
+		for (int i = 0; i < keys.length; i++) {
+			colliding.put(keys[i], i);
+		}
+
+		colliding.remove(keys[1]);
+		assertFalse(colliding.containsKey(keys[1]));
+		for (int i = 0; i < keys.length; i++) {
+			if (i != 1) {
+				assertEquals(i, colliding.get(keys[i]));
+			}
+		}
+
+		colliding.remove(keys[0]);
+		colliding.remove(keys[3]);
+		assertEquals(3, colliding.size());
+		assertEquals(2, colliding.get(keys[2]));
+		assertEquals(4, colliding.get(keys[4]));
+		assertEquals(5, colliding.get(keys[5]));
+		assertNull(colliding.get(new Key(7, 5)));
+
+		colliding.put(keys[1], 10);
+		assertEquals(10, colliding.get(keys[1]));
+		assertEquals(4, colliding.size());
+	}
+
+	@Test
+	void testAgainstHashMap() {
+		OpenAddressingHashtable<Key, Integer> colliding = new OpenAddressingHashtable<>();
+		Map<Key, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 20_000; i++) {
+			Key key = new Key(random.nextInt(200), random.nextInt(40));
+			if (random.nextInt(3) == 0) {
+				colliding.remove(key);
+				expected.remove(key);
+			} else {
+				colliding.put(key, i);
+				expected.put(key, i);
+			}
+			assertEquals(expected.size(), colliding.size());
+		}
+		for (int id = 0; id < 200; id++) {
+			for (int hash = 0; hash < 40; hash++) {
+				Key key = new Key(id, hash);
+				assertEquals(expected.get(key), colliding.get(key));
+			}
+		}
+	}
+
+	@Test
+	void testIteratorVisitsEveryEntryOnce() {
+		for (int i = 0; i < 100; i++) {
+			table.put(i, "v" + i);
+		}
+		Set<Integer> visited = new HashSet<>();
+		for (SimpleHashtable.TableEntry<Integer, String> entry : table) {
+			assertTrue(visited.add(entry.getKey()));
+			assertEquals("v" + entry.getKey(), entry.getValue());
+		}
+		assertEquals(100, visited.size());
+	}
+
+	@Test
+	void testIteratorRemove() {
+		OpenAddressingHashtable<Key, Integer> colliding = new OpenAddressingHashtable<>(16);
+		for (int i = 0; i < 10; i++) {
+			colliding.put(new Key(i, i % 3), i);
+		}
+
+		Set<Integer> visited = new HashSet<>();
+		Iterator<SimpleHashtable.TableEntry<Key, Integer>> it = colliding.iterator();
+		while (it.hasNext()) {
+			SimpleHashtable.TableEntry<Key, Integer> entry = it.next();
+			assertTrue(visited.add(entry.getValue()));
+			if (entry.getValue() % 2 == 0) {
+				it.remove();
+				assertThrows(IllegalStateException.class, it::remove);
+			}
+		}
+		assertEquals(10, visited.size());
+		assertEquals(5, colliding.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i % 2 != 0, colliding.containsKey(new Key(i, i % 3)));
+		}
+	}
+
+	@Test
+	void testIteratorRemoveAll() {
+		for (int i = 0; i < 50; i++) {
+			table.put(i, "v" + i);
+		}
+		Iterator<SimpleHashtable.TableEntry<Integer, String>> it = table.iterator();
+		assertThrows(IllegalStateException.class, it::remove);
+		while (it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+		assertTrue(table.isEmpty());
+		assertThrows(NoSuchElementException.class, it::next);
+	}
+
+	@Test
+	void testConcurrentModification() {
+		table.put(1, "a");
+		table.put(2, "b");
+
+		Iterator<SimpleHashtable.TableEntry<Integer, String>> it = table.iterator();
+		it.next();
+		table.put(3, "c");
+		assertThrows(ConcurrentModificationException.class, it::hasNext);
+		assertThrows(ConcurrentModificationException.class, it::next);
+		assertThrows(ConcurrentModificationException.class, it::remove);
+
+		Iterator<SimpleHashtable.TableEntry<Integer, String>> removing = table.iterator();
+		removing.next();
+		table.remove(1);
+		assertThrows(ConcurrentModificationException.class, removing::next);
+
+		Iterator<SimpleHashtable.TableEntry<Integer, String>> clearing = table.iterator();
+		table.clear();
+		assertThrows(ConcurrentModificationException.class, clearing::hasNext);
+	}
+
+	@Test
+	void testValueChangeIsNotModification() {
+		table.put(1, "a");
+		table.put(2, "b");
+
+		Iterator<SimpleHashtable.TableEntry<Integer, String>> it = table.iterator();
+		SimpleHashtable.TableEntry<Integer, String> entry = it.next();
+		table.put(entry.getKey(), "changed");
+		entry.setValue("set");
+		assertEquals("set", table.get(entry.getKey()));
+		assertTrue(it.hasNext());
+		it.next();
+		assertFalse(it.hasNext());
+	}
+
+	/**
+	 * Key with a chosen hash code, so keys can be made to collide.
+	 */
+	private static class Key {
+
+		private final int id;
+		private final int hash;
+
+		Key(int id, int hash) {
+			this.id = id;
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && ((Key) obj).id == id && ((Key) obj).hash == hash;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SimpleHashtableTest {
+
+	SimpleHashtable<Integer, Integer> table;
+
+	@BeforeEach
+	void initTable() {
+		table = new SimpleHashtable<>(2);
+		for (int i = 0; i < 10_000; i++) {
+			table.put(i, -i);
+		}
+	}
+
+	@Test
+	void testStreamFollowsIterator() {
+		ArrayList<Integer> expected = new ArrayList<>();
+		for (SimpleHashtable.TableEntry<Integer, Integer> entry : table) {
+			expected.add(entry.getKey());
+		}
+		assertEquals(expected, table.stream().map(entry -> entry.getKey()).collect(Collectors.toList()));
+	}
+
+	@Test
+	void testParallelStreamVisitsEveryEntryOnce() {
+		Set<Integer> keys = table.parallelStream().map(entry -> entry.getKey()).collect(Collectors.toSet());
+		assertEquals(10_000, keys.size());
+		assertEquals(10_000, table.parallelStream().count());
+		assertEquals(-49_995_000L, table.parallelStream().mapToLong(entry -> entry.getValue()).sum());
+	}
+
+	@Test
+	void testSplitsCoverAllEntries() {
+		Spliterator<SimpleHashtable.TableEntry<Integer, Integer>> whole = table.spliterator();
+		assertEquals(10_000, whole.estimateSize());
+		assertTrue(whole.hasCharacteristics(Spliterator.SIZED));
+
+		Set<Integer> keys = new HashSet<>();
+		collect(whole, keys, 0);
+		assertEquals(10_000, keys.size());
+	}
+
+	@Test
+	void testEmptyTable() {
+		SimpleHashtable<Integer, Integer> empty = new SimpleHashtable<>();
+		assertEquals(0, empty.stream().count());
+		assertEquals(0, empty.parallelStream().count());
+		assertFalse(empty.spliterator().tryAdvance(entry -> fail()));
+	}
+
+	@Test
+	void testStreamConcurrentModification() {
+		assertThrows(ConcurrentModificationException.class,
+				() -> table.stream().forEach(entry -> table.put(-entry.getKey() - 1, 0)));
+
+		Spliterator<SimpleHashtable.TableEntry<Integer, Integer>> spliterator = table.spliterator();
+		assertTrue(spliterator.tryAdvance(entry -> {}));
+		table.remove(0);
+		assertThrows(ConcurrentModificationException.class, () -> spliterator.tryAdvance(entry -> {}));
+	}
+
+	/**
+	 * Splits the spliterator a few times and adds the keys of all traversed entries, checking that none repeats.
+	 */
+	private static void collect(Spliterator<SimpleHashtable.TableEntry<Integer, Integer>> spliterator, Set<Integer> keys, int depth) {
+		Spliterator<SimpleHashtable.TableEntry<Integer, Integer>> prefix = depth < 6 ? spliterator.trySplit() : null;
+		if (prefix != null) {
+			assertTrue(prefix.estimateSize() <= 10_000);
+			collect(prefix, keys, depth + 1);
+			collect(spliterator, keys, depth + 1);
+			return;
+		}
+		if (spliterator.tryAdvance(entry -> assertTrue(keys.add(entry.getKey())))) {
+			spliterator.forEachRemaining(entry -> assertTrue(keys.add(entry.getKey())));
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package hr.fer.zemris.java.custom.collections;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -7,71 +8,98 @@ import java.util.Objects;
  * Every key and every value is an object. In any one Dictionary object, every key is associated with at most one value.
  * Given a Dictionary and a key, the associated element can be looked up.
  * Any non-null object can be used as a key, but value can be null.
- * 
+ * <p>
+ * Records are kept in a hash table, so looking up, adding and removing a record takes constant time on average.
+ * Keys, values and hashes of the keys are kept in parallel arrays and collisions are resolved by Robin Hood
+ * linear probing, which keeps the probe sequences short. The table is doubled once it is three quarters full.
+ * The probing follows <code>OpenAddressingHashtable</code> of the previous homework, which this project doesn't depend on.
+ *
  * @author stipe
  *
  * @param <K> type of key in <code>Dictionary</code>
  * @param <V> type of value in <code>Dictionary</code>
  */
 public class Dictionary<K, V> {
-	
+
+	/**
+	 * default capacity of the table
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * keys of the records, or null in empty slots
+	 */
+	private Object[] keys;
+	/**
+	 * values of the records
+	 */
+	private Object[] values;
 	/**
-	 * list of every <code>Record</code> in dictionary
+	 * spread hash codes of the keys, or 0 in empty slots
 	 */
-	private ArrayIndexedCollection<Record<K, V>> collection;
-	
+	private int[] hashes;
+	/**
+	 * number of records in dictionary
+	 */
+	private int size;
+
 	/**
 	 * Constructor.
 	 */
 	public Dictionary() {
-		collection = new ArrayIndexedCollection<>();
+		allocate(DEFAULT_CAPACITY);
 	}
-	
+
 	/**
 	 * Method that checks if the dictionary is empty.
-	 * 
+	 *
 	 * @return <code>true</code> if dictionary contains no objects and <code>false</code> otherwise
 	 */
 	public boolean isEmpty() {
-		return collection.isEmpty();
+		return size == 0;
 	}
-	
+
 	/**
 	 * Method that determines the number of currently stored elements in this dictionary.
-	 * 
+	 *
 	 * @return int value of the number of currently stored element
 	 */
 	public int size() {
-		return collection.size();
+		return size;
 	}
-	
+
 	/**
 	 * Removes all elements from this dictionary.
 	 */
 	public void clear() {
-		collection.clear();
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		Arrays.fill(hashes, 0);
+		size = 0;
 	}
-	
+
 	/**
-	 * Adds a new <code>Record</code> with the given <code>key</code> and <code>value</code> into the dictionary.
+	 * Adds a new record with the given <code>key</code> and <code>value</code> into the dictionary.
 	 * If the given key already has a value, it is overwritten with the new one.
-	 * 
-	 * @param key new <code>Record</code>'s key
-	 * @param value new <code>Record</code>'s value
+	 *
+	 * @param key new record's key
+	 * @param value new record's value
 	 * @throws NullPointerException if the given key is null
 	 */
 	public void put(K key, V value) {
-		ElementsGetter<Record<K, V>> getter = collection.createElementsGetter();
-		while (getter.hasNextElement()) {
-			Record<K, V> record = getter.getNextElement();
-			if (record.key.equals(key)) {
-				record.value = value;
-				return;
-			}
+		int hash = spread(Objects.requireNonNull(key));
+		int index = find(key, hash);
+		if (index >= 0) {
+			values[index] = value;
+			return;
+		}
+
+		insert(key, value, hash);
+		if (++size > keys.length / 4 * 3) {
+			rehash();
 		}
-		collection.add(new Record<K, V>(key, value));
 	}
-	
+
 	/**
 	 * Returns the value mapped to the given key.
 	 * The value returned is null in cases when the key isn't in the dictionary or if it is present but its value is null.
@@ -79,45 +107,152 @@ public class Dictionary<K, V> {
 	 * @param key key to which the value is mapped
 	 * @return the value which is mapped to the given key, or null if the key isnt present in the dictionary
 	 */
+	@SuppressWarnings("unchecked")
 	public V get(Object key) {
-		ElementsGetter<Record<K, V>> getter = collection.createElementsGetter();
-		while (getter.hasNextElement()) {
-			Record<K, V> record = getter.getNextElement();
-			if (record.key.equals(key)) {
-				return record.value;
+		if (key == null) {
+			return null;
+		}
+		int index = find(key, spread(key));
+		return index >= 0 ? (V) values[index] : null;
+	}
+
+	/**
+	 * Removes the record with the given key.
+	 *
+	 * @param key key of the record to be removed
+	 * @return the value which was mapped to the given key, or null if the key isnt present in the dictionary
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		if (key == null) {
+			return null;
+		}
+		int index = find(key, spread(key));
+		if (index < 0) {
+			return null;
+		}
+
+		V value = (V) values[index];
+		// Following records which aren't in their home slots are shifted back, so no probe sequence is broken.
+		int mask = keys.length - 1;
+		int next = (index + 1) & mask;
+		while (hashes[next] != 0 && distance(next, hashes[next]) > 0) {
+			keys[index] = keys[next];
+			values[index] = values[next];
+			hashes[index] = hashes[next];
+			index = next;
+			next = (next + 1) & mask;
+		}
+		keys[index] = null;
+		values[index] = null;
+		hashes[index] = 0;
+		size--;
+		return value;
+	}
+
+	/**
+	 * Creates empty arrays of the given length.
+	 *
+	 * @param length length of the table, a power of 2
+	 */
+	private void allocate(int length) {
+		keys = new Object[length];
+		values = new Object[length];
+		hashes = new int[length];
+	}
+
+	/**
+	 * Returns the hash code of the given key with the higher bits mixed into the lower ones, which select the slot.
+	 * The highest bit is always set, so the hash is told apart from an empty slot.
+	 *
+	 * @param key key
+	 * @return spread hash code
+	 */
+	private static int spread(Object key) {
+		int hash = key.hashCode();
+		return hash ^ (hash >>> 16) | Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Returns the distance of the slot at the given index from the home slot of the given hash.
+	 *
+	 * @param index index of the slot
+	 * @param hash spread hash code
+	 * @return probe distance
+	 */
+	private int distance(int index, int hash) {
+		return (index - hash) & (keys.length - 1);
+	}
+
+	/**
+	 * Finds the slot of the given key. The search stops at an empty slot or at a key which is closer
+	 * to its home slot than the given key would be, as the given key would have taken its slot.
+	 *
+	 * @param key key
+	 * @param hash spread hash code of the key
+	 * @return index of the slot, or -1 if the key isn't present
+	 */
+	private int find(Object key, int hash) {
+		int mask = keys.length - 1;
+		for (int index = hash & mask, distance = 0; ; index = (index + 1) & mask, distance++) {
+			int candidate = hashes[index];
+			if (candidate == 0 || distance(index, candidate) < distance) {
+				return -1;
+			}
+			if (candidate == hash && keys[index].equals(key)) {
+				return index;
 			}
 		}
-		return null;
 	}
-	
+
 	/**
-	 * Class <code>Record</code> represents one record or entry in <code>Dictionary</code>.
-	 * 
-	 * @author stipe
+	 * Inserts a record whose key isn't present. Every record on the way which is closer to its
+	 * home slot is displaced by the inserted one and is inserted further on in its place.
 	 *
-	 * @param <K> type of key in <code>Record</code>
-	 * @param <V> type of value in <code>Record</code>
-	 */
-	private static class Record<K, V> {
-		/**
-		 * the record's key
-		 */
-		private K key;
-		/**
-		 * the record's value
-		 */
-		private V value;
-		
-		/**
-		 * Constructor which creates a new instance of <code>Record</code> with the given key and value.
-		 * 
-		 * @param key key of newly created <code>Record</code>
-		 * @param value value of newly created <code>Record</code>
-		 */
-		private Record(K key, V value) {
-			this.key = Objects.requireNonNull(key);
-			this.value = value;
-		}		
+	 * @param key key
+	 * @param value value
+	 * @param hash spread hash code of the key
+	 */
+	private void insert(Object key, Object value, int hash) {
+		int mask = keys.length - 1;
+		for (int index = hash & mask, distance = 0; ; index = (index + 1) & mask, distance++) {
+			if (hashes[index] == 0) {
+				keys[index] = key;
+				values[index] = value;
+				hashes[index] = hash;
+				return;
+			}
+
+			int residentDistance = distance(index, hashes[index]);
+			if (residentDistance < distance) {
+				Object residentKey = keys[index];
+				Object residentValue = values[index];
+				int residentHash = hashes[index];
+				keys[index] = key;
+				values[index] = value;
+				hashes[index] = hash;
+				key = residentKey;
+				value = residentValue;
+				hash = residentHash;
+				distance = residentDistance;
+			}
+		}
+	}
+
+	/**
+	 * Doubles the table. Records are inserted using their stored hashes, without comparing any keys.
+	 */
+	private void rehash() {
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldHashes = hashes;
+		allocate(oldKeys.length * 2);
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldHashes[i] != 0) {
+				insert(oldKeys[i], oldValues[i], oldHashes[i]);
+			}
+		}
 	}
 
 }
@@ -0,0 +1,93 @@
+package hr.fer.zemris.java.custom.collections.demo;
+
+import hr.fer.zemris.java.custom.collections.Dictionary;
+
+/**
+ * Benchmark of a {@link Dictionary} with 10 thousand up to 10 million records, showing that the time
+ * of an operation doesn't grow with the number of records. For every size a dictionary is filled,
+ * all keys are looked up and then removed, and the time per operation is printed for each of those.
+ * Smaller sizes are repeated, so every size is measured over roughly the same number of operations.
+ * Keys are distinct and boxed beforehand, so their allocation isn't measured.
+ * <p>
+ * Argument (optional): largest size, which is 10 million by default and needs about 1 GB of heap.
+ *
+ * @author stipe
+ *
+ */
+public class DictionaryBenchmark {
+
+	/**
+	 * Number of operations of every kind measured for every size.
+	 */
+	private static final int OPERATIONS = 10_000_000;
+
+	/**
+	 * Main method.
+	 *
+	 * @param args arguments
+	 */
+	public static void main(String[] args) {
+		int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+		Integer[] keys = new Integer[maxSize];
+		for (int i = 0; i < maxSize; i++) {
+			// Multiplying by an odd number scatters the keys without repeating any of them.
+			keys[i] = i * 0x9E3779B1;
+		}
+
+		// Warms up the JIT compiler.
+		for (int i = 0; i < 20; i++) {
+			run(keys, Math.min(maxSize, 100_000), 1);
+		}
+
+		System.out.printf("%12s %10s %10s %10s%n", "records", "put ns", "get ns", "remove ns");
+		for (int size = 10_000; size <= maxSize; size *= 10) {
+			int rounds = Math.max(1, OPERATIONS / size);
+			long[] times = run(keys, size, rounds);
+			double operations = (double) size * rounds;
+			System.out.printf("%12d %10.1f %10.1f %10.1f%n", size, times[0] / operations,
+					times[1] / operations, times[2] / operations);
+		}
+	}
+
+	/**
+	 * Fills a new dictionary with the given number of keys, looks all of them up and removes them,
+	 * in the given number of rounds.
+	 *
+	 * @param keys keys
+	 * @param size number of used keys
+	 * @param rounds number of rounds
+	 * @return total times in nanoseconds of filling, looking up and removing
+	 */
+	private static long[] run(Integer[] keys, int size, int rounds) {
+		long[] times = new long[3];
+		long sum = 0;
+		for (int round = 0; round < rounds; round++) {
+			Dictionary<Integer, Integer> dictionary = new Dictionary<>();
+			long start = System.nanoTime();
+			for (int i = 0; i < size; i++) {
+				dictionary.put(keys[i], keys[i]);
+			}
+			long filled = System.nanoTime();
+			for (int i = 0; i < size; i++) {
+				sum += dictionary.get(keys[i]);
+			}
+			long looked = System.nanoTime();
+			for (int i = 0; i < size; i++) {
+				dictionary.remove(keys[i]);
+			}
+			long removed = System.nanoTime();
+
+			if (!dictionary.isEmpty()) {
+				System.out.println("Unexpected result!");
+			}
+			times[0] += filled - start;
+			times[1] += looked - filled;
+			times[2] += removed - looked;
+		}
+		if (sum == 42) {
+			System.out.println("Unexpected result!");
+		}
+		return times;
+	}
+}
@@ -0,0 +1,45 @@
+package hr.fer.zemris.java.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DictionaryTest {
+
+	Dictionary<String, Integer> grades;
+	
+	@BeforeEach
+	void initDictionary() {
+		grades = new Dictionary<>();
+	}
+
+	@Test
+	void testRemove() {
+		grades.put("Belle", 5);
+		grades.put("Jasmine", 4);
+		assertEquals(5, grades.remove("Belle"));
+		assertEquals(null, grades.get("Belle"));
+		assertEquals(4, grades.get("Jasmine"));
+		assertEquals(1, grades.size());
+		assertEquals(null, grades.remove("Belle"));
+		assertEquals(null, grades.remove(null));
+		assertEquals(1, grades.size());
+	}
+
+	@Test
+	void testManyRecords() {
+		Dictionary<Integer, Integer> squares = new Dictionary<>();
+		for (int i = -5000; i < 5000; i++) {
+			squares.put(i * 64, i * i);
+		}
+		assertEquals(10000, squares.size());
+		for (int i = -5000; i < 5000; i += 2) {
+			assertEquals(i * i, squares.remove(i * 64));
+		}
+		assertEquals(5000, squares.size());
+		for (int i = -5000; i < 5000; i++) {
+			assertEquals(i % 2 == 0 ? null : Integer.valueOf(i * i), squares.get(i * 64));
+		}
+	}
+}
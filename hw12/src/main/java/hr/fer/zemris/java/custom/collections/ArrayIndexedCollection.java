@@ -271,10 +271,10 @@ public class ArrayIndexedCollection implements List{
 	 */
 	public void remove(int index) {
 		checkIndexValidity(index);
-		for (int i = index; i < size; i++) {
+		for (int i = index; i < size - 1; i++) {
 			elements[i] = elements[i + 1];
 		}
-		size--;
+		elements[--size] = null;
 		modificationCount++;
 	}
 	
@@ -0,0 +1,112 @@
+package hr.fer.zemris.java.custom.scripting.demo;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import hr.fer.zemris.java.custom.scripting.nodes.DocumentNode;
+import hr.fer.zemris.java.custom.scripting.parser.SmartScriptParser;
+
+/**
+ * Benchmark of parsing a large template from a file. Reading the whole file into
+ * a {@code String} before parsing it is compared with parsing it straight from a
+ * {@code Reader}, which the lexer reads through a sliding window. For both, the time
+ * and the number of bytes allocated per parse are printed, which includes the parsed
+ * tree itself.
+ * <p>
+ * Arguments (optional): size of the generated template in kilobytes.
+ *
+ * @author stipe
+ *
+ */
+public class SmartScriptParserBenchmark {
+
+	/**
+	 * Fragment of which the template is made.
+	 */
+	private static final String FRAGMENT = "<p>Some text of a rather large template, "
+			+ "{$= \"value\" $} and a loop:</p>\r\n{$ FOR i 1 3 1 $}<li>{$= i $}</li>{$END$}\r\n";
+
+	/**
+	 * Main method.
+	 *
+	 * @param args arguments
+	 * @throws IOException if the template couldn't be written or read
+	 */
+	public static void main(String[] args) throws IOException {
+		int kilobytes = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+		Path template = Files.createTempFile("template", ".smscr");
+		try {
+			StringBuilder sb = new StringBuilder(kilobytes * 1024 + FRAGMENT.length());
+			while (sb.length() < kilobytes * 1024) {
+				sb.append(FRAGMENT);
+			}
+			Files.writeString(template, sb);
+			sb = null;
+
+			for (int i = 0; i < 5; i++) {
+				parseString(template);
+				parseReader(template);
+			}
+			System.out.printf("%-10s %10s %14s%n", "input", "ms", "allocated MB");
+			measure("String", template, true);
+			measure("Reader", template, false);
+		} finally {
+			Files.delete(template);
+		}
+	}
+
+	/**
+	 * Parses the template once and prints the time and the allocated bytes.
+	 *
+	 * @param name name of the input
+	 * @param template template file
+	 * @param string whether the template is read into a string first
+	 * @throws IOException if the template couldn't be read
+	 */
+	private static void measure(String name, Path template, boolean string) throws IOException {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocations = bean instanceof com.sun.management.ThreadMXBean
+				? (com.sun.management.ThreadMXBean) bean : null;
+		long id = Thread.currentThread().getId();
+
+		long bytesBefore = allocations == null ? 0 : allocations.getThreadAllocatedBytes(id);
+		long start = System.nanoTime();
+		DocumentNode document = string ? parseString(template) : parseReader(template);
+		long time = System.nanoTime() - start;
+		long bytesAfter = allocations == null ? 0 : allocations.getThreadAllocatedBytes(id);
+
+		System.out.printf("%-10s %10.1f %14.1f   (%d nodes)%n", name, time / 1e6,
+				(bytesAfter - bytesBefore) / 1e6, document.numberOfChildren());
+	}
+
+	/**
+	 * Parses the template read into a string.
+	 *
+	 * @param template template file
+	 * @return parsed document
+	 * @throws IOException if the template couldn't be read
+	 */
+	private static DocumentNode parseString(Path template) throws IOException {
+		String body = new String(Files.readAllBytes(template), StandardCharsets.UTF_8);
+		return new SmartScriptParser(body).getDocumentNode();
+	}
+
+	/**
+	 * Parses the template while it is read.
+	 *
+	 * @param template template file
+	 * @return parsed document
+	 * @throws IOException if the template couldn't be read
+	 */
+	private static DocumentNode parseReader(Path template) throws IOException {
+		try (Reader reader = new InputStreamReader(Files.newInputStream(template), StandardCharsets.UTF_8)) {
+			return new SmartScriptParser(reader).getDocumentNode();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package hr.fer.zemris.java.custom.scripting.exec;
+
+import java.text.DecimalFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cache of {@link DecimalFormat}s per pattern, used by the {@code @decfmt} function.
+ * Formats aren't thread-safe, so every pattern has a few slots from which a format is
+ * borrowed for a single call and then returned. Once the formats of a pattern have been
+ * created, formatting doesn't create any of them again. Only a limited number of patterns
+ * is cached, as patterns may come from request parameters.
+ *
+ * @author stipe
+ *
+ */
+final class DecimalFormats {
+
+	/**
+	 * Maximum number of cached patterns.
+	 */
+	private static final int MAX_PATTERNS = 256;
+	/**
+	 * Number of formats kept per pattern, a power of two.
+	 */
+	private static final int SLOTS = 8;
+	/**
+	 * Slots with formats, per pattern.
+	 */
+	private static final ConcurrentMap<String, AtomicReferenceArray<DecimalFormat>> FORMATS =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor.
+	 */
+	private DecimalFormats() {
+	}
+
+	/**
+	 * Formats the given number with the given pattern.
+	 *
+	 * @param pattern pattern of the format
+	 * @param number text of the number
+	 * @return formatted number
+	 * @throws IllegalArgumentException if the pattern is invalid
+	 * @throws NumberFormatException if the number is invalid
+	 */
+	static String format(String pattern, String number) {
+		AtomicReferenceArray<DecimalFormat> slots = FORMATS.get(pattern);
+		if (slots == null) {
+			// Creating the format first also checks the pattern, so invalid ones aren't cached.
+			DecimalFormat format = new DecimalFormat(pattern);
+			if (FORMATS.size() >= MAX_PATTERNS) {
+				return format.format(Double.parseDouble(number));
+			}
+			slots = FORMATS.computeIfAbsent(pattern, p -> new AtomicReferenceArray<>(SLOTS));
+			return format(slots, format, number);
+		}
+
+		int first = (int) Thread.currentThread().getId();
+		for (int i = 0; i < SLOTS; i++) {
+			DecimalFormat format = slots.getAndSet((first + i) & (SLOTS - 1), null);
+			if (format != null) {
+				return format(slots, format, number);
+			}
+		}
+		return format(slots, new DecimalFormat(pattern), number);
+	}
+
+	/**
+	 * Formats the given number with the given format and returns the format to a free slot.
+	 * If there is none, the format is dropped.
+	 *
+	 * @param slots slots of the pattern
+	 * @param format borrowed format
+	 * @param number text of the number
+	 * @return formatted number
+	 */
+	private static String format(AtomicReferenceArray<DecimalFormat> slots, DecimalFormat format,
+			String number) {
+		try {
+			return format.format(Double.parseDouble(number));
+		} finally {
+			int first = (int) Thread.currentThread().getId();
+			for (int i = 0; i < SLOTS; i++) {
+				if (slots.compareAndSet((first + i) & (SLOTS - 1), null, format)) {
+					break;
+				}
+			}
+		}
+	}
+}
@@ -22,7 +22,7 @@ public class ObjectMultistack {
 	/**
 	 * Map which maps stacks of {@code ValueWrapper} objects to {@code String} keys.
 	 */
-	private Map<String, MultistackEntry> map;
+	private Map<String, Slot> map;
 	
 	/**
 	 * Constructor which initializes the map.
@@ -31,6 +31,19 @@ public class ObjectMultistack {
 		 map = new HashMap<>();
 	}
 
+	/**
+	 * Returns the stack mapped to the given key, creating an empty one if necessary.
+	 * The slot can be used in place of the key, which saves the lookup in the map
+	 * when the same stack is accessed repeatedly.
+	 * 
+	 * @param keyName key of {@link #map}
+	 * @return the stack mapped to the given key
+	 * @throws NullPointerException if the given key is null
+	 */
+	public Slot slot(String keyName) {
+		return map.computeIfAbsent(Util.requireNonNull(keyName, "Key"), k -> new Slot());
+	}
+
 	/**
 	 * Adds a new {@code ValueWrapper} object to the stack mapped to the given
 	 * {@code String} key.
@@ -40,11 +53,19 @@ public class ObjectMultistack {
 	 * @throws NullPointerException if given key or value are null
 	 */
 	public void push(String keyName, ValueWrapper value) {
-		MultistackEntry entry = new MultistackEntry(
-				Util.requireNonNull(value, "Value"),
-				map.get(Util.requireNonNull(keyName, "Key")));
-		
-		map.put(keyName, entry);
+		Util.requireNonNull(value, "Value");
+		push(slot(keyName), value);
+	}
+
+	/**
+	 * Adds a new {@code ValueWrapper} object to the given stack.
+	 * 
+	 * @param slot stack obtained by {@link #slot(String)}
+	 * @param value value to be added
+	 * @throws NullPointerException if the given value is null
+	 */
+	public void push(Slot slot, ValueWrapper value) {
+		slot.top = new MultistackEntry(Util.requireNonNull(value, "Value"), slot.top);
 	}
 
 	/**
@@ -56,14 +77,23 @@ public class ObjectMultistack {
 	 * @throws EmptyStackException if the stack mapped to that string is empty
 	 */
 	public ValueWrapper pop(String keyName) {
-		MultistackEntry entry = peekEntry(Util.requireNonNull(keyName, "Key"));
-		
-		if (entry.next == null) {
-			map.remove(keyName);
-		} else {
-			map.put(keyName, entry.next);			
+		return pop(peekSlot(Util.requireNonNull(keyName, "Key")));
+	}
+
+	/**
+	 * Removes the top-most object from the given stack.
+	 * 
+	 * @param slot stack obtained by {@link #slot(String)}
+	 * @return the removed {@code ValueWrapper}
+	 * @throws EmptyStackException if the stack is empty
+	 */
+	public ValueWrapper pop(Slot slot) {
+		MultistackEntry entry = slot.top;
+		if (entry == null) {
+			throw new EmptyStackException();
 		}
 		
+		slot.top = entry.next;
 		return entry.value;
 	}
 
@@ -76,24 +106,38 @@ public class ObjectMultistack {
 	 * @throws EmptyStackException if the stack mapped to that string is empty 
 	 */
 	public ValueWrapper peek(String keyName) {
-		return peekEntry(keyName).value;
+		return peek(peekSlot(keyName));
+	}
+
+	/**
+	 * Returns the top-most object from the given stack without removing it.
+	 * 
+	 * @param slot stack obtained by {@link #slot(String)}
+	 * @return the top-most {@code ValueWrapper}
+	 * @throws EmptyStackException if the stack is empty
+	 */
+	public ValueWrapper peek(Slot slot) {
+		if (slot.top == null) {
+			throw new EmptyStackException();
+		}
+		
+		return slot.top.value;
 	}
 
 	/**
-	 * Returns the stack entry containing the top-most value
-	 * mapped to the stack with the given key, without removing
-	 * the object from the stack.
+	 * Returns the stack mapped to the given key.
 	 * 
 	 * @param keyName the key to which the stack is mapped to
-	 * @return the {@code MultistackEntry} containing the top-most {@code ValueWrapper}
-	 * @throws EmptyStackException if the stack mapped to that string is empty 
+	 * @return the stack
+	 * @throws EmptyStackException if there is no stack mapped to that string
 	 */
-	private MultistackEntry peekEntry(String keyName) {
-		if (!map.containsKey(keyName)) {
+	private Slot peekSlot(String keyName) {
+		Slot slot = map.get(keyName);
+		if (slot == null) {
 			throw new EmptyStackException();
 		}
 		
-		return map.get(keyName);
+		return slot;
 	}
 
 	/**
@@ -103,7 +147,39 @@ public class ObjectMultistack {
 	 * @return {@code true} if the stack is empty, {@code false} if not
 	 */
 	public boolean isEmpty(String keyName) {
-		return map.get(keyName) == null;
+		Slot slot = map.get(keyName);
+		return slot == null || isEmpty(slot);
+	}
+
+	/**
+	 * Checks if the given stack is empty.
+	 * 
+	 * @param slot stack obtained by {@link #slot(String)}
+	 * @return {@code true} if the stack is empty, {@code false} if not
+	 */
+	public boolean isEmpty(Slot slot) {
+		return slot.top == null;
+	}
+
+	/**
+	 * Stack of values mapped to a single key. Slots are obtained by
+	 * {@link ObjectMultistack#slot(String)} and remain valid for the lifetime
+	 * of the multistack, even while they are empty.
+	 * 
+	 * @author stipe
+	 *
+	 */
+	public static final class Slot {
+		/**
+		 * The top-most stack entry.
+		 */
+		private MultistackEntry top;
+
+		/**
+		 * Constructor.
+		 */
+		private Slot() {
+		}
 	}
 
 	/**
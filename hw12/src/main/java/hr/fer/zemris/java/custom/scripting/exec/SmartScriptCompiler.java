@@ -0,0 +1,622 @@
+package hr.fer.zemris.java.custom.scripting.exec;
+
+import static hr.fer.zemris.java.custom.scripting.exec.SmartScriptProgram.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import hr.fer.zemris.java.custom.scripting.elems.Element;
+import hr.fer.zemris.java.custom.scripting.elems.ElementConstantDouble;
+import hr.fer.zemris.java.custom.scripting.elems.ElementConstantInteger;
+import hr.fer.zemris.java.custom.scripting.elems.ElementFunction;
+import hr.fer.zemris.java.custom.scripting.elems.ElementOperator;
+import hr.fer.zemris.java.custom.scripting.elems.ElementString;
+import hr.fer.zemris.java.custom.scripting.elems.ElementVariable;
+import hr.fer.zemris.java.custom.scripting.nodes.DocumentNode;
+import hr.fer.zemris.java.custom.scripting.nodes.EchoNode;
+import hr.fer.zemris.java.custom.scripting.nodes.ForLoopNode;
+import hr.fer.zemris.java.custom.scripting.nodes.INodeVisitor;
+import hr.fer.zemris.java.custom.scripting.nodes.Node;
+import hr.fer.zemris.java.custom.scripting.nodes.TextNode;
+
+/**
+ * Compiler of document trees into {@link SmartScriptProgram}s. Element types, operators
+ * and functions are resolved once, during compilation, into opcodes, and all constants
+ * are collected into a constant pool, so the interpreter only has to switch over integers.
+ * <p>
+ * The compiled program produces exactly the same output as {@link SmartScriptEngine}.
+ * Unknown operators and functions are compiled into instructions which fail once they
+ * are reached, just like the engine does.
+ * <p>
+ * Consecutive static fragments, which are text nodes and echoes of constants only,
+ * are coalesced into a single text instruction. Texts are kept as {@link TextNode}s,
+ * which encode their text once per charset. Operations and functions upon constants
+ * only are folded, so an echo which always writes the same text is static as well,
+ * and values which don't change in a loop are cached instead of being computed
+ * in every iteration.
+ *
+ * @author stipe
+ *
+ */
+public class SmartScriptCompiler {
+
+	/**
+	 * Opcodes of the supported operators.
+	 */
+	private static final Map<String, Integer> OPERATORS = new HashMap<>();
+	/**
+	 * Opcodes of the supported functions.
+	 */
+	private static final Map<String, Integer> FUNCTIONS = new HashMap<>();
+
+	static {
+		OPERATORS.put("+", ADD);
+		OPERATORS.put("-", SUB);
+		OPERATORS.put("*", MUL);
+		OPERATORS.put("/", DIV);
+
+		FUNCTIONS.put("@sin", SIN);
+		FUNCTIONS.put("@decfmt", DECFMT);
+		FUNCTIONS.put("@dup", DUP);
+		FUNCTIONS.put("@swap", SWAP);
+		FUNCTIONS.put("@setMimeType", SET_MIME_TYPE);
+		FUNCTIONS.put("@paramGet", PARAM_GET);
+		FUNCTIONS.put("@pparamGet", PPARAM_GET);
+		FUNCTIONS.put("@pparamSet", PPARAM_SET);
+		FUNCTIONS.put("@pparamDel", PPARAM_DEL);
+		FUNCTIONS.put("@tparamGet", TPARAM_GET);
+		FUNCTIONS.put("@tparamSet", TPARAM_SET);
+		FUNCTIONS.put("@tparamDel", TPARAM_DEL);
+	}
+
+	/**
+	 * Instructions.
+	 */
+	private int[] code = new int[64];
+	/**
+	 * Number of used elements of {@link #code}.
+	 */
+	private int size;
+	/**
+	 * Constant pool.
+	 */
+	private List<Object> constants = new ArrayList<>();
+	/**
+	 * Indexes of the constants in the pool.
+	 */
+	private Map<Object, Integer> constantIndexes = new HashMap<>();
+	/**
+	 * Depth of the operand stack after the last compiled instruction.
+	 */
+	private int depth;
+	/**
+	 * Maximum depth of the operand stack.
+	 */
+	private int maxStack;
+	/**
+	 * Static text which hasn't been emitted yet.
+	 */
+	private StringBuilder text = new StringBuilder();
+	/**
+	 * Node holding the pending text if it comes from a single node, which is then reused.
+	 */
+	private TextNode textNode;
+	/**
+	 * Variables of the loops enclosing the compiled node, from the outermost one.
+	 */
+	private List<String> loops = new ArrayList<>();
+	/**
+	 * Caches of values which are invariant in the loops enclosing the compiled node.
+	 */
+	private List<List<Integer>> loopCaches = new ArrayList<>();
+	/**
+	 * Number of caches.
+	 */
+	private int caches;
+
+	/**
+	 * Constructor.
+	 */
+	private SmartScriptCompiler() {
+	}
+
+	/**
+	 * Compiles the given document.
+	 *
+	 * @param document document tree
+	 * @return compiled program
+	 */
+	public static SmartScriptProgram compile(DocumentNode document) {
+		SmartScriptCompiler compiler = new SmartScriptCompiler();
+		document.accept(compiler.visitor);
+		compiler.emit(HALT);
+		return new SmartScriptProgram(Arrays.copyOf(compiler.code, compiler.size),
+				compiler.constants.toArray(), compiler.maxStack, compiler.caches);
+	}
+
+	/**
+	 * Visitor which emits the instructions of the visited nodes.
+	 */
+	private INodeVisitor visitor = new INodeVisitor() {
+
+		@Override
+		public void visitTextNode(TextNode node) {
+			if (!node.getText().isEmpty()) {
+				textNode = text.length() == 0 ? node : null;
+				text.append(node.getText());
+			}
+		}
+
+		@Override
+		public void visitForLoopNode(ForLoopNode node) {
+			int variable = constant(node.getVariable().asText());
+			int start = constant(node.getStartExpression().asText());
+			int end = constant(number(node.getEndExpression().asText()));
+			int step = constant(step(node.getStepExpression()));
+
+			emit(FOR_INIT, variable, start, step);
+			int test = size;
+			emit(FOR_TEST, variable, end, -1);
+			loops.add(node.getVariable().asText());
+			loopCaches.add(new ArrayList<>());
+			visitChildren(node);
+			emit(FOR_STEP, variable, step, test);
+			// Loop exit is known only once the body has been compiled.
+			code[test + 3] = size;
+			emit(FOR_END, variable);
+			// Values cached in the body may depend on outer loops, so they are computed again
+			// when the loop is entered the next time.
+			for (int cache : loopCaches.remove(loopCaches.size() - 1)) {
+				emit(CACHE_CLEAR, cache);
+			}
+			loops.remove(loops.size() - 1);
+		}
+
+		@Override
+		public void visitEchoNode(EchoNode node) {
+			compileEcho(node);
+		}
+
+		@Override
+		public void visitDocumentNode(DocumentNode node) {
+			visitChildren(node);
+		}
+
+		/**
+		 * Visits all children of the given node.
+		 *
+		 * @param node node
+		 */
+		private void visitChildren(Node node) {
+			for (int i = 0, n = node.numberOfChildren(); i < n; i++) {
+				node.getChild(i).accept(this);
+			}
+		}
+	};
+
+	/**
+	 * Returns the step of a loop as an integer, or as text if it isn't an integer,
+	 * in which case the loop fails once it is reached.
+	 *
+	 * @param stepExpression step expression, may be null
+	 * @return step
+	 */
+	private static Object step(Element stepExpression) {
+		if (stepExpression == null) {
+			return 1;
+		}
+		try {
+			return Integer.parseInt(stepExpression.asText());
+		} catch (NumberFormatException e) {
+			return stepExpression.asText();
+		}
+	}
+
+	/**
+	 * Returns the given text as a number, so that it is parsed only once, or as text
+	 * if it isn't a number, in which case the loop fails once it is reached.
+	 *
+	 * @param text text
+	 * @return number or text
+	 */
+	private static Object number(String text) {
+		Object number = ValueWrapper.parseNumber(text);
+		return number == null ? text : number;
+	}
+
+	/**
+	 * Compiles the given echo. Operations upon constants only are performed during
+	 * compilation, so an echo of constants only becomes static text. Values which depend
+	 * on constants and on variables of outer loops only are cached, so they are computed
+	 * once per execution of the outermost loop in which they don't change.
+	 *
+	 * @param node echo node
+	 */
+	private void compileEcho(EchoNode node) {
+		List<Operand> operands = new ArrayList<>();
+
+		for (Element element : node.getElements()) {
+			if (element == null) {
+				break;
+			}
+
+			if (element instanceof ElementConstantDouble
+					|| element instanceof ElementConstantInteger
+					|| element instanceof ElementString) {
+				operands.add(new Operand(element.asText()));
+
+			} else if (element instanceof ElementVariable) {
+				materialize(operands);
+				Operand operand = new Operand(size);
+				operand.level = loops.lastIndexOf(element.asText());
+				// A variable of no enclosing loop fails once it is reached.
+				operand.pure = operand.level >= 0;
+				append(PUSH_VAR, constant(element.asText()));
+				stack(1);
+				operands.add(operand);
+
+			} else if (element instanceof ElementOperator) {
+				Integer opcode = OPERATORS.get(element.asText());
+				if (opcode == null) {
+					operation(operands, 0, 0, false, INVALID_OPERATOR, constant(element.asText()));
+				} else if (!fold(operands, opcode)) {
+					operation(operands, 2, 1, true, opcode);
+				}
+
+			} else if (element instanceof ElementFunction) {
+				Integer opcode = FUNCTIONS.get(element.asText());
+				if (opcode == null) {
+					operation(operands, 0, 0, false, INVALID_FUNCTION, constant(element.asText()));
+				} else if (!fold(operands, opcode)) {
+					compileFunction(operands, opcode);
+				}
+			}
+		}
+
+		boolean dynamic = false;
+		for (Operand operand : operands) {
+			dynamic |= !operand.pending;
+		}
+		cache(operands, false, -1);
+		if (dynamic) {
+			append(ECHO);
+		}
+		depth = 0;
+
+		// Folded values on top of the stack are written after the others, as static text.
+		for (Operand operand : operands) {
+			if (operand.pending) {
+				text.append(operand.value);
+				textNode = null;
+			}
+		}
+	}
+
+	/**
+	 * Compiles the function with the given opcode.
+	 *
+	 * @param operands operands of the echo
+	 * @param opcode opcode of the function
+	 */
+	private void compileFunction(List<Operand> operands, int opcode) {
+		switch (opcode) {
+		case SIN:
+			operation(operands, 1, 1, true, opcode);
+			break;
+		case DECFMT:
+			operation(operands, 2, 1, true, opcode);
+			break;
+		case DUP:
+			operation(operands, 1, 2, true, opcode);
+			break;
+		case SWAP:
+			operation(operands, 2, 2, true, opcode);
+			break;
+		case PARAM_GET:
+		case PPARAM_GET:
+		case TPARAM_GET:
+			operation(operands, 2, 1, false, opcode);
+			break;
+		case PPARAM_SET:
+		case TPARAM_SET:
+			operation(operands, 2, 0, false, opcode);
+			break;
+		default:
+			// Setting the mime type and deleting parameters.
+			operation(operands, 1, 0, false, opcode);
+			break;
+		}
+	}
+
+	/**
+	 * Performs the operation or the function with the given opcode during compilation,
+	 * if its operands are constants which haven't been emitted.
+	 *
+	 * @param operands operands of the echo
+	 * @param opcode opcode of the operation or the function
+	 * @return true if the operation has been folded
+	 */
+	private static boolean fold(List<Operand> operands, int opcode) {
+		int n = operands.size();
+		Operand top = n > 0 && operands.get(n - 1).pending ? operands.get(n - 1) : null;
+		Operand below = top != null && n > 1 && operands.get(n - 2).pending ? operands.get(n - 2) : null;
+		if (top == null) {
+			return false;
+		}
+
+		try {
+			switch (opcode) {
+			case ADD:
+			case SUB:
+			case MUL:
+			case DIV:
+				if (below == null) {
+					return false;
+				}
+				below.value = SmartScriptInterpreter.operate(opcode, new ValueWrapper(below.value), top.value);
+				operands.remove(n - 1);
+				return true;
+			case SIN:
+				top.value = SmartScriptInterpreter.sin(top.value);
+				return true;
+			case DECFMT:
+				if (below == null) {
+					return false;
+				}
+				below.value = DecimalFormats.format(top.value.toString(), below.value.toString());
+				operands.remove(n - 1);
+				return true;
+			case DUP:
+				operands.add(new Operand(top.value));
+				return true;
+			case SWAP:
+				if (below == null) {
+					return false;
+				}
+				Object value = top.value;
+				top.value = below.value;
+				below.value = value;
+				return true;
+			default:
+				return false;
+			}
+		} catch (RuntimeException e) {
+			// Operations which fail are left to fail once they are reached.
+			return false;
+		}
+	}
+
+	/**
+	 * Emits the given instruction of an operation or a function, which replaces the given
+	 * number of top-most operands with the given number of results. Operands which are
+	 * invariant in some enclosing loop, but whose result is not, are cached first.
+	 *
+	 * @param operands operands of the echo
+	 * @param arity number of consumed operands
+	 * @param results number of results
+	 * @param pure whether the result depends on its operands only
+	 * @param instruction opcode followed by operands
+	 */
+	private void operation(List<Operand> operands, int arity, int results, boolean pure,
+			int... instruction) {
+		materialize(operands);
+		int n = operands.size();
+		if (n < arity) {
+			// The script fails once it reaches this instruction.
+			append(instruction);
+			stack(results - arity);
+			operands.clear();
+			return;
+		}
+
+		List<Operand> consumed = operands.subList(n - arity, n);
+		boolean pureResult = pure && results == 1;
+		int level = -1;
+		for (Operand operand : consumed) {
+			pureResult &= operand.pure;
+			level = Math.max(level, operand.level);
+		}
+		cache(consumed, pureResult, level);
+		int start = arity == 0 ? size : consumed.get(0).start;
+		consumed.clear();
+		if (results == 0 && !operands.isEmpty()) {
+			// The instruction follows the instructions of the operand below, which can't be cached anymore.
+			operands.get(operands.size() - 1).pure = false;
+		}
+
+		int position = size;
+		append(instruction);
+		stack(results - arity);
+		for (int i = 0; i < results; i++) {
+			Operand result = new Operand(i == 0 ? start : position);
+			result.pure = pureResult;
+			result.level = level;
+			result.computed = true;
+			operands.add(result);
+		}
+	}
+
+	/**
+	 * Emits the pending text and the constants which haven't been emitted yet.
+	 *
+	 * @param operands operands of the echo
+	 */
+	private void materialize(List<Operand> operands) {
+		flush();
+		for (Operand operand : operands) {
+			if (operand.pending) {
+				operand.start = size;
+				operand.pending = false;
+				append(PUSH_CONST, constant(operand.value));
+				stack(1);
+			}
+		}
+	}
+
+	/**
+	 * Caches the values of the given emitted operands which are computed by an operation
+	 * and are invariant in the innermost enclosing loop, unless the given result of
+	 * the operands is invariant in the same loops, as it is then cached instead.
+	 * A value is computed when it is first needed, and cleared once the outermost loop
+	 * in which it is invariant is left.
+	 *
+	 * @param operands operands, from the bottom up
+	 * @param pure whether the result is computed from constants and loop variables only
+	 * @param level index of the innermost loop whose variable the result depends on
+	 */
+	private void cache(List<Operand> operands, boolean pure, int level) {
+		// Instructions are inserted, so the following operands are moved.
+		int shift = 0;
+		for (int i = 0, n = operands.size(); i < n; i++) {
+			Operand operand = operands.get(i);
+			if (operand.pending) {
+				break;
+			}
+			operand.start += shift;
+			int end = i + 1 < n && !operands.get(i + 1).pending ? operands.get(i + 1).start + shift : size;
+
+			int loop = operand.level + 1;
+			if ((pure && level == operand.level) || !operand.pure || !operand.computed
+					|| loop >= loops.size()) {
+				continue;
+			}
+			// The jump is relative, as caches of enclosing values may be inserted before it.
+			int cache = caches++;
+			insert(end, CACHE_STORE, cache);
+			insert(operand.start, CACHED_LOAD, cache, end + 2 - operand.start);
+			loopCaches.get(loop).add(cache);
+			shift += 5;
+		}
+	}
+
+	/**
+	 * Value on the operand stack while an echo is being compiled.
+	 */
+	private static class Operand {
+		/**
+		 * Value of a constant, which is emitted only once it is needed.
+		 */
+		Object value;
+		/**
+		 * Flag showing whether the operand is a constant which hasn't been emitted.
+		 */
+		boolean pending;
+		/**
+		 * Position of the first instruction computing the operand.
+		 */
+		int start;
+		/**
+		 * Index of the innermost loop whose variable the operand depends on, or -1.
+		 */
+		int level = -1;
+		/**
+		 * Flag showing whether the operand is computed by its own instructions,
+		 * from constants and loop variables only.
+		 */
+		boolean pure = true;
+		/**
+		 * Flag showing whether computing the operand involves an operation.
+		 */
+		boolean computed;
+
+		/**
+		 * Constructor of a constant operand.
+		 *
+		 * @param value value
+		 */
+		Operand(Object value) {
+			this.value = value;
+			this.pending = true;
+		}
+
+		/**
+		 * Constructor of an emitted operand.
+		 *
+		 * @param start {@link #start}
+		 */
+		Operand(int start) {
+			this.start = start;
+		}
+	}
+
+	/**
+	 * Tracks the depth of the operand stack. A negative depth means the script
+	 * fails at that point, so the depth is not allowed to fall below zero.
+	 *
+	 * @param change change of the depth
+	 */
+	private void stack(int change) {
+		depth = Math.max(0, depth + change);
+		maxStack = Math.max(maxStack, depth);
+	}
+
+	/**
+	 * Returns the index of the given constant, adding it to the pool if necessary.
+	 *
+	 * @param value constant
+	 * @return index in the constant pool
+	 */
+	private int constant(Object value) {
+		Integer index = constantIndexes.get(value);
+		if (index == null) {
+			index = constants.size();
+			constants.add(value);
+			constantIndexes.put(value, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Appends the given opcode and operands, preceded by the pending static text.
+	 *
+	 * @param values opcode followed by operands
+	 */
+	private void emit(int... values) {
+		flush();
+		append(values);
+	}
+
+	/**
+	 * Emits the pending static text.
+	 */
+	private void flush() {
+		if (text.length() > 0) {
+			TextNode node = textNode != null ? textNode : new TextNode(text.toString());
+			text.setLength(0);
+			textNode = null;
+			// Nodes aren't looked up in the pool, as their equality isn't defined by their text.
+			append(TEXT, constants.size());
+			constants.add(node);
+		}
+	}
+
+	/**
+	 * Appends the given opcode and operands.
+	 *
+	 * @param values opcode followed by operands
+	 */
+	private void append(int... values) {
+		if (size + values.length > code.length) {
+			code = Arrays.copyOf(code, Math.max(2 * code.length, size + values.length));
+		}
+		System.arraycopy(values, 0, code, size, values.length);
+		size += values.length;
+	}
+
+	/**
+	 * Inserts the given opcode and operands at the given position, moving the
+	 * following instructions.
+	 *
+	 * @param position position of the inserted instruction
+	 * @param values opcode followed by operands
+	 */
+	private void insert(int position, int... values) {
+		int tail = size - position;
+		append(values);
+		System.arraycopy(code, position, code, position + values.length, tail);
+		System.arraycopy(values, 0, code, position, values.length);
+	}
+}
@@ -1,7 +1,6 @@
 package hr.fer.zemris.java.custom.scripting.exec;
 
 import java.io.IOException;
-import java.text.DecimalFormat;
 import java.util.Stack;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -44,7 +43,7 @@ public class SmartScriptEngine {
 		public void visitTextNode(TextNode node) {
 			try {
 				String text = node.getText();
-				if (!text.equals("")) requestContext.write(text);
+				if (!text.equals("")) requestContext.writeShared(node.getBytes(requestContext.getCharset()));
 			} catch (IOException e) {
 				throw new RuntimeException("Couldn't read text node!");
 			}
@@ -52,13 +51,13 @@ public class SmartScriptEngine {
 
 		@Override
 		public void visitForLoopNode(ForLoopNode node) {
-			String variable = node.getVariable().asText();
+			ObjectMultistack.Slot variable = multistack.slot(node.getVariable().asText());
 			String initialValue = node.getStartExpression().asText();
 			multistack.push(variable, new ValueWrapper(initialValue));
 			
-			String endValue = node.getEndExpression().asText();
+			ValueWrapper endValue = new ValueWrapper(node.getEndExpression().asText());
 			Element stepValue = node.getStepExpression();
-			int step = stepValue == null ? 1 : Integer.parseInt(stepValue.asText());
+			Integer step = stepValue == null ? 1 : Integer.parseInt(stepValue.asText());
 			
 			int childrenNumber = node.numberOfChildren();
 			while (multistack.peek(variable).numCompare(endValue) <= 0) {
@@ -201,15 +200,15 @@ public class SmartScriptEngine {
 		}
 
 		/**
-		 * Formats the number with 2 arguments and saves the result on stack..
+		 * Formats the number with 2 arguments and saves the result on stack.
+		 * Formats are shared per pattern, see {@link DecimalFormats}.
 		 * 
 		 * @param tempStack stack with operands
 		 */
 		private void formatNumber(Stack<Object> tempStack) {
 			String f = tempStack.pop().toString();
 			String x = tempStack.pop().toString();
-			DecimalFormat decfmt = new DecimalFormat(f);
-			tempStack.push(decfmt.format(Double.parseDouble(x)));
+			tempStack.push(DecimalFormats.format(f, x));
 		}
 
 		/**
@@ -0,0 +1,436 @@
+package hr.fer.zemris.java.custom.scripting.exec;
+
+import static hr.fer.zemris.java.custom.scripting.exec.SmartScriptProgram.*;
+
+import java.io.IOException;
+import java.util.EmptyStackException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import hr.fer.zemris.java.custom.scripting.nodes.TextNode;
+import hr.fer.zemris.java.webserver.RequestContext;
+
+/**
+ * Interpreter of compiled smart scripts. The operand stack is a single array sized by
+ * the compiler, and loop variables are kept in an {@link ObjectMultistack},
+ * just like in {@link SmartScriptEngine}. Values which the compiler found to be loop
+ * invariant are computed once per execution of the loop and kept in caches.
+ *
+ * @author stipe
+ *
+ */
+public class SmartScriptInterpreter {
+
+	/**
+	 * Program to be executed.
+	 */
+	private SmartScriptProgram program;
+	/**
+	 * Context of the script.
+	 */
+	private RequestContext requestContext;
+	/**
+	 * Stack of loop variables.
+	 */
+	private ObjectMultistack multistack = new ObjectMultistack();
+	/**
+	 * Stacks of loop variables, indexed by the constant holding the name of the variable.
+	 * Slots are resolved once, when the variable is first accessed.
+	 */
+	private ObjectMultistack.Slot[] slots;
+	/**
+	 * Wrapper reused for all arithmetic operations.
+	 */
+	private ValueWrapper operand = new ValueWrapper(null);
+	/**
+	 * Operand stack.
+	 */
+	private Object[] stack;
+	/**
+	 * Number of values on the operand stack.
+	 */
+	private int sp;
+	/**
+	 * Cached loop invariant values, null until they are computed.
+	 */
+	private Object[] caches;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param program {@link #program}
+	 * @param requestContext {@link #requestContext}
+	 */
+	public SmartScriptInterpreter(SmartScriptProgram program, RequestContext requestContext) {
+		this.program = program;
+		this.requestContext = requestContext;
+		this.stack = new Object[program.maxStack];
+		this.slots = new ObjectMultistack.Slot[program.constants.length];
+		this.caches = new Object[program.caches];
+	}
+
+	/**
+	 * Starts the script processing.
+	 */
+	public void execute() {
+		int[] code = program.code;
+		Object[] constants = program.constants;
+
+		int pc = 0;
+		while (true) {
+			switch (code[pc]) {
+			case HALT:
+				return;
+
+			case TEXT:
+				writeText((TextNode) constants[code[pc + 1]]);
+				pc += 2;
+				break;
+
+			case PUSH_CONST:
+				stack[sp++] = constants[code[pc + 1]];
+				pc += 2;
+				break;
+
+			case PUSH_VAR:
+				stack[sp++] = multistack.peek(slot(code[pc + 1])).getValue();
+				pc += 2;
+				break;
+
+			case ADD:
+			case SUB:
+			case MUL:
+			case DIV:
+				performOperation(code[pc]);
+				pc++;
+				break;
+
+			case INVALID_OPERATOR:
+				if (sp < 2) {
+					throw new IllegalStateException("Not enough operands for operation!");
+				}
+				throw new UnsupportedOperationException("Invalid operand!");
+
+			case SIN:
+				calculateSin();
+				pc++;
+				break;
+
+			case DECFMT:
+				formatNumber();
+				pc++;
+				break;
+
+			case DUP:
+				push(peek());
+				pc++;
+				break;
+
+			case SWAP:
+				Object a = pop();
+				Object b = pop();
+				push(a);
+				push(b);
+				pc++;
+				break;
+
+			case SET_MIME_TYPE:
+				requestContext.setMimeType((String) pop());
+				pc++;
+				break;
+
+			case PARAM_GET:
+				parameterGet(requestContext::getParameter);
+				pc++;
+				break;
+
+			case PPARAM_GET:
+				parameterGet(requestContext::getPersistentParameter);
+				pc++;
+				break;
+
+			case PPARAM_SET:
+				parameterSet(requestContext::setPersistentParameter);
+				pc++;
+				break;
+
+			case PPARAM_DEL:
+				parameterDelete(requestContext::removePersistentParameter);
+				pc++;
+				break;
+
+			case TPARAM_GET:
+				parameterGet(requestContext::getTemporaryParameter);
+				pc++;
+				break;
+
+			case TPARAM_SET:
+				parameterSet(requestContext::setTemporaryParameter);
+				pc++;
+				break;
+
+			case TPARAM_DEL:
+				parameterDelete(requestContext::removeTemporaryParameter);
+				pc++;
+				break;
+
+			case INVALID_FUNCTION:
+				throw new UnsupportedOperationException("Invalid function!");
+
+			case ECHO:
+				writeStack();
+				pc++;
+				break;
+
+			case FOR_INIT:
+				multistack.push(slot(code[pc + 1]), new ValueWrapper(constants[code[pc + 2]]));
+				step(constants[code[pc + 3]]);
+				pc += 4;
+				break;
+
+			case FOR_TEST:
+				if (multistack.peek(slot(code[pc + 1])).numCompare(constants[code[pc + 2]]) > 0) {
+					pc = code[pc + 3];
+				} else {
+					pc += 4;
+				}
+				break;
+
+			case FOR_STEP:
+				multistack.peek(slot(code[pc + 1])).add(constants[code[pc + 2]]);
+				pc = code[pc + 3];
+				break;
+
+			case FOR_END:
+				multistack.pop(slot(code[pc + 1]));
+				pc += 2;
+				break;
+
+			case CACHED_LOAD:
+				Object cached = caches[code[pc + 1]];
+				if (cached != null) {
+					stack[sp++] = cached;
+					pc += 3 + code[pc + 2];
+				} else {
+					pc += 3;
+				}
+				break;
+
+			case CACHE_STORE:
+				caches[code[pc + 1]] = stack[sp - 1];
+				pc += 2;
+				break;
+
+			case CACHE_CLEAR:
+				caches[code[pc + 1]] = null;
+				pc += 2;
+				break;
+
+			default:
+				throw new IllegalStateException("Invalid opcode " + code[pc] + " at " + pc + "!");
+			}
+		}
+	}
+
+	/**
+	 * Replaces the two top-most values with the result of the given operation.
+	 *
+	 * @param opcode opcode of the operation
+	 */
+	private void performOperation(int opcode) {
+		if (sp < 2) {
+			throw new IllegalStateException("Not enough operands for operation!");
+		}
+		Object second = pop();
+		operand.setValue(stack[sp - 1]);
+		stack[sp - 1] = operate(opcode, operand, second);
+	}
+
+	/**
+	 * Performs the given operation upon the value of the given wrapper, which is changed.
+	 * Used by the compiler as well, to fold operations upon constants.
+	 *
+	 * @param opcode opcode of the operation
+	 * @param first first operand
+	 * @param second second operand
+	 * @return result of the operation
+	 * @throws RuntimeException if a value is illegal for operations
+	 */
+	static Object operate(int opcode, ValueWrapper first, Object second) {
+		switch (opcode) {
+		case ADD:
+			first.add(second);
+			break;
+		case SUB:
+			first.subtract(second);
+			break;
+		case MUL:
+			first.multiply(second);
+			break;
+		default:
+			first.divide(second);
+			break;
+		}
+		return first.getValue();
+	}
+
+	/**
+	 * Returns the stack of the loop variable whose name is the given constant.
+	 *
+	 * @param name index of the constant holding the name of the variable
+	 * @return stack of the variable
+	 */
+	private ObjectMultistack.Slot slot(int name) {
+		ObjectMultistack.Slot slot = slots[name];
+		if (slot == null) {
+			slot = multistack.slot((String) program.constants[name]);
+			slots[name] = slot;
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns the step of a loop.
+	 *
+	 * @param step step constant
+	 * @return step
+	 * @throws NumberFormatException if the step isn't an integer
+	 */
+	private static int step(Object step) {
+		return step instanceof Integer ? (Integer) step : Integer.parseInt((String) step);
+	}
+
+	/**
+	 * Pushes the given value.
+	 *
+	 * @param value value
+	 */
+	private void push(Object value) {
+		stack[sp++] = value;
+	}
+
+	/**
+	 * Pops the top-most value.
+	 *
+	 * @return value
+	 * @throws EmptyStackException if the stack is empty
+	 */
+	private Object pop() {
+		if (sp == 0) {
+			throw new EmptyStackException();
+		}
+		Object value = stack[--sp];
+		stack[sp] = null;
+		return value;
+	}
+
+	/**
+	 * Returns the top-most value.
+	 *
+	 * @return value
+	 * @throws EmptyStackException if the stack is empty
+	 */
+	private Object peek() {
+		if (sp == 0) {
+			throw new EmptyStackException();
+		}
+		return stack[sp - 1];
+	}
+
+	/**
+	 * Calculates sine.
+	 */
+	private void calculateSin() {
+		push(sin(pop()));
+	}
+
+	/**
+	 * Returns the sine of the given value in degrees.
+	 * Used by the compiler as well, to fold functions of constants.
+	 *
+	 * @param value value
+	 * @return sine
+	 */
+	static Double sin(Object value) {
+		double x = 0d;
+		if (value instanceof String) {
+			x = Double.parseDouble((String) value);
+		} else if (value instanceof Integer) {
+			x = ((Integer) value).intValue();
+		} else {
+			x = (Double) value;
+		}
+		return Math.sin(Math.toRadians(x));
+	}
+
+	/**
+	 * Formats the number with 2 arguments and saves the result on stack.
+	 * Formats are shared per pattern, see {@link DecimalFormats}.
+	 */
+	private void formatNumber() {
+		String f = pop().toString();
+		String x = pop().toString();
+		push(DecimalFormats.format(f, x));
+	}
+
+	/**
+	 * Deletes a parameter.
+	 *
+	 * @param deleter consumer defining which map is to be deleted from
+	 */
+	private void parameterDelete(Consumer<String> deleter) {
+		deleter.accept((String) pop());
+	}
+
+	/**
+	 * Sets a parameter.
+	 *
+	 * @param setter consumer defining where the parameter is going to be set to
+	 */
+	private void parameterSet(BiConsumer<String, String> setter) {
+		String name = pop().toString();
+		String value = pop().toString();
+		setter.accept(name, value);
+	}
+
+	/**
+	 * Gets a parameter.
+	 *
+	 * @param fun function defining which parameter is to be gotten from
+	 */
+	private void parameterGet(Function<String, String> fun) {
+		Object pDefValue = pop();
+		String pName = (String) pop();
+		String pValue = fun.apply(pName);
+		push(pValue == null ? pDefValue : pValue);
+	}
+
+	/**
+	 * Writes the given text, which is encoded only once per charset.
+	 *
+	 * @param text text
+	 */
+	private void writeText(TextNode text) {
+		try {
+			requestContext.writeShared(text.getBytes(requestContext.getCharset()));
+		} catch (IOException e) {
+			throw new RuntimeException("Couldn't read text node!");
+		}
+	}
+
+	/**
+	 * Writes all values on the stack, from the bottom up, and clears the stack.
+	 */
+	private void writeStack() {
+		try {
+			for (int i = 0; i < sp; i++) {
+				requestContext.write(stack[i].toString());
+				stack[i] = null;
+			}
+			sp = 0;
+		} catch (IOException e) {
+			throw new RuntimeException("Couldn't write results!");
+		}
+	}
+}
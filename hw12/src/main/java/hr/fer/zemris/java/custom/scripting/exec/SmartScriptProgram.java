@@ -0,0 +1,160 @@
+package hr.fer.zemris.java.custom.scripting.exec;
+
+/**
+ * Class representing a compiled smart script. The program is a flat array of
+ * instructions, each consisting of an opcode followed by its operands, which refer to
+ * the constant pool or to other instructions. A program is immutable and can be
+ * executed by any number of threads at once.
+ *
+ * @author stipe
+ * @see SmartScriptCompiler
+ * @see SmartScriptInterpreter
+ *
+ */
+public class SmartScriptProgram {
+
+	/** Stops the program. */
+	static final int HALT = 0;
+	/** Writes the text constant given by the operand. */
+	static final int TEXT = 1;
+	/** Pushes the constant given by the operand. */
+	static final int PUSH_CONST = 2;
+	/** Pushes the value of the variable whose name is given by the operand. */
+	static final int PUSH_VAR = 3;
+	/** Replaces the two top-most values with their sum. */
+	static final int ADD = 4;
+	/** Replaces the two top-most values with their difference. */
+	static final int SUB = 5;
+	/** Replaces the two top-most values with their product. */
+	static final int MUL = 6;
+	/** Replaces the two top-most values with their quotient. */
+	static final int DIV = 7;
+	/** Fails as an unknown operator, whose symbol is given by the operand. */
+	static final int INVALID_OPERATOR = 8;
+	/** Replaces the top-most value with its sine. */
+	static final int SIN = 9;
+	/** Formats a number with a format. */
+	static final int DECFMT = 10;
+	/** Duplicates the top-most value. */
+	static final int DUP = 11;
+	/** Swaps the two top-most values. */
+	static final int SWAP = 12;
+	/** Sets the mime type of the response. */
+	static final int SET_MIME_TYPE = 13;
+	/** Pushes a parameter or a default value. */
+	static final int PARAM_GET = 14;
+	/** Pushes a persistent parameter or a default value. */
+	static final int PPARAM_GET = 15;
+	/** Sets a persistent parameter. */
+	static final int PPARAM_SET = 16;
+	/** Deletes a persistent parameter. */
+	static final int PPARAM_DEL = 17;
+	/** Pushes a temporary parameter or a default value. */
+	static final int TPARAM_GET = 18;
+	/** Sets a temporary parameter. */
+	static final int TPARAM_SET = 19;
+	/** Deletes a temporary parameter. */
+	static final int TPARAM_DEL = 20;
+	/** Fails as an unknown function, whose name is given by the operand. */
+	static final int INVALID_FUNCTION = 21;
+	/** Writes all values on the stack, from the bottom up, and clears the stack. */
+	static final int ECHO = 22;
+	/** Pushes a new loop variable. Operands: variable name, start value and step. */
+	static final int FOR_INIT = 23;
+	/** Jumps if the loop variable is greater than the end. Operands: variable name, end value and target. */
+	static final int FOR_TEST = 24;
+	/** Increments the loop variable and jumps. Operands: variable name, step and target. */
+	static final int FOR_STEP = 25;
+	/** Pops the loop variable. Operand: variable name. */
+	static final int FOR_END = 26;
+	/**
+	 * Pushes a cached value, if it has been computed, and skips the instructions computing it.
+	 * Operands: cache and the length of the skipped instructions.
+	 */
+	static final int CACHED_LOAD = 27;
+	/** Caches the top-most value. Operand: cache. */
+	static final int CACHE_STORE = 28;
+	/** Clears a cached value. Operand: cache. */
+	static final int CACHE_CLEAR = 29;
+
+	/**
+	 * Instructions.
+	 */
+	final int[] code;
+	/**
+	 * Constant pool.
+	 */
+	final Object[] constants;
+	/**
+	 * Maximum depth of the operand stack.
+	 */
+	final int maxStack;
+	/**
+	 * Number of caches of loop invariant values.
+	 */
+	final int caches;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param code {@link #code}
+	 * @param constants {@link #constants}
+	 * @param maxStack {@link #maxStack}
+	 * @param caches {@link #caches}
+	 */
+	SmartScriptProgram(int[] code, Object[] constants, int maxStack, int caches) {
+		this.code = code;
+		this.constants = constants;
+		this.maxStack = maxStack;
+		this.caches = caches;
+	}
+
+	/**
+	 * Returns the number of operands of the given opcode.
+	 *
+	 * @param opcode opcode
+	 * @return number of operands
+	 */
+	static int operandCount(int opcode) {
+		switch (opcode) {
+		case TEXT:
+		case PUSH_CONST:
+		case PUSH_VAR:
+		case INVALID_OPERATOR:
+		case INVALID_FUNCTION:
+		case FOR_END:
+		case CACHE_STORE:
+		case CACHE_CLEAR:
+			return 1;
+		case CACHED_LOAD:
+			return 2;
+		case FOR_INIT:
+		case FOR_TEST:
+		case FOR_STEP:
+			return 3;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns a readable listing of the instructions, used for debugging.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int pc = 0; pc < code.length; ) {
+			int opcode = code[pc];
+			sb.append(String.format("%4d %3d", pc, opcode));
+			for (int i = 1, n = operandCount(opcode); i <= n; i++) {
+				sb.append(' ').append(code[pc + i]);
+			}
+			sb.append('\n');
+			pc += 1 + operandCount(opcode);
+		}
+		for (int i = 0; i < constants.length; i++) {
+			sb.append(String.format("#%d = %s%n", i, constants[i]));
+		}
+		return sb.toString();
+	}
+}
@@ -1,11 +1,12 @@
 package hr.fer.zemris.java.custom.scripting.exec;
 
-import java.util.function.BiFunction;
-
 /**
  * Class {@code ValueWrapper} represents a wrapper of any Object value.
  * If the value is of a type that allows it, {@code ValueWrapper} can be
  * used to perform some arithmetic operations or comparisons.
+ * <p>
+ * The numeric form of the value is kept unboxed, so a textual value is parsed only
+ * once and results of operations are boxed only when the value is requested.
  * 
  * @author stipe
  *
@@ -13,9 +14,26 @@ import java.util.function.BiFunction;
 public class ValueWrapper {
 
 	/**
-	 * The wrapped value.
+	 * The wrapped value. While {@link #boxed} is false, the current value
+	 * is held only by {@link #number}.
 	 */
 	private Object value;
+	/**
+	 * Flag showing whether {@link #value} holds the current value.
+	 */
+	private boolean boxed = true;
+	/**
+	 * Flag showing whether {@link #number} and {@link #integer} describe the current value.
+	 */
+	private boolean resolved;
+	/**
+	 * Numeric form of the current value.
+	 */
+	private double number;
+	/**
+	 * Flag showing whether the current value is an integer.
+	 */
+	private boolean integer;
 	
 	/**
 	 * Constructor which accepts the value object.
@@ -35,7 +53,8 @@ public class ValueWrapper {
 	 * @throws RuntimeException if the value is illegal for operations
 	 */
 	public void add(Object incValue) {
-		performOperation(incValue, (f,s) -> f + s);
+		resolve();
+		setResult(number + toNumber(incValue), isInteger(incValue));
 	}
 
 	/**
@@ -47,7 +66,8 @@ public class ValueWrapper {
 	 * @throws RuntimeException if the value is illegal for operations
 	 */
 	public void subtract(Object decValue) {
-		performOperation(decValue, (f,s) -> f - s);
+		resolve();
+		setResult(number - toNumber(decValue), isInteger(decValue));
 	}
 	
 	/**
@@ -59,7 +79,8 @@ public class ValueWrapper {
 	 * @throws RuntimeException if the value is illegal for operations
 	 */
 	public void multiply(Object mulValue) {
-		performOperation(mulValue, (f,s) -> f * s);
+		resolve();
+		setResult(number * toNumber(mulValue), isInteger(mulValue));
 	}
 	
 	/**
@@ -71,7 +92,8 @@ public class ValueWrapper {
 	 * @throws RuntimeException if the value is illegal for operations
 	 */
 	public void divide(Object divValue) {
-		performOperation(divValue, (f,s) -> f / s);
+		resolve();
+		setResult(number / toNumber(divValue), isInteger(divValue));
 	}
 	
 	/**
@@ -84,124 +106,131 @@ public class ValueWrapper {
 	 * @throws RuntimeException if the value is illegal for operations
 	 */
 	public int numCompare(Object otherValue) {
-		return Double.compare(transformValue(value).value, transformValue(otherValue).value);
+		resolve();
+		return Double.compare(number, toNumber(otherValue));
 	}
 
 	/**
-	 * Performs the operation given as a function parameter upon the wrapped 
-	 * value and the value given as parameter.
+	 * Compares this {@code ValueWrapper} value to the value of the given wrapper,
+	 * each of which is converted to a number only once.
 	 * 
-	 * @param other the second operand
-	 * @param function the operation to be performed
-	 * @throws RuntimeException if the value is illegal for operations
+	 * @param other the wrapper with whose value the wrapped value is compared to
+	 * @return {@code -1} if the given value is greater, {@code 1} if the
+	 * wrapped value is greater, and {@code 0} if they are equal
+	 * @throws RuntimeException if a value is illegal for operations
 	 */
-	// Using Double type in function as it's easy to transform it into an Integer if necessary.
-	private void performOperation(Object other, BiFunction<Double, Double, Double> function) {
-		ValueAndType oldValue = transformValue(value);
-		ValueAndType otherValue = transformValue(other);
-		
-		value = getResult(oldValue, otherValue, function.apply(oldValue.value, otherValue.value));
+	public int numCompare(ValueWrapper other) {
+		resolve();
+		other.resolve();
+		return Double.compare(number, other.number);
 	}
 
 	/**
-	 * Checks if the type of the given value is legal for arithmetic operations.
+	 * Converts the given text to a number the same way textual operands are converted.
 	 * 
-	 * @param value value to be checked
-	 * @throws RuntimeException if the value is illegal for operations
+	 * @param text text
+	 * @return {@code Integer} or {@code Double} value of the text, or null if the text isn't a number
 	 */
-	private void checkValueType(Object value) {
-		if (!(value instanceof Integer || value instanceof Double
-			  || value instanceof String || value == null)) {
-			throw new RuntimeException("Illegal value type!");
+	public static Object parseNumber(String text) {
+		try {
+			return isDecimal(text) ? (Object) Double.parseDouble(text) : (Object) Integer.parseInt(text);
+		} catch (NumberFormatException ex) {
+			return null;
 		}
 	}
-	
+
 	/**
-	 * Transforms the given object to a value with which arithmetic operations
-	 * can be performed.
+	 * Converts the wrapped value into its numeric form, unless it has already been converted.
 	 * 
-	 * @param object the object to be transformed
-	 * @return {@code ValueAndType} object containing the transformed value
-	 * and the value type
 	 * @throws RuntimeException if the value is illegal for operations
 	 */
-	private ValueAndType transformValue(Object object) {
-		checkValueType(object);
-		
-		if (object == null) {
-			return new ValueAndType(0, Integer.class);
-		
-		} else if (object instanceof String) {
-			// String must be specially processed.
-			return transformString((String) object);
-		
-		} else if (object instanceof Integer) {
-			// Integer is deboxed to int because Integer can't be converted to double, but int can.
-			return new ValueAndType((int) object, Integer.class);
+	private void resolve() {
+		if (!resolved) {
+			integer = isInteger(value);
+			number = toNumber(value);
+			resolved = true;
 		}
-		
-		return new ValueAndType((double) object, Double.class);
 	}
-	
+
+	/**
+	 * Stores the result of an operation. The result is an integer only if both operands are
+	 * integers. It is kept in its numeric form and boxed only once {@link #getValue()} is called.
+	 * 
+	 * @param result the result of the operation
+	 * @param otherInteger whether the other operand is an integer
+	 */
+	private void setResult(double result, boolean otherInteger) {
+		integer = integer && otherInteger;
+		number = integer ? (int) result : result;
+		boxed = false;
+	}
+
 	/**
-	 * Transforms the String to a suited value by parsing.
+	 * Checks whether the given value is treated as an integer.
 	 * 
-	 * @param string string containing a value
-	 * @return {@code ValueAndType} object containing the transformed value
-	 * and the value type
+	 * @param value value to be checked
+	 * @return true for integers and null, false for decimal numbers
 	 * @throws RuntimeException if the value is illegal for operations
 	 */
-	private ValueAndType transformString(String string) {
-		try {				
-			if (string.contains(".") || string.toLowerCase().contains("e")) {
-				return new ValueAndType(Double.parseDouble(string), Double.class);
-			}
-			return new ValueAndType(Integer.parseInt(string), Integer.class);
-		
-		} catch (NumberFormatException ex) {	
-			throw new RuntimeException("Illegal number format in string value.");
+	private static boolean isInteger(Object value) {
+		if (value == null || value instanceof Integer) {
+			return true;
+		} else if (value instanceof Double) {
+			return false;
+		} else if (value instanceof String) {
+			return !isDecimal((String) value);
 		}
+		throw new RuntimeException("Illegal value type!");
 	}
 
 	/**
-	 * Returns the result of the operation as the correct type of value.
-	 * The type is corrected using the types of the given operands.
+	 * Transforms the given object to a value with which arithmetic operations
+	 * can be performed. Null values are transformed to 0.
 	 * 
-	 * @param oldValue first operand
-	 * @param otherValue second operand
-	 * @param result the result of the operation
-	 * @return the result, but it's type is corrected if needed
+	 * @param value the object to be transformed
+	 * @return numeric value
+	 * @throws RuntimeException if the value is illegal for operations
 	 */
-	private Object getResult(ValueAndType oldValue, ValueAndType otherValue, double result) {
-		if (oldValue.type.equals(Integer.class) && otherValue.type.equals(Integer.class)) {
-			return (int) result;
+	private static double toNumber(Object value) {
+		if (value == null) {
+			return 0;
+		} else if (value instanceof Integer) {
+			return (Integer) value;
+		} else if (value instanceof Double) {
+			return (Double) value;
+		} else if (value instanceof String) {
+			// String must be specially processed.
+			try {
+				String string = (String) value;
+				return isDecimal(string) ? Double.parseDouble(string) : Integer.parseInt(string);
+			} catch (NumberFormatException ex) {
+				throw new RuntimeException("Illegal number format in string value.");
+			}
 		}
-		return result;
+		throw new RuntimeException("Illegal value type!");
 	}
-	
+
 	/**
-	 * Structure containing a value suited for performing operations and the
-	 * type used for transforming the end result of the operation.
+	 * Checks whether the given text represents a decimal number rather than an integer.
 	 * 
-	 * @author stipe
-	 *
-	 */
-	private static class ValueAndType {
-		double value;
-		Class<? extends Object> type;
-		
-		public ValueAndType(double value, Class<? extends Object> type) {
-			this.value = value;
-			this.type = type;
-		}
+	 * @param string text
+	 * @return true if the text contains a decimal point or an exponent
+	 */
+	private static boolean isDecimal(String string) {
+		return string.indexOf('.') != -1 || string.indexOf('e') != -1 || string.indexOf('E') != -1;
 	}
 
 	/**
-	 * Getter for the wrapped value.
+	 * Getter for the wrapped value. Results of operations are
+	 * {@code Integer} or {@code Double} objects.
 	 * 
 	 * @return {@link #value}
 	 */
 	public Object getValue() {
+		if (!boxed) {
+			value = integer ? (Object) Integer.valueOf((int) number) : (Object) Double.valueOf(number);
+			boxed = true;
+		}
 		return value;
 	}
 	
@@ -212,6 +241,8 @@ public class ValueWrapper {
 	 */
 	public void setValue(Object value) {
 		this.value = value;
+		boxed = true;
+		resolved = false;
 	}
 	
-}
\ No newline at end of file
+}
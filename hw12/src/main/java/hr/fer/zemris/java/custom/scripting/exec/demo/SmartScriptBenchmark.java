@@ -0,0 +1,225 @@
+package hr.fer.zemris.java.custom.scripting.exec.demo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import hr.fer.zemris.java.custom.scripting.exec.SmartScriptCompiler;
+import hr.fer.zemris.java.custom.scripting.exec.SmartScriptEngine;
+import hr.fer.zemris.java.custom.scripting.exec.SmartScriptInterpreter;
+import hr.fer.zemris.java.custom.scripting.exec.SmartScriptProgram;
+import hr.fer.zemris.java.custom.scripting.nodes.DocumentNode;
+import hr.fer.zemris.java.custom.scripting.parser.SmartScriptParser;
+import hr.fer.zemris.java.webserver.RequestContext;
+
+/**
+ * Benchmark comparing the execution of smart scripts by the tree walking
+ * {@link SmartScriptEngine} with the execution of compiled programs by the
+ * {@link SmartScriptInterpreter}. Before measuring, the outputs of both are
+ * checked to be identical. Then an empty loop is measured, showing the time and
+ * the number of allocated bytes per iteration of the loop. Then, a template which is
+ * mostly static html is measured in the same way, per execution. Finally, nested loops
+ * with expressions of constants and of the variable of the outer loop are measured,
+ * per iteration of the inner loop.
+ * <p>
+ * Arguments (optional): directory with scripts, which is {@code webroot/scripts} by
+ * default, and the number of measured executions of every script.
+ *
+ * @author stipe
+ *
+ */
+public class SmartScriptBenchmark {
+
+	/**
+	 * Script with an empty loop.
+	 */
+	private static final String LOOP = "{$ FOR i 1 1000000 $}{$END$}";
+	/**
+	 * Number of iterations of {@link #LOOP}.
+	 */
+	private static final int LOOP_ITERATIONS = 1_000_000;
+	/**
+	 * Template which is mostly static html.
+	 */
+	private static final String TEMPLATE;
+	/**
+	 * Number of executions of {@link #TEMPLATE}.
+	 */
+	private static final int TEMPLATE_EXECUTIONS = 20_000;
+	/**
+	 * Nested loops with expressions which don't change in the inner loop.
+	 */
+	private static final String EXPRESSIONS = "{$ FOR i 1 10 $}{$ FOR j 1 1000 $}"
+			+ "{$= \"1\" 2 + @sin \"0.000\" @decfmt \" \" i 3 * 0.5 + @sin \"0.00\" @decfmt \" \" j $}"
+			+ "{$END$}{$END$}";
+	/**
+	 * Number of iterations of the inner loop of {@link #EXPRESSIONS}.
+	 */
+	private static final int EXPRESSIONS_ITERATIONS = 10_000;
+
+	static {
+		StringBuilder sb = new StringBuilder("<html><head><title>{$= \"Template\" $}</title></head><body>\r\n");
+		for (int i = 0; i < 40; i++) {
+			sb.append("<div class=\"row\"><p>Static paragraph of the template, which is the same for every request.</p>")
+				.append("<span>{$= \"id\" \" \" ").append(i).append(" $}</span></div>\r\n");
+		}
+		TEMPLATE = sb.append("<p>{$= \"a\" \"0\" @paramGet $}</p></body></html>\r\n").toString();
+	}
+
+	/**
+	 * Main method.
+	 *
+	 * @param args arguments
+	 * @throws IOException if the scripts couldn't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		Path directory = Paths.get(args.length > 0 ? args[0] : "webroot/scripts");
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+		System.out.printf("%-20s %12s %12s %8s%n", "script", "engine ns", "compiled ns", "speedup");
+		try (DirectoryStream<Path> scripts = Files.newDirectoryStream(directory, "*.smscr")) {
+			for (Path script : scripts) {
+				String body = new String(Files.readAllBytes(script), StandardCharsets.UTF_8);
+				DocumentNode document = new SmartScriptParser(body).getDocumentNode();
+				SmartScriptProgram program = SmartScriptCompiler.compile(document);
+
+				byte[] expected = run(document, null, new ByteArrayOutputStream());
+				byte[] actual = run(null, program, new ByteArrayOutputStream());
+				if (!Arrays.equals(expected, actual)) {
+					System.out.println(script.getFileName() + ": outputs differ!");
+					continue;
+				}
+
+				OutputStream sink = OutputStream.nullOutputStream();
+				for (int i = 0; i < iterations / 10; i++) {
+					run(document, null, sink);
+					run(null, program, sink);
+				}
+				long engine = measure(document, null, sink, iterations);
+				long compiled = measure(null, program, sink, iterations);
+
+				System.out.printf("%-20s %12.1f %12.1f %7.2fx%n", script.getFileName(),
+						engine / (double) iterations, compiled / (double) iterations,
+						engine / (double) compiled);
+			}
+		}
+
+		DocumentNode document = new SmartScriptParser(LOOP).getDocumentNode();
+		SmartScriptProgram program = SmartScriptCompiler.compile(document);
+		OutputStream sink = OutputStream.nullOutputStream();
+		for (int i = 0; i < 20; i++) {
+			run(document, null, sink);
+			run(null, program, sink);
+		}
+		System.out.printf("%n%-20s %12s %12s%n", "loop", "ns/iter", "B/iter");
+		measurePerUnit("engine", document, null, sink, 1, LOOP_ITERATIONS);
+		measurePerUnit("compiled", null, program, sink, 1, LOOP_ITERATIONS);
+
+		document = new SmartScriptParser(TEMPLATE).getDocumentNode();
+		program = SmartScriptCompiler.compile(document);
+		for (int i = 0; i < TEMPLATE_EXECUTIONS; i++) {
+			run(document, null, sink);
+			run(null, program, sink);
+		}
+		System.out.printf("%n%-20s %12s %12s%n", "template", "ns/exec", "B/exec");
+		measurePerUnit("engine", document, null, sink, TEMPLATE_EXECUTIONS, TEMPLATE_EXECUTIONS);
+		measurePerUnit("compiled", null, program, sink, TEMPLATE_EXECUTIONS, TEMPLATE_EXECUTIONS);
+
+		document = new SmartScriptParser(EXPRESSIONS).getDocumentNode();
+		program = SmartScriptCompiler.compile(document);
+		if (!Arrays.equals(run(document, null, new ByteArrayOutputStream()),
+				run(null, program, new ByteArrayOutputStream()))) {
+			System.out.println("expressions: outputs differ!");
+		}
+		for (int i = 0; i < 100; i++) {
+			run(document, null, sink);
+			run(null, program, sink);
+		}
+		System.out.printf("%n%-20s %12s %12s%n", "expressions", "ns/iter", "B/iter");
+		measurePerUnit("engine", document, null, sink, 100, 100 * EXPRESSIONS_ITERATIONS);
+		measurePerUnit("compiled", null, program, sink, 100, 100 * EXPRESSIONS_ITERATIONS);
+	}
+
+	/**
+	 * Executes a script and prints the time and the allocated bytes per unit, such as
+	 * an iteration of a loop or an execution of the script.
+	 *
+	 * @param name name of the measured implementation
+	 * @param document document executed by the engine, or null
+	 * @param program program executed by the interpreter, or null
+	 * @param os output stream
+	 * @param executions number of executions
+	 * @param units number of units in all executions
+	 * @throws IOException in case of an I/O error
+	 */
+	private static void measurePerUnit(String name, DocumentNode document, SmartScriptProgram program,
+			OutputStream os, int executions, int units) throws IOException {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocations = bean instanceof com.sun.management.ThreadMXBean
+				? (com.sun.management.ThreadMXBean) bean : null;
+		long id = Thread.currentThread().getId();
+
+		long bytesBefore = allocations == null ? 0 : allocations.getThreadAllocatedBytes(id);
+		long time = measure(document, program, os, executions);
+		long bytesAfter = allocations == null ? 0 : allocations.getThreadAllocatedBytes(id);
+
+		System.out.printf("%-20s %12.2f %12.2f%n", name, time / (double) units,
+				(bytesAfter - bytesBefore) / (double) units);
+	}
+
+	/**
+	 * Measures the given number of executions.
+	 *
+	 * @param document document executed by the engine, or null
+	 * @param program program executed by the interpreter, or null
+	 * @param os output stream
+	 * @param iterations number of executions
+	 * @return elapsed time in nanoseconds
+	 * @throws IOException in case of an I/O error
+	 */
+	private static long measure(DocumentNode document, SmartScriptProgram program, OutputStream os,
+			int iterations) throws IOException {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			run(document, program, os);
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Executes a script once, with a fresh request context.
+	 *
+	 * @param document document executed by the engine, or null
+	 * @param program program executed by the interpreter, or null
+	 * @param os output stream
+	 * @return written bytes if the output stream is a {@link ByteArrayOutputStream}
+	 * @throws IOException in case of an I/O error
+	 */
+	private static byte[] run(DocumentNode document, SmartScriptProgram program, OutputStream os)
+			throws IOException {
+		Map<String, String> parameters = new HashMap<>();
+		parameters.put("a", "4");
+		parameters.put("b", "2");
+		parameters.put("broj", "4");
+		RequestContext context = new RequestContext(os, parameters, new HashMap<>(),
+				new ArrayList<>(), new HashMap<>(), null, null);
+
+		if (document != null) {
+			new SmartScriptEngine(document, context).execute();
+		} else {
+			new SmartScriptInterpreter(program, context).execute();
+		}
+		return os instanceof ByteArrayOutputStream ? ((ByteArrayOutputStream) os).toByteArray() : null;
+	}
+}
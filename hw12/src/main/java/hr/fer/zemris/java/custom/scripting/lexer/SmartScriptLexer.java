@@ -1,12 +1,22 @@
 package hr.fer.zemris.java.custom.scripting.lexer;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
 import java.util.Objects;
 
 
 /**
  * The <code>SmartScriptLexer</code> class represents a system for lexical analysis.
- * <code>SmartScriptLexer</code> gets an input of a document as <code>String</code> and creates a sequence of <code>SmartScriptToken</code>.
+ * <code>SmartScriptLexer</code> gets an input of a document and creates a sequence of <code>SmartScriptToken</code>.
  * <code>SmartScriptLexer</code> has two states that differ in the rules of the analysis.
+ * <p>
+ * A document given as a <code>Reader</code> or a <code>String</code> is read into a sliding window,
+ * so only the characters of the current token, and two before it, are kept in memory.
+ * A <code>CharBuffer</code> backed by an array is tokenized in place.
+ * Words and whitespace of the text are given as <code>CharSequence</code> slices of the window,
+ * which are valid only until the next token is generated.
  * @see hr.fer.zemris.java.hw03.prob1.Token
  *   
  * @author stipe
@@ -14,9 +24,38 @@ import java.util.Objects;
 public class SmartScriptLexer {
 
 	/**
-	 * input as array of characters
+	 * initial size of the sliding window
+	 */
+	private static final int WINDOW_SIZE = 8192;
+	/**
+	 * number of characters before the current token which are kept in the window
+	 */
+	private static final int LOOKBEHIND = 2;
+	/**
+	 * character returned for positions outside of the document
+	 */
+	private static final char NONE = '\0';
+
+	/**
+	 * input as array of characters, which is either the whole document or the sliding window
 	 */
 	private char[] data;
+	/**
+	 * index following the last valid character in <code>data</code>
+	 */
+	private int limit;
+	/**
+	 * index of the first character of the document in <code>data</code>, negative once it has left the window
+	 */
+	private int origin;
+	/**
+	 * index of the first character of the current token
+	 */
+	private int tokenStart;
+	/**
+	 * source of further characters, or null if all of them are in <code>data</code>
+	 */
+	private Readable input;
 	/**
 	 * current token
 	 */
@@ -29,6 +68,14 @@ public class SmartScriptLexer {
 	 * current state of this lexer
 	 */
 	private SmartScriptLexerState state;
+	/**
+	 * number of line breaks among the characters which have left the window
+	 */
+	private int discardedLines;
+	/**
+	 * position in the document of the character following the last discarded line break
+	 */
+	private int discardedLineStart;
 	
 	/**
 	 * Constructor that recieves the text to be tokenized as String and creates a new instance of SmartScriptLexer.
@@ -36,8 +83,37 @@ public class SmartScriptLexer {
 	 * @throws NullPointerExceptionException if given document is null
 	 */
 	public SmartScriptLexer(String text) {
-		this.data = Objects.requireNonNull(text).toCharArray();
-		this.currentIndex = 0;
+		this(CharBuffer.wrap(Objects.requireNonNull(text)));
+	}
+	
+	/**
+	 * Constructor that reads the text to be tokenized from the given reader, which isn't closed by this lexer.
+	 * @param reader reader of the text to be tokenized
+	 * @throws NullPointerExceptionException if given reader is null
+	 */
+	public SmartScriptLexer(Reader reader) {
+		this.input = Objects.requireNonNull(reader);
+		this.data = new char[WINDOW_SIZE];
+		this.state = SmartScriptLexerState.TEXT;
+	}
+	
+	/**
+	 * Constructor that recieves the text to be tokenized as the remaining characters of the given buffer.
+	 * If the buffer is backed by an array, the characters aren't copied.
+	 * @param text buffer with the text to be tokenized
+	 * @throws NullPointerExceptionException if given buffer is null
+	 */
+	public SmartScriptLexer(CharBuffer text) {
+		Objects.requireNonNull(text);
+		if (text.hasArray()) {
+			this.data = text.array();
+			this.origin = text.arrayOffset() + text.position();
+			this.limit = text.arrayOffset() + text.limit();
+		} else {
+			this.input = text;
+			this.data = new char[Math.max(1, Math.min(WINDOW_SIZE, text.remaining()))];
+		}
+		this.currentIndex = origin;
 		this.state = SmartScriptLexerState.TEXT;
 	}
 
@@ -49,6 +125,36 @@ public class SmartScriptLexer {
 		return token;
 	}
 	
+	/**
+	 * Returns the line of the first character of the current token, or of the character at which the analysis failed.
+	 * @return line, starting from 1
+	 */
+	public int getLine() {
+		int line = discardedLines + 1;
+		for (int i = Math.max(origin, 0); i < tokenStart; i++) {
+			if (data[i] == '\n') {
+				line++;
+			}
+		}
+		return line;
+	}
+	
+	/**
+	 * Returns the column of the first character of the current token, or of the character at which the analysis failed.
+	 * @return column, starting from 1
+	 */
+	public int getColumn() {
+		int lineStart = tokenStart;
+		while (lineStart > Math.max(origin, 0) && data[lineStart - 1] != '\n') {
+			lineStart--;
+		}
+		if (lineStart == Math.max(origin, 0) && origin < 0) {
+			// the line started before the window
+			return tokenStart - origin - discardedLineStart + 1;
+		}
+		return tokenStart - lineStart + 1;
+	}
+	
 	/**
 	 * Sets the lexer's state.
 	 * @param state the state to which the lexer is set
@@ -70,15 +176,94 @@ public class SmartScriptLexer {
 		}
 	}
 	
+	/**
+	 * Checks whether the character at the given offset from the current index exists, reading more of the input if necessary.
+	 * @param offset offset from the current index
+	 * @return <code>true</code> if the character is a part of the document
+	 */
+	private boolean available(int offset) {
+		while (currentIndex + offset >= limit) {
+			if (!fill()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the character at the given offset from the current index.
+	 * @param offset offset from the current index, which may be negative but not before the current token's lookbehind
+	 * @return the character, or <code>'\0'</code> if the position is outside of the document
+	 */
+	private char at(int offset) {
+		if (currentIndex + offset < origin || !available(offset)) {
+			return NONE;
+		}
+		return data[currentIndex + offset];
+	}
+	
+	/**
+	 * Reads more of the input into the window. Characters before the current token and its lookbehind are
+	 * discarded first, and the window grows only if a single token doesn't fit in it.
+	 * @return <code>true</code> if any characters were read, <code>false</code> at the end of the input
+	 * @throws SmartScriptLexerException if the input can't be read
+	 */
+	private boolean fill() {
+		if (input == null) {
+			return false;
+		}
+		
+		int keep = Math.max(0, Math.min(tokenStart, currentIndex) - LOOKBEHIND);
+		if (keep > 0) {
+			// lines of the discarded characters are counted, so positions can still be given in lines
+			for (int i = Math.max(origin, 0); i < keep; i++) {
+				if (data[i] == '\n') {
+					discardedLines++;
+					discardedLineStart = i + 1 - origin;
+				}
+			}
+			System.arraycopy(data, keep, data, 0, limit - keep);
+			limit -= keep;
+			currentIndex -= keep;
+			tokenStart -= keep;
+			origin -= keep;
+		}
+		if (limit == data.length) {
+			data = Arrays.copyOf(data, 2 * data.length);
+		}
+		
+		int read;
+		try {
+			read = input.read(CharBuffer.wrap(data, limit, data.length - limit));
+		} catch (IOException ex) {
+			throw new SmartScriptLexerException("Document couldn't be read: " + ex.getMessage());
+		}
+		if (read < 0) {
+			input = null;
+			return false;
+		}
+		limit += read;
+		return true;
+	}
+	
+	/**
+	 * Returns the characters of the current token as a slice of the window, without copying them.
+	 * Indices of the window change when it slides, so the start of a token is always <code>tokenStart</code>.
+	 * @return the characters, valid until the next token is generated
+	 */
+	private CharSequence slice() {
+		return CharBuffer.wrap(data, tokenStart, currentIndex - tokenStart);
+	}
+	
 	/**
 	 * Skips all whitespace as they should not be made into a token.
 	 * @see #nextToken()
 	 */
 	private void skipBlanks() {
-		while (currentIndex < data.length) {
+		while (available(0)) {
 			char c = data[currentIndex];
 			if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
-				currentIndex++;
+				tokenStart = ++currentIndex; // skipped blanks needn't be kept in the window
 				continue;
 			}
 			break;
@@ -95,7 +280,8 @@ public class SmartScriptLexer {
 			throw new SmartScriptLexerException("No more tokens left!");
 		}
 		
-		if (currentIndex >= data.length) { // If the data is done, send one last token of type EOF
+		tokenStart = currentIndex;
+		if (!available(0)) { // If the data is done, send one last token of type EOF
 			token = new SmartScriptToken(SmartScriptTokenType.EOF, null);
 			return getToken();
 		}
@@ -105,40 +291,32 @@ public class SmartScriptLexer {
 		if (state.equals(SmartScriptLexerState.TEXT)) {
 			
 			if (Character.isLetter(data[currentIndex])) { // If the character is a letter, the token consists of all next characters that are also letters
-				int firstChar = currentIndex; // index of first char that fits the word criteria
-				
-				while (currentIndex < data.length && Character.isLetter(data[currentIndex])) {
+				while (available(0) && Character.isLetter(data[currentIndex])) {
 					currentIndex++;
 				}
 				
-				int lastChar = currentIndex; // index of first char that doesn't fit the word criteria
-				
-				String value = new String(data, firstChar, lastChar - firstChar);
-				token = new SmartScriptToken(SmartScriptTokenType.STRING, value);
+				token = new SmartScriptToken(SmartScriptTokenType.STRING, slice());
 				
 			// Token with number is created if the first character is a digit or if it's a '-' immediately followed by a digit (negative number).
-			} else if (Character.isDigit(data[currentIndex]) || (data[currentIndex] == '-' && Character.isDigit(data[currentIndex + 1]))) {
+			} else if (Character.isDigit(data[currentIndex]) || (data[currentIndex] == '-' && Character.isDigit(at(1)))) {
 				setNumberToken();
 			
 			} else if (Character.isWhitespace(data[currentIndex])) {
-				int firstChar = currentIndex++;
+				currentIndex++;
 				
 				// While the characters are blank, continue the token
-				while (currentIndex < data.length && Character.isWhitespace(data[currentIndex])) {
+				while (available(0) && Character.isWhitespace(data[currentIndex])) {
 					currentIndex++;
 				}
 				
-				int lastChar = currentIndex;
-				
-				String stringValue = new String(data, firstChar, lastChar - firstChar);	
-				token = new SmartScriptToken(SmartScriptTokenType.WHITESPACE, stringValue);
+				token = new SmartScriptToken(SmartScriptTokenType.WHITESPACE, slice());
 				
 			} else if (data[currentIndex] == '{') {
 				currentIndex++;
 				token = new SmartScriptToken(SmartScriptTokenType.OPEN_PARENTHESES, Character.valueOf('{'));
 			
 			} else if (data[currentIndex] == '$') {
-				if ((currentIndex != 0 && data[currentIndex - 1] == '{') && (currentIndex == 1 || data[currentIndex -2] != '\\')) {
+				if (at(-1) == '{' && at(-2) != '\\') {
 					setState(SmartScriptLexerState.TAG);
 				}
 				currentIndex++;
@@ -156,6 +334,11 @@ public class SmartScriptLexer {
 		} else {
 			
 			skipBlanks(); // In this state, whitespace characters dont form a token and can be ignored
+			tokenStart = currentIndex;
+			if (!available(0)) { // The document may end within a tag, after the whitespace
+				token = new SmartScriptToken(SmartScriptTokenType.EOF, null);
+				return getToken();
+			}
 			
 //			if (data[currentIndex] == '"') { // String starts and lasts until another " comes
 //				int firstChar = ++currentIndex;
@@ -176,14 +359,17 @@ public class SmartScriptLexer {
 				StringBuilder sb = new StringBuilder();
 				currentIndex++;
 				do {
+					if (!available(0)) { // A string which isn't closed lasts until the end of the document
+						break;
+					}
 					if (data[currentIndex] == '\\') {
-						if (data[currentIndex + 1] == 'n') {
+						if (at(1) == 'n') {
 							sb.append('\n');
 							currentIndex += 2;
-						} else if (data[currentIndex + 1] == 'r') {
+						} else if (at(1) == 'r') {
 							sb.append('\r');
 							currentIndex += 2;
-						} else if (data[currentIndex + 1] == 't') {
+						} else if (at(1) == 't') {
 							sb.append('\t');
 							currentIndex += 2;
 						} else if (checkEscapeConditions()) { // If an escape sequence happened, jump over it
@@ -196,23 +382,25 @@ public class SmartScriptLexer {
 					} else {
 						sb.append(data[currentIndex++]);
 					}
-				} while (currentIndex < data.length && data[currentIndex] != '"');
+				} while (at(0) != '"');
 				
-				currentIndex++;
+				if (available(0)) {
+					currentIndex++;
+				}
 				token = new SmartScriptToken(SmartScriptTokenType.STRING, sb.toString());
 			
 			// If a token within a tag starts with a letter it's a variable
 			} else if (Character.isLetter(data[currentIndex])) {
-				int firstChar = currentIndex++;
+				currentIndex++;
 				
 				// after the first letter, variables can contain letters, numbers and underscores
-				while (currentIndex < data.length && (Character.isLetter(data[currentIndex]) || Character.isDigit(data[currentIndex]) || data[currentIndex] == '_')) {
+				while (available(0) && (Character.isLetter(data[currentIndex]) || Character.isDigit(data[currentIndex]) || data[currentIndex] == '_')) {
 					currentIndex++;
 				}
 				
 				int lastChar = currentIndex;
 				
-				String value = new String(data, firstChar, lastChar - firstChar);
+				String value = new String(data, tokenStart, lastChar - tokenStart);
 				if (value.equalsIgnoreCase("FOR") || value.equalsIgnoreCase("END")) { //"FOR" and "END" are special keywords
 					token = new SmartScriptToken(SmartScriptTokenType.KEY, value);
 				} else {
@@ -220,10 +408,10 @@ public class SmartScriptLexer {
 				}
 				
 				
-			} else if (Character.isDigit(data[currentIndex]) || (data[currentIndex] == '-' && Character.isDigit(data[currentIndex + 1]))) {
+			} else if (Character.isDigit(data[currentIndex]) || (data[currentIndex] == '-' && Character.isDigit(at(1)))) {
 				setNumberToken();
 			
-			} else if ("+-*/^".contains(String.valueOf(data[currentIndex]))){
+			} else if ("+-*/^".indexOf(data[currentIndex]) >= 0){
 				token = new SmartScriptToken(SmartScriptTokenType.OPERATOR, Character.valueOf(data[currentIndex++]));
 			
 			} else if (data[currentIndex] == '=') {
@@ -235,22 +423,22 @@ public class SmartScriptLexer {
 				token = new SmartScriptToken(SmartScriptTokenType.TAG, Character.valueOf('$'));
 			
 			} else if (data[currentIndex] == '}') {
-				if (currentIndex != 0 && data[currentIndex - 1] == '$') {
+				if (at(-1) == '$') {
 					setState(SmartScriptLexerState.TEXT);
 				}
 				currentIndex++;
 				token = new SmartScriptToken(SmartScriptTokenType.CLOSE_PARENTHESES, Character.valueOf('}'));
 					
 			} else if (data[currentIndex] == '@') {
-				int firstChar = currentIndex++;
+				currentIndex++;
 								
-				while (currentIndex < data.length && (Character.isLetter(data[currentIndex]) || Character.isDigit(data[currentIndex]) || data[currentIndex] == '_')) {
+				while (available(0) && (Character.isLetter(data[currentIndex]) || Character.isDigit(data[currentIndex]) || data[currentIndex] == '_')) {
 					currentIndex++;
 				}
 				
 				int lastChar = currentIndex;
 				
-				String value = new String(data, firstChar, lastChar - firstChar);
+				String value = new String(data, tokenStart, lastChar - tokenStart);
 				token = new SmartScriptToken(SmartScriptTokenType.FUNCTION, value);
 				
 				/**
@@ -273,11 +461,11 @@ public class SmartScriptLexer {
 	 * @see #nextToken()
 	 */
 	private void setNumberToken() {
-		int firstChar = currentIndex++; // index of first char that fits the token criteria
+		currentIndex++; // the token starts at tokenStart
 		boolean hasDot = false; //The number can be a decimal number, but it can't contain more than one decimal dot
 		
 		// Number continues while the characters are digits or a first dot in the number that is immediately followed by digits (the decimal part of the number)
-		while (currentIndex < data.length && (Character.isDigit(data[currentIndex]) || (!hasDot && data[currentIndex] == '.' && Character.isDigit(data[currentIndex + 1])))) {
+		while (available(0) && (Character.isDigit(data[currentIndex]) || (!hasDot && data[currentIndex] == '.' && Character.isDigit(at(1))))) {
 			if (data[currentIndex] == '.') {
 				hasDot = true; // If it's a first dot, the token can continue
 			}
@@ -286,7 +474,7 @@ public class SmartScriptLexer {
 		
 		int lastChar = currentIndex;
 		
-		String stringValue = new String(data, firstChar, lastChar - firstChar);					
+		String stringValue = new String(data, tokenStart, lastChar - tokenStart);					
 		try {
 			if (hasDot) { // Whether or not the number has a dot, it's an int or a double
 				double value = Double.parseDouble(stringValue);
@@ -309,9 +497,9 @@ public class SmartScriptLexer {
 	private boolean checkEscapeConditions() { // If the character is '\', then the character after it must be checked if they make an escape sequence.
 		if (state.equals(SmartScriptLexerState.TEXT)) {			
 			if (data[currentIndex] == '\\') {
-				if ("nrt".contains(String.valueOf(data[currentIndex + 1]))) {
+				if ("nrt".indexOf(at(1)) >= 0) {
 					return false;
-				} else if (currentIndex == data.length - 1 || !(data[currentIndex + 1] == '\\' || data[currentIndex + 1] == '{')) {
+				} else if (!(at(1) == '\\' || at(1) == '{')) {
 					throw new SmartScriptLexerException("Incorrect escape sequence!");
 				} else {
 					return true;
@@ -321,9 +509,9 @@ public class SmartScriptLexer {
 		
 		} else {
 			if (data[currentIndex] == '\\') {
-				if ("nrt".contains(String.valueOf(data[currentIndex + 1]))) {
+				if ("nrt".indexOf(at(1)) >= 0) {
 					return false;
-				} else if (currentIndex == data.length - 1 || !(data[currentIndex + 1] == '\\' || data[currentIndex + 1] == '"')) {
+				} else if (!(at(1) == '\\' || at(1) == '"')) {
 					throw new SmartScriptLexerException("Incorrect escape sequence!");
 				} else {
 					return true;
@@ -32,7 +32,7 @@ public abstract class Node {
 	 * @return number of children
 	 */
 	public int numberOfChildren() {
-		return collection.size();
+		return collection == null ? 0 : collection.size();
 	}
 	
 	/**
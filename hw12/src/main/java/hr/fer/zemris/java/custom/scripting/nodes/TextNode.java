@@ -1,8 +1,14 @@
 package hr.fer.zemris.java.custom.scripting.nodes;
 
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Class <code>TextNode</code> is an extension of <code>Node</code>. 
  * It is representing a piece of textual data.
+ * The text is encoded once per charset and the encoded bytes are kept with the node,
+ * so a document which is executed many times doesn't encode its static text again.
  * 
  * @author stipe
  */
@@ -12,6 +18,10 @@ public class TextNode extends Node {
 	 * node's text
 	 */
 	private String text;
+	/**
+	 * encoded text per charset, replaced by a copy when a charset is added so it can be read without locking
+	 */
+	private volatile Map<Charset, byte[]> encoded = Map.of();
 	
 	/**
 	 * Constructor that adds the recieved text to the node's value.
@@ -28,11 +38,33 @@ public class TextNode extends Node {
 	public String getText() {
 		return text;
 	}
+	
+	/**
+	 * Returns this <code>TextNode's</code> text encoded in the given charset, encoding it only the first time.
+	 * The returned array is shared and mustn't be modified.
+	 * @param charset charset
+	 * @return encoded text
+	 */
+	public byte[] getBytes(Charset charset) {
+		byte[] bytes = encoded.get(charset);
+		if (bytes == null) {
+			bytes = text.getBytes(charset);
+			Map<Charset, byte[]> copy = new HashMap<>(encoded);
+			copy.put(charset, bytes);
+			encoded = copy;
+		}
+		return bytes;
+	}
 
 	@Override
 	public void accept(INodeVisitor visitor) {
 		visitor.visitTextNode(this);
 	}
 	
+	@Override
+	public String toString() {
+		return text;
+	}
+	
 	
 }
@@ -1,5 +1,7 @@
 package hr.fer.zemris.java.custom.scripting.parser;
 
+import java.io.Reader;
+import java.nio.CharBuffer;
 import java.util.Arrays;
 
 import hr.fer.zemris.java.custom.collections.ObjectStack;
@@ -11,6 +13,7 @@ import hr.fer.zemris.java.custom.scripting.elems.ElementOperator;
 import hr.fer.zemris.java.custom.scripting.elems.ElementString;
 import hr.fer.zemris.java.custom.scripting.elems.ElementVariable;
 import hr.fer.zemris.java.custom.scripting.lexer.SmartScriptLexer;
+import hr.fer.zemris.java.custom.scripting.lexer.SmartScriptLexerException;
 import hr.fer.zemris.java.custom.scripting.lexer.SmartScriptTokenType;
 import hr.fer.zemris.java.custom.scripting.nodes.DocumentNode;
 import hr.fer.zemris.java.custom.scripting.nodes.EchoNode;
@@ -44,9 +47,39 @@ public class SmartScriptParser {
 	 * @param document which is sent to lexer for processing
 	 */
 	public SmartScriptParser(String document) {
-		  lexer = new SmartScriptLexer(document);
+		this(new SmartScriptLexer(document));
+	}
+	
+	/**
+	 * Constructor that parses the document read from the given reader, without holding the whole document in memory.
+	 * The reader isn't closed.
+	 * @param document reader of the document
+	 */
+	public SmartScriptParser(Reader document) {
+		this(new SmartScriptLexer(document));
+	}
+	
+	/**
+	 * Constructor that parses the remaining characters of the given buffer, without copying them if it is backed by an array.
+	 * @param document buffer with the document
+	 */
+	public SmartScriptParser(CharBuffer document) {
+		this(new SmartScriptLexer(document));
+	}
+	
+	/**
+	 * Constructor that parses the tokens of the given lexer.
+	 * @param lexer lexer of the document
+	 * @throws SmartScriptParserException if the document is invalid, with the position at which the analysis failed
+	 */
+	private SmartScriptParser(SmartScriptLexer lexer) {
+		  this.lexer = lexer;
 		  stack = new ObjectStack();
-		  documentNode = parseDocument();
+		  try {
+			  documentNode = parseDocument();
+		  } catch (SmartScriptParserException | SmartScriptLexerException ex) {
+			  throw new SmartScriptParserException(ex.getMessage(), lexer.getLine(), lexer.getColumn(), ex);
+		  }
 	}
 	
 	/**
@@ -129,7 +162,13 @@ public class SmartScriptParser {
 				sb.append('{');
 			}
 
-			sb.append(String.valueOf(lexer.getToken().getValue()));
+			// words and whitespace are slices of the lexer's input, which are appended without an intermediate copy
+			Object value = lexer.getToken().getValue();
+			if (value instanceof CharSequence) {
+				sb.append((CharSequence) value);
+			} else {
+				sb.append(value);
+			}
 			if (!compareTypeWith(SmartScriptTokenType.EOF)) {
 				lexer.nextToken(); // gets the token which should be tag				
 			}
@@ -150,12 +189,13 @@ public class SmartScriptParser {
 		if (!compareTypeWith(SmartScriptTokenType.TAG)) {
 			throw new SmartScriptParserException("End of for loop is not correctly given!");
 		}
+		// only the document node is left, so there is no for-loop to end
+		if (stack.size() == 1) {
+			throw new SmartScriptParserException("Error in document! It contains more {$END$}-s than opened non-empty tags");
+		}
 		checkTagEnd();
 		
 		stack.pop(); // pops the for-loop node
-		if (stack.isEmpty()) {
-			throw new SmartScriptParserException("Error in document! It contains more {$END$}-s than opened non-empty tags");
-		}
 	}
 
 	/**
@@ -244,12 +284,12 @@ public class SmartScriptParser {
 		} catch (ArrayIndexOutOfBoundsException ex) {
 			throw new SmartScriptParserException("Too many arguments");
 		}
-		checkTagEnd();
-		
 		// for-loop can have 3 or 4 arguments, otherwise an exception is thrown
 		if (i < 3) {
 			throw new SmartScriptParserException("Too few arguments!");
 		}
+		checkTagEnd();
+		
 		
 		// creates a for-loop node with this text and adds it to the node higher in the hierarchy
 		ForLoopNode forNode = new ForLoopNode((ElementVariable) array[0], array[1], array[2], array[3]);
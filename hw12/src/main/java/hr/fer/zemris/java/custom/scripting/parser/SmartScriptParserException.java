@@ -12,12 +12,20 @@ public class SmartScriptParserException extends RuntimeException {
 	 * default serial ID
 	 */
 	private static final long serialVersionUID = 1L;
+	/**
+	 * line of the document at which the analysis failed, or 0 if it isn't known
+	 */
+	private final int line;
+	/**
+	 * column of the document at which the analysis failed, or 0 if it isn't known
+	 */
+	private final int column;
 
 	/**
 	 * Default constructor.
 	 */
 	public SmartScriptParserException() {
-		super();
+		this(null);
 	}
 	
 	/**
@@ -26,6 +34,37 @@ public class SmartScriptParserException extends RuntimeException {
 	 */
 	public SmartScriptParserException(String message) {
 		super(message);
+		this.line = 0;
+		this.column = 0;
+	}
+	
+	/**
+	 * Constructor that sends the given message, followed by the position at which the analysis failed.
+	 * @param message message
+	 * @param line line of the document, starting from 1
+	 * @param column column of the document, starting from 1
+	 * @param cause exception which was thrown at that position
+	 */
+	public SmartScriptParserException(String message, int line, int column, Throwable cause) {
+		super(message + " (line " + line + ", column " + column + ")", cause);
+		this.line = line;
+		this.column = column;
+	}
+	
+	/**
+	 * Returns the line of the document at which the analysis failed.
+	 * @return line, or 0 if it isn't known
+	 */
+	public int getLine() {
+		return line;
+	}
+	
+	/**
+	 * Returns the column of the document at which the analysis failed.
+	 * @return column, or 0 if it isn't known
+	 */
+	public int getColumn() {
+		return column;
 	}
 	
 }
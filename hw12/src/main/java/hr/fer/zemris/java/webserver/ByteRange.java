@@ -0,0 +1,115 @@
+package hr.fer.zemris.java.webserver;
+
+/**
+ * Class representing a single byte range requested through the {@code Range} header.
+ * Requests for multiple ranges are served as requests for the whole file.
+ *
+ * @author stipe
+ *
+ */
+class ByteRange {
+
+	/**
+	 * Unit of the supported ranges.
+	 */
+	private static final String UNIT = "bytes=";
+
+	/**
+	 * Index of the first byte.
+	 */
+	private long first;
+	/**
+	 * Index of the last byte, inclusive.
+	 */
+	private long last;
+	/**
+	 * Length of the whole file.
+	 */
+	private long length;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param first {@link #first}
+	 * @param last {@link #last}
+	 * @param length {@link #length}
+	 */
+	private ByteRange(long first, long last, long length) {
+		this.first = first;
+		this.last = last;
+		this.length = length;
+	}
+
+	/**
+	 * Parses the value of a {@code Range} header. Supported are ranges {@code bytes=first-last},
+	 * {@code bytes=first-} and the suffix range {@code bytes=-count}.
+	 *
+	 * @param value header value, may be null
+	 * @param length length of the file
+	 * @return byte range, or null if the header should be ignored
+	 */
+	public static ByteRange parse(String value, long length) {
+		if (value == null || !value.regionMatches(true, 0, UNIT, 0, UNIT.length())) {
+			return null;
+		}
+		String spec = value.substring(UNIT.length()).strip();
+		int dash = spec.indexOf('-');
+		if (dash == -1 || spec.indexOf(',') != -1) {
+			return null;
+		}
+
+		try {
+			String start = spec.substring(0, dash).strip();
+			String end = spec.substring(dash + 1).strip();
+			if (start.isEmpty()) {
+				long count = Long.parseLong(end);
+				if (count <= 0) return new ByteRange(length, length - 1, length);
+				return new ByteRange(Math.max(0, length - count), length - 1, length);
+			}
+
+			long first = Long.parseLong(start);
+			if (end.isEmpty()) return new ByteRange(first, length - 1, length);
+			long last = Long.parseLong(end);
+			if (first < 0 || last < first) return null;
+			return new ByteRange(first, Math.min(last, length - 1), length);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Checks whether the range overlaps the file.
+	 *
+	 * @return true if the range can be served
+	 */
+	public boolean isSatisfiable() {
+		return first < length && first <= last;
+	}
+
+	/**
+	 * Returns the index of the first byte.
+	 *
+	 * @return {@link #first}
+	 */
+	public long getFirst() {
+		return first;
+	}
+
+	/**
+	 * Returns the number of bytes in the range.
+	 *
+	 * @return number of bytes
+	 */
+	public long getCount() {
+		return last - first + 1;
+	}
+
+	/**
+	 * Returns the value of the {@code Content-Range} header describing this range.
+	 *
+	 * @return content range
+	 */
+	public String toContentRange() {
+		return isSatisfiable() ? "bytes " + first + "-" + last + "/" + length : "bytes */" + length;
+	}
+}
@@ -0,0 +1,133 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output stream which writes the body of a response using the chunked transfer coding.
+ * Written bytes are collected into a fixed buffer and sent as a single chunk once the
+ * buffer is full or the stream is flushed, so the memory used doesn't depend on
+ * the length of the response.
+ * <p>
+ * The stream can be reused for any number of responses, each of which is
+ * terminated by {@link #finish()}. The underlying stream is never closed.
+ *
+ * @author stipe
+ *
+ */
+class ChunkedOutputStream extends OutputStream {
+
+	/**
+	 * Last chunk and the empty trailer, terminating the body.
+	 */
+	private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+	/**
+	 * Line terminator following the data of a chunk.
+	 */
+	private static final byte[] CRLF = {'\r', '\n'};
+	/**
+	 * Hexadecimal digits.
+	 */
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1);
+
+	/**
+	 * Underlying stream.
+	 */
+	private OutputStream out;
+	/**
+	 * Buffer holding the data of the next chunk.
+	 */
+	private byte[] buffer;
+	/**
+	 * Number of bytes in {@link #buffer}.
+	 */
+	private int count;
+	/**
+	 * Buffer used for chunk headers, which are at most 8 hex digits and a CRLF.
+	 */
+	private byte[] chunkHeader = {0, 0, 0, 0, 0, 0, 0, 0, '\r', '\n'};
+
+	/**
+	 * Constructor.
+	 *
+	 * @param out {@link #out}
+	 * @param chunkSize maximum size of a chunk
+	 */
+	public ChunkedOutputStream(OutputStream out, int chunkSize) {
+		this.out = out;
+		this.buffer = new byte[chunkSize];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (count == buffer.length) {
+			writeChunk();
+		}
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (count == buffer.length) {
+				writeChunk();
+			}
+			int n = Math.min(len, buffer.length - count);
+			System.arraycopy(b, off, buffer, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Sends the buffered bytes as a chunk and flushes the underlying stream.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writeChunk();
+		out.flush();
+	}
+
+	/**
+	 * Sends the buffered bytes and terminates the body. The stream can then be used
+	 * for the body of the next response.
+	 *
+	 * @throws IOException in case of an I/O error
+	 */
+	public void finish() throws IOException {
+		writeChunk();
+		out.write(LAST_CHUNK);
+	}
+
+	/**
+	 * Discards the buffered bytes, which is used when a response is abandoned.
+	 */
+	public void reset() {
+		count = 0;
+	}
+
+	/**
+	 * Sends the buffered bytes as a chunk, unless there are none.
+	 *
+	 * @throws IOException in case of an I/O error
+	 */
+	private void writeChunk() throws IOException {
+		if (count == 0) {
+			return;
+		}
+
+		int position = chunkHeader.length - 2;
+		int size = count;
+		do {
+			chunkHeader[--position] = HEX[size & 0xF];
+			size >>>= 4;
+		} while (size != 0);
+		out.write(chunkHeader, position, chunkHeader.length - position);
+
+		out.write(buffer, 0, count);
+		out.write(CRLF);
+		count = 0;
+	}
+}
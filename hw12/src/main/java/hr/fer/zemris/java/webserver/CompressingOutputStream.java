@@ -0,0 +1,190 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream which compresses the body of a response using the gzip or the deflate
+ * content coding. Unlike {@link java.util.zip.GZIPOutputStream}, the stream and its
+ * {@link Deflater} are reused by all responses of a connection, so the native memory of
+ * the compressor is allocated once per connection rather than once per response.
+ * <p>
+ * Every response is started by {@link #start(OutputStream, boolean)} and terminated
+ * by {@link #finish()}. Flushing compresses and sends everything written so far,
+ * so streamed output reaches the client without waiting for the end of the response.
+ * The underlying stream is never closed, while {@link #end()} releases the compressor.
+ *
+ * @author stipe
+ *
+ */
+class CompressingOutputStream extends OutputStream {
+
+	/**
+	 * Header of a gzip member: magic number, deflate method, no flags, no modification
+	 * time, no extra flags and an unknown operating system.
+	 */
+	private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+	/**
+	 * Underlying stream.
+	 */
+	private OutputStream out;
+	/**
+	 * Compressor of the current response.
+	 */
+	private Deflater deflater;
+	/**
+	 * Compressor producing raw deflate data, framed as gzip by this stream.
+	 */
+	private Deflater gzipDeflater;
+	/**
+	 * Compressor producing deflate data in the zlib format.
+	 */
+	private Deflater zlibDeflater;
+	/**
+	 * Checksum of the uncompressed data of a gzip response.
+	 */
+	private CRC32 crc = new CRC32();
+	/**
+	 * Flag showing whether the current response uses gzip.
+	 */
+	private boolean gzip;
+	/**
+	 * Buffer receiving the compressed data.
+	 */
+	private byte[] buffer;
+	/**
+	 * Buffer used for single byte writes.
+	 */
+	private byte[] single = new byte[1];
+
+	/**
+	 * Constructor.
+	 *
+	 * @param bufferSize size of the buffer receiving the compressed data
+	 */
+	public CompressingOutputStream(int bufferSize) {
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * Starts compressing a new response.
+	 *
+	 * @param out stream to which the compressed data is written
+	 * @param gzip true for the gzip coding, false for the deflate coding
+	 * @throws IOException in case of an I/O error
+	 */
+	public void start(OutputStream out, boolean gzip) throws IOException {
+		this.out = out;
+		this.gzip = gzip;
+		if (gzip) {
+			if (gzipDeflater == null) {
+				gzipDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			}
+			deflater = gzipDeflater;
+			crc.reset();
+			out.write(GZIP_HEADER);
+		} else {
+			if (zlibDeflater == null) {
+				zlibDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, false);
+			}
+			deflater = zlibDeflater;
+		}
+		deflater.reset();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		single[0] = (byte) b;
+		write(single, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return;
+		}
+		if (gzip) {
+			crc.update(b, off, len);
+		}
+		deflater.setInput(b, off, len);
+		while (!deflater.needsInput()) {
+			deflate(Deflater.NO_FLUSH);
+		}
+	}
+
+	/**
+	 * Compresses everything written so far, ending at a byte boundary, and flushes it.
+	 */
+	@Override
+	public void flush() throws IOException {
+		while (deflate(Deflater.SYNC_FLUSH) == buffer.length) {
+		}
+		out.flush();
+	}
+
+	/**
+	 * Completes the compressed data of the current response, without flushing the underlying stream.
+	 *
+	 * @throws IOException in case of an I/O error
+	 */
+	public void finish() throws IOException {
+		deflater.finish();
+		while (!deflater.finished()) {
+			deflate(Deflater.NO_FLUSH);
+		}
+		if (gzip) {
+			writeIntLE((int) crc.getValue());
+			writeIntLE((int) deflater.getBytesRead());
+		}
+		deflater.reset();
+	}
+
+	/**
+	 * Discards the state of an unfinished response.
+	 */
+	public void reset() {
+		if (deflater != null) {
+			deflater.reset();
+		}
+	}
+
+	/**
+	 * Releases the native memory of the compressors. The stream can't be used afterwards.
+	 */
+	public void end() {
+		if (gzipDeflater != null) {
+			gzipDeflater.end();
+		}
+		if (zlibDeflater != null) {
+			zlibDeflater.end();
+		}
+	}
+
+	/**
+	 * Writes the output of the compressor to the underlying stream.
+	 *
+	 * @param flush flush mode
+	 * @return number of written bytes
+	 * @throws IOException in case of an I/O error
+	 */
+	private int deflate(int flush) throws IOException {
+		int length = deflater.deflate(buffer, 0, buffer.length, flush);
+		if (length > 0) {
+			out.write(buffer, 0, length);
+		}
+		return length;
+	}
+
+	/**
+	 * Writes an integer in little-endian order, as used by the gzip trailer.
+	 *
+	 * @param value value
+	 * @throws IOException in case of an I/O error
+	 */
+	private void writeIntLE(int value) throws IOException {
+		out.write(new byte[] {(byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24)});
+	}
+}
@@ -0,0 +1,120 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility methods for compression of responses.
+ *
+ * @author stipe
+ *
+ */
+final class Compression {
+
+	/**
+	 * The gzip content coding.
+	 */
+	static final String GZIP = "gzip";
+	/**
+	 * The deflate content coding.
+	 */
+	static final String DEFLATE = "deflate";
+
+	/**
+	 * Constructor.
+	 */
+	private Compression() {
+	}
+
+	/**
+	 * Chooses the content coding of a response according to the {@code Accept-Encoding}
+	 * request header. Gzip is preferred over deflate if both are equally acceptable.
+	 *
+	 * @param acceptEncoding value of the {@code Accept-Encoding} header, may be null
+	 * @return {@link #GZIP}, {@link #DEFLATE}, or null if the response shouldn't be compressed
+	 */
+	static String negotiate(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+
+		double gzip = -1;
+		double deflate = -1;
+		double any = 0;
+		for (String part : acceptEncoding.split(",")) {
+			String[] params = part.split(";");
+			String coding = params[0].strip().toLowerCase();
+			double quality = 1;
+			for (int i = 1; i < params.length; i++) {
+				String param = params[i].strip();
+				if (param.startsWith("q=")) {
+					try {
+						quality = Double.parseDouble(param.substring(2));
+					} catch (NumberFormatException e) {
+						quality = 0;
+					}
+				}
+			}
+
+			if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+				gzip = quality;
+			} else if (coding.equals(DEFLATE)) {
+				deflate = quality;
+			} else if (coding.equals("*")) {
+				any = quality;
+			}
+		}
+		// Codings which aren't listed are acceptable only through the wildcard.
+		if (gzip < 0) {
+			gzip = any;
+		}
+		if (deflate < 0) {
+			deflate = any;
+		}
+
+		if (gzip > 0 && gzip >= deflate) {
+			return GZIP;
+		}
+		return deflate > 0 ? DEFLATE : null;
+	}
+
+	/**
+	 * Checks whether content of the given mime type is worth compressing. Images,
+	 * archives, audio and video are already compressed, while text, scripts and
+	 * structured data compress well.
+	 *
+	 * @param mimeType mime type, possibly with parameters
+	 * @return true if the content should be compressed
+	 */
+	static boolean isCompressible(String mimeType) {
+		String type = mimeType.toLowerCase();
+		return type.startsWith("text/")
+				|| type.contains("json")
+				|| type.contains("xml")
+				|| type.contains("javascript");
+	}
+
+	/**
+	 * Compresses the given data into the gzip format with the best compression,
+	 * which is used for content that is compressed once and sent many times.
+	 *
+	 * @param data data
+	 * @return compressed data
+	 */
+	static byte[] gzip(byte[] data) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2 + 32);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bos) {
+			{
+				def.setLevel(Deflater.BEST_COMPRESSION);
+			}
+		}) {
+			gzip.write(data);
+		} catch (IOException e) {
+			// Never thrown by an in-memory stream.
+			throw new RuntimeException(e);
+		}
+		return bos.toByteArray();
+	}
+}
@@ -0,0 +1,26 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Interface implemented by output streams which can send a region of a file
+ * directly to the client, without copying it through the heap.
+ *
+ * @author stipe
+ *
+ */
+interface FileRegionOutput {
+
+	/**
+	 * Sends the given region of the file after all bytes written so far.
+	 * The output takes over the file channel and closes it once the region
+	 * has been sent, or if sending fails.
+	 *
+	 * @param file file channel
+	 * @param position position of the first byte of the region
+	 * @param count number of bytes in the region
+	 * @throws IOException in case of an I/O error
+	 */
+	void writeFileRegion(FileChannel file, long position, long count) throws IOException;
+}
@@ -0,0 +1,202 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Class representing a reusable parser of request headers. The parser owns a bounded
+ * buffer into which bytes are read in bulk, and looks for the empty line ending the
+ * header without copying the bytes. Bytes following the header stay in the buffer,
+ * so pipelined requests on a persistent connection are parsed one after another.
+ * <p>
+ * A header ends with an empty line terminated by either CRLF or LF.
+ *
+ * @author stipe
+ *
+ */
+public class HttpHeaderParser {
+
+	/**
+	 * Buffer of the received bytes.
+	 */
+	private byte[] buffer;
+	/**
+	 * Buffer view used for reading from channels.
+	 */
+	private ByteBuffer view;
+	/**
+	 * Start of the unprocessed bytes.
+	 */
+	private int start;
+	/**
+	 * End of the received bytes.
+	 */
+	private int limit;
+	/**
+	 * Index from which the search for the end of the header continues.
+	 */
+	private int scanFrom;
+	/**
+	 * Time spent parsing the header which hasn't been completely received yet, in nanoseconds.
+	 */
+	private long parseNanos;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxHeaderSize maximum size of a request header in bytes
+	 * @throws IllegalArgumentException if the size isn't positive
+	 */
+	public HttpHeaderParser(int maxHeaderSize) {
+		if (maxHeaderSize < 1) {
+			throw new IllegalArgumentException("Maximum header size must be positive!");
+		}
+		buffer = new byte[maxHeaderSize];
+		view = ByteBuffer.wrap(buffer);
+	}
+
+	/**
+	 * Reads the next request header from the given stream, blocking until it is complete.
+	 *
+	 * @param is input stream
+	 * @return request header, or null if the stream ended before a new request was started
+	 * @throws HeaderTooLargeException if the header exceeds the maximum size
+	 * @throws IOException in case of an I/O error, or if the stream ended in the middle of a header
+	 */
+	public HttpRequestHeader readHeader(InputStream is) throws IOException {
+		while (true) {
+			HttpRequestHeader header = nextHeader();
+			if (header != null) {
+				return header;
+			}
+			if (fill(is) == -1) {
+				if (start == limit) return null;
+				throw new EOFException("Stream ended in the middle of a request header.");
+			}
+		}
+	}
+
+	/**
+	 * Reads as many bytes from the given stream as are available, blocking only if none are.
+	 *
+	 * @param is input stream
+	 * @return number of read bytes, or -1 if the stream has ended
+	 * @throws IOException in case of an I/O error
+	 */
+	public int fill(InputStream is) throws IOException {
+		makeRoom();
+		int read = is.read(buffer, limit, buffer.length - limit);
+		if (read > 0) limit += read;
+		return read;
+	}
+
+	/**
+	 * Reads as many bytes from the given channel as are available. A non-blocking channel
+	 * may return 0 bytes.
+	 *
+	 * @param channel channel
+	 * @return number of read bytes, or -1 if the channel has reached end-of-stream
+	 * @throws IOException in case of an I/O error
+	 */
+	public int fill(ReadableByteChannel channel) throws IOException {
+		makeRoom();
+		view.limit(buffer.length).position(limit);
+		int read = channel.read(view);
+		if (read > 0) limit += read;
+		return read;
+	}
+
+	/**
+	 * Parses the next request header from the already received bytes.
+	 *
+	 * @return request header, or null if the header hasn't been received completely
+	 * @throws HeaderTooLargeException if the header exceeds the maximum size
+	 */
+	public HttpRequestHeader nextHeader() throws HeaderTooLargeException {
+		long startTime = System.nanoTime();
+		// Empty lines in front of a request line are ignored.
+		while (start < limit && (buffer[start] == '\r' || buffer[start] == '\n')) {
+			start++;
+		}
+		if (scanFrom < start) scanFrom = start;
+
+		int end = findEnd();
+		if (end == -1) {
+			if (start == 0 && limit == buffer.length) {
+				parseNanos = 0;
+				throw new HeaderTooLargeException();
+			}
+			parseNanos += System.nanoTime() - startTime;
+			return null;
+		}
+
+		HttpRequestHeader header = new HttpRequestHeader(Arrays.copyOfRange(buffer, start, end));
+		start = end;
+		scanFrom = end;
+		header.setParseNanos(parseNanos + System.nanoTime() - startTime);
+		parseNanos = 0;
+		return header;
+	}
+
+	/**
+	 * Finds the end of the header by looking for a line feed followed by an empty line.
+	 *
+	 * @return index right after the header, or -1 if the header isn't complete
+	 */
+	private int findEnd() {
+		byte[] data = buffer;
+		for (int i = scanFrom, n = limit; i < n; i++) {
+			if (data[i] != '\n') continue;
+
+			int j = i + 1;
+			if (j < n && data[j] == '\r') j++;
+			if (j >= n) break;
+			if (data[j] == '\n') return j + 1;
+		}
+		// The last two bytes may still be a part of the terminating empty line.
+		scanFrom = Math.max(start, limit - 2);
+		return -1;
+	}
+
+	/**
+	 * Moves the unprocessed bytes to the beginning of the buffer if the buffer is full.
+	 */
+	private void makeRoom() {
+		if (start == limit) {
+			start = limit = scanFrom = 0;
+			return;
+		}
+		if (limit < buffer.length || start == 0) return;
+
+		int remaining = limit - start;
+		System.arraycopy(buffer, start, buffer, 0, remaining);
+		scanFrom -= start;
+		start = 0;
+		limit = remaining;
+	}
+
+	/**
+	 * Exception thrown when a request header exceeds the maximum size.
+	 *
+	 * @author stipe
+	 *
+	 */
+	public static class HeaderTooLargeException extends IOException {
+
+		/**
+		 * Default serial ID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor.
+		 */
+		public HeaderTooLargeException() {
+			super("Request header is too large!");
+		}
+	}
+}
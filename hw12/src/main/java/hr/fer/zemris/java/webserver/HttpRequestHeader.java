@@ -0,0 +1,330 @@
+package hr.fer.zemris.java.webserver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class representing a parsed request header. The header keeps its own copy of the
+ * received bytes together with the offsets of all header names and values, so strings
+ * are created only for the fields which are actually looked up.
+ * Header names are case-insensitive.
+ *
+ * @author stipe
+ *
+ */
+public class HttpRequestHeader {
+
+	/**
+	 * Number of offsets stored per header field.
+	 */
+	private static final int FIELD_SIZE = 4;
+
+	/**
+	 * Header bytes.
+	 */
+	private byte[] data;
+	/**
+	 * Request method, or null if the request line is malformed.
+	 */
+	private String method;
+	/**
+	 * Request target, or null if the request line is malformed.
+	 */
+	private String requestTarget;
+	/**
+	 * Protocol version, or null if the request line is malformed.
+	 */
+	private String version;
+	/**
+	 * Offsets of the header fields. Each field occupies four elements: start and end of the name
+	 * followed by start and end of the value. Continuation lines have a name start of -1.
+	 */
+	private int[] fields = new int[16 * FIELD_SIZE];
+	/**
+	 * Number of stored fields.
+	 */
+	private int count;
+	/**
+	 * Lazily created map of all headers.
+	 */
+	private Map<String, String> map;
+	/**
+	 * Time spent parsing this header in nanoseconds.
+	 */
+	private long parseNanos;
+
+	/**
+	 * Constructor which parses the given header bytes.
+	 *
+	 * @param data header bytes, ending with an empty line
+	 */
+	HttpRequestHeader(byte[] data) {
+		this.data = data;
+		parse();
+	}
+
+	/**
+	 * Returns the request method.
+	 *
+	 * @return {@link #method}
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * Returns the request target, which is the requested path together with the query string.
+	 *
+	 * @return {@link #requestTarget}
+	 */
+	public String getRequestTarget() {
+		return requestTarget;
+	}
+
+	/**
+	 * Returns the protocol version.
+	 *
+	 * @return {@link #version}
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Checks whether the request line consists of a method, a request target and a version.
+	 *
+	 * @return true if the request line is valid
+	 */
+	public boolean isRequestLineValid() {
+		return method != null;
+	}
+
+	/**
+	 * Returns the time spent parsing this header, excluding the time spent waiting for its bytes.
+	 *
+	 * @return {@link #parseNanos}
+	 */
+	public long getParseNanos() {
+		return parseNanos;
+	}
+
+	/**
+	 * Sets the time spent parsing this header.
+	 *
+	 * @param parseNanos {@link #parseNanos}
+	 */
+	void setParseNanos(long parseNanos) {
+		this.parseNanos = parseNanos;
+	}
+
+	/**
+	 * Returns the value of the last header with the given name.
+	 *
+	 * @param name header name
+	 * @return header value, or null if there is no such header
+	 */
+	public String getHeader(String name) {
+		for (int i = count - 1; i >= 0; i--) {
+			if (nameEquals(i, name)) {
+				return value(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the values of all headers with the given name, in the order of their appearance.
+	 *
+	 * @param name header name
+	 * @return list of header values
+	 */
+	public List<String> getHeaders(String name) {
+		List<String> values = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			if (nameEquals(i, name)) {
+				values.add(value(i));
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Returns a read only, case-insensitive map of all headers.
+	 * If a header appears multiple times, the last value is used.
+	 *
+	 * @return map of headers
+	 */
+	public Map<String, String> getHeaders() {
+		if (map == null) {
+			Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+			for (int i = 0; i < count; i++) {
+				int f = i * FIELD_SIZE;
+				if (fields[f] != -1) {
+					headers.put(string(fields[f], fields[f + 1]), value(i));
+				}
+			}
+			map = Collections.unmodifiableMap(headers);
+		}
+		return map;
+	}
+
+	/**
+	 * Parses the request line and the offsets of all header fields.
+	 */
+	private void parse() {
+		int lineStart = 0;
+		boolean firstLine = true;
+		while (lineStart < data.length) {
+			int lineEnd = lineStart;
+			while (lineEnd < data.length && data[lineEnd] != '\n') lineEnd++;
+			int next = lineEnd + 1;
+			if (lineEnd > lineStart && data[lineEnd - 1] == '\r') lineEnd--;
+			if (lineEnd == lineStart) break;
+
+			if (firstLine) {
+				parseRequestLine(lineStart, lineEnd);
+				firstLine = false;
+			} else if (data[lineStart] == ' ' || data[lineStart] == '\t') {
+				if (count > 0) addField(-1, -1, lineStart, lineEnd);
+			} else {
+				int colon = lineStart;
+				while (colon < lineEnd && data[colon] != ':') colon++;
+				if (colon < lineEnd) {
+					int valueStart = colon + 1;
+					int valueEnd = lineEnd;
+					while (valueStart < valueEnd && isBlank(data[valueStart])) valueStart++;
+					while (valueEnd > valueStart && isBlank(data[valueEnd - 1])) valueEnd--;
+					addField(lineStart, colon, valueStart, valueEnd);
+				}
+			}
+			lineStart = next;
+		}
+	}
+
+	/**
+	 * Parses the request line, which has to consist of exactly three parts separated by single spaces.
+	 *
+	 * @param start start of the line
+	 * @param end end of the line
+	 */
+	private void parseRequestLine(int start, int end) {
+		while (end > start && isBlank(data[end - 1])) end--;
+
+		int first = indexOf(' ', start, end);
+		if (first <= start) return;
+		int second = indexOf(' ', first + 1, end);
+		if (second <= first + 1 || second == end - 1 || indexOf(' ', second + 1, end) != -1) return;
+
+		method = string(start, first);
+		requestTarget = string(first + 1, second);
+		version = string(second + 1, end);
+	}
+
+	/**
+	 * Stores the offsets of a header field.
+	 *
+	 * @param nameStart start of the name
+	 * @param nameEnd end of the name
+	 * @param valueStart start of the value
+	 * @param valueEnd end of the value
+	 */
+	private void addField(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+		int f = count * FIELD_SIZE;
+		if (f == fields.length) {
+			int[] larger = new int[2 * fields.length];
+			System.arraycopy(fields, 0, larger, 0, fields.length);
+			fields = larger;
+		}
+		fields[f] = nameStart;
+		fields[f + 1] = nameEnd;
+		fields[f + 2] = valueStart;
+		fields[f + 3] = valueEnd;
+		count++;
+	}
+
+	/**
+	 * Checks whether the name of the field at the given index equals the given name, ignoring case.
+	 *
+	 * @param index field index
+	 * @param name name
+	 * @return true if the names are equal
+	 */
+	private boolean nameEquals(int index, String name) {
+		int f = index * FIELD_SIZE;
+		int start = fields[f];
+		if (start == -1 || fields[f + 1] - start != name.length()) return false;
+
+		for (int i = 0, n = name.length(); i < n; i++) {
+			int a = data[start + i];
+			int b = name.charAt(i);
+			if (a != b && toLower(a) != toLower(b)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the value of the field at the given index, including its continuation lines.
+	 *
+	 * @param index field index
+	 * @return value
+	 */
+	private String value(int index) {
+		int f = index * FIELD_SIZE;
+		String value = string(fields[f + 2], fields[f + 3]);
+		for (int i = index + 1; i < count && fields[i * FIELD_SIZE] == -1; i++) {
+			int c = i * FIELD_SIZE;
+			value += string(fields[c + 2], fields[c + 3]);
+		}
+		return value;
+	}
+
+	/**
+	 * Creates a string from the given range of header bytes.
+	 *
+	 * @param start start index
+	 * @param end end index
+	 * @return string
+	 */
+	private String string(int start, int end) {
+		return new String(data, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Finds the first occurrence of the given byte in the given range.
+	 *
+	 * @param b byte
+	 * @param start start index
+	 * @param end end index
+	 * @return index of the byte, or -1 if not found
+	 */
+	private int indexOf(char b, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (data[i] == b) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks whether the given byte is a space or a tab.
+	 *
+	 * @param b byte
+	 * @return true if blank
+	 */
+	private static boolean isBlank(byte b) {
+		return b == ' ' || b == '\t';
+	}
+
+	/**
+	 * Converts an ASCII letter to lower case.
+	 *
+	 * @param c character
+	 * @return lower case character
+	 */
+	private static int toLower(int c) {
+		return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+	}
+}
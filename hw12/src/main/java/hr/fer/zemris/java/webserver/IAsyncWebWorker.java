@@ -0,0 +1,56 @@
+package hr.fer.zemris.java.webserver;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Web worker which processes requests asynchronously. CPU-heavy work is run on the given
+ * compute executor and the returned future completes once the whole response has been
+ * written to the context, so the thread which dispatched the request isn't held meanwhile.
+ * <p>
+ * The context may be written from the threads of the executor. In non-blocking mode its
+ * output is queued for the event loop, so writes don't wait for the client unless a lot of
+ * output is already queued. In blocking mode the executor runs tasks on the thread of the
+ * connection, as that thread is dedicated to the connection anyway.
+ * <p>
+ * Every asynchronous worker is also an {@link IWebWorker}, which processes the request on
+ * the calling thread and waits for it, so it can be used wherever a blocking worker is expected.
+ *
+ * @author stipe
+ *
+ */
+public interface IAsyncWebWorker extends IWebWorker {
+
+	/**
+	 * Starts the processing of the request.
+	 *
+	 * @param context context of the process
+	 * @param executor executor of CPU-heavy work
+	 * @return future completed once the response has been written
+	 */
+	public CompletableFuture<Void> processRequestAsync(RequestContext context, Executor executor);
+
+	@Override
+	public default void processRequest(RequestContext context) throws Exception {
+		await(processRequestAsync(context, Runnable::run));
+	}
+
+	/**
+	 * Waits for the given future and rethrows the exception it has failed with.
+	 *
+	 * @param future future
+	 * @throws Exception exception of the failed future
+	 */
+	public static void await(CompletableFuture<Void> future) throws Exception {
+		try {
+			future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package hr.fer.zemris.java.webserver;
+
+/**
+ * Web worker whose response depends only on the request path and on the declared
+ * request parameters. Its successful responses are kept in the {@link ResponseCache}
+ * and served from it without invoking the worker, until they expire.
+ * <p>
+ * Effects of the worker other than its response, such as changes of persistent
+ * parameters, aren't repeated for cached responses, so workers having those mustn't
+ * be cacheable. Responses which set cookies of their own are never cached.
+ *
+ * @author stipe
+ *
+ */
+public interface ICacheableWebWorker extends IWebWorker {
+
+	/**
+	 * Returns the names of the request parameters the response depends on.
+	 *
+	 * @return names of the parameters of the cache key
+	 */
+	public String[] getCacheKeyParameters();
+
+	/**
+	 * Returns the time for which a response is cached.
+	 *
+	 * @return time to live in seconds
+	 */
+	public int getCacheTtl();
+}
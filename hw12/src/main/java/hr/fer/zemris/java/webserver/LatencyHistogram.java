@@ -0,0 +1,149 @@
+package hr.fer.zemris.java.webserver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds with log-linear buckets: every power of two
+ * is split into eight equal buckets, so any recorded value is known with a relative error
+ * of at most 12.5%, regardless of its magnitude. Recording is lock-free and takes
+ * constant time, and the histogram has a fixed size.
+ *
+ * @author stipe
+ *
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Number of bits of a value, following its highest set bit, which determine the sub-bucket.
+	 */
+	private static final int SUB_BUCKET_BITS = 3;
+	/**
+	 * Number of buckets per power of two.
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/**
+	 * Number of buckets, which is enough for all non-negative long values.
+	 */
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	/**
+	 * Number of values in each bucket.
+	 */
+	private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	/**
+	 * Number of recorded values.
+	 */
+	private LongAdder count = new LongAdder();
+	/**
+	 * Sum of recorded values.
+	 */
+	private LongAdder sum = new LongAdder();
+
+	/**
+	 * Records the given latency. Negative values are recorded as 0.
+	 *
+	 * @param nanos latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(index(value));
+		count.increment();
+		sum.add(value);
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 *
+	 * @return number of values
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the sum of recorded values.
+	 *
+	 * @return sum in nanoseconds
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * Returns the number of recorded values which are at most the given value.
+	 * Values in the bucket containing the given value are counted only if the whole
+	 * bucket is at most the given value.
+	 *
+	 * @param nanos upper bound in nanoseconds
+	 * @return number of values
+	 */
+	public long countAtMost(long nanos) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS && upperBound(i) <= nanos; i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the value below which the given fraction of recorded values lies,
+	 * which is the upper bound of the bucket containing that value.
+	 *
+	 * @param quantile fraction between 0 and 1
+	 * @return value in nanoseconds, or 0 if nothing has been recorded
+	 */
+	public long getValueAtQuantile(double quantile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return upperBound(BUCKETS - 1);
+	}
+
+	/**
+	 * Returns the index of the bucket of the given value.
+	 *
+	 * @param value non-negative value
+	 * @return index of the bucket
+	 */
+	static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Returns the largest value of the given bucket.
+	 *
+	 * @param index index of the bucket
+	 * @return largest value
+	 */
+	static long upperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long subBucket = index % SUB_BUCKETS;
+		long next = (SUB_BUCKETS + subBucket + 1) << shift;
+		// The last bucket ends with the largest long value.
+		return next <= 0 ? Long.MAX_VALUE : next - 1;
+	}
+}
@@ -0,0 +1,67 @@
+package hr.fer.zemris.java.webserver;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Built-in worker exposing the metrics of a {@link SmartHttpServer} in the Prometheus
+ * text exposition format. Besides the request metrics, the counters of the static file
+ * cache, the response cache, the script cache and the session store are exposed.
+ *
+ * @author stipe
+ *
+ */
+public class MetricsWorker implements IWebWorker {
+
+	/**
+	 * Server whose metrics are exposed.
+	 */
+	private SmartHttpServer server;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param server {@link #server}
+	 */
+	public MetricsWorker(SmartHttpServer server) {
+		this.server = server;
+	}
+
+	@Override
+	public void processRequest(RequestContext context) throws Exception {
+		StringBuilder sb = new StringBuilder(8192);
+		server.getMetrics().writePrometheus(sb);
+
+		StaticFileCache staticFiles = server.getStaticFileCache();
+		ServerMetrics.counter(sb, "smarthttp_static_cache_hits_total", "Static file cache hits.", staticFiles.getHits());
+		ServerMetrics.counter(sb, "smarthttp_static_cache_misses_total", "Static file cache misses.", staticFiles.getMisses());
+		ServerMetrics.counter(sb, "smarthttp_static_cache_evictions_total", "Static files evicted from the cache.",
+				staticFiles.getEvictions());
+		ServerMetrics.gauge(sb, "smarthttp_static_cache_bytes", "Bytes of cached static files.", staticFiles.getCachedBytes());
+		ServerMetrics.gauge(sb, "smarthttp_static_cache_files", "Number of cached static files.", staticFiles.getCachedFiles());
+
+		ResponseCache responses = server.getResponseCache();
+		if (responses != null) {
+			ServerMetrics.counter(sb, "smarthttp_response_cache_hits_total", "Response cache hits.", responses.getHits());
+			ServerMetrics.counter(sb, "smarthttp_response_cache_misses_total", "Response cache misses.", responses.getMisses());
+			ServerMetrics.counter(sb, "smarthttp_response_cache_evictions_total", "Responses evicted from the cache.",
+					responses.getEvictions());
+			ServerMetrics.gauge(sb, "smarthttp_response_cache_bytes", "Bytes of cached responses.", responses.getCachedBytes());
+		}
+
+		ScriptCache scripts = server.getScriptCache();
+		ServerMetrics.counter(sb, "smarthttp_script_cache_hits_total", "Script cache hits.", scripts.getHits());
+		ServerMetrics.counter(sb, "smarthttp_script_cache_misses_total", "Scripts compiled on a cache miss.", scripts.getMisses());
+		ServerMetrics.gauge(sb, "smarthttp_script_cache_scripts", "Number of compiled scripts.", scripts.size());
+
+		SessionStore sessions = server.getSessionStore();
+		ServerMetrics.gauge(sb, "smarthttp_sessions", "Number of sessions.", sessions.size());
+		ServerMetrics.counter(sb, "smarthttp_sessions_created_total", "Created sessions.", sessions.getCreated());
+		ServerMetrics.counter(sb, "smarthttp_sessions_expired_total", "Expired sessions.", sessions.getExpired());
+		ServerMetrics.counter(sb, "smarthttp_sessions_evicted_total", "Sessions evicted over the limit.", sessions.getEvicted());
+
+		byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+		context.setMimeType("text/plain");
+		context.setContentLength((long) body.length);
+		context.write(body);
+	}
+}
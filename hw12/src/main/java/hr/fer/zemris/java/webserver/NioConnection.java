@@ -0,0 +1,632 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import hr.fer.zemris.java.webserver.HttpHeaderParser.HeaderTooLargeException;
+
+/**
+ * Class representing a single client connection served by the selector based
+ * event loop of {@link SmartHttpServer}.
+ * <p>
+ * Request header bytes are accumulated on the event loop, so a slow or idle client
+ * never occupies a worker thread. Once a complete header has been received it is
+ * handed to the request handler, and everything the worker writes is queued and written
+ * by the event loop as the socket becomes writable. Regions of files are queued
+ * as well and transferred directly from the file to the socket.
+ * <p>
+ * Only one request is processed at a time. Pipelined requests stay buffered until
+ * {@link #requestDone(boolean)} is called, so the responses are written in the order
+ * in which the requests were received.
+ * <p>
+ * Methods {@link #onReadable()}, {@link #writePending()}, {@link #isIdleSince(long)} and
+ * {@link #closeNow()} may only be called from the event loop, while the output stream,
+ * {@link #requestDone(boolean)}, {@link #close()} and {@link #abort()} are used by other threads.
+ *
+ * @author stipe
+ *
+ */
+class NioConnection {
+
+	/**
+	 * Maximum number of queued output bytes after which a writing worker waits.
+	 */
+	private static final int MAX_PENDING_BYTES = 256 * 1024;
+	/**
+	 * Size of a single output chunk.
+	 */
+	private static final int OUTPUT_CHUNK_SIZE = 8 * 1024;
+	/**
+	 * Response sent when the request header is too large.
+	 */
+	private static final byte[] HEADER_TOO_LARGE_RESPONSE = (
+			"HTTP/1.1 431 Request Header Fields Too Large\r\n" +
+			"Content-Length: 0\r\n" +
+			"Connection: close\r\n" +
+			"\r\n").getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Client channel.
+	 */
+	private SocketChannel channel;
+	/**
+	 * Selection key of the channel.
+	 */
+	private SelectionKey key;
+	/**
+	 * Executor running tasks on the event loop.
+	 */
+	private Executor loop;
+	/**
+	 * Handler to which complete request headers are passed.
+	 */
+	private Consumer<HttpRequestHeader> requestHandler;
+	/**
+	 * Listener notified of the status code of every request rejected by this connection itself, or null.
+	 */
+	private IntConsumer rejectionListener;
+	/**
+	 * Parser holding the received, but not yet processed bytes.
+	 */
+	private HttpHeaderParser parser;
+	/**
+	 * Flag showing whether a request is currently being processed.
+	 */
+	private boolean processing;
+	/**
+	 * Number of requests received over this connection.
+	 */
+	private volatile int requestCount;
+	/**
+	 * Time of the last activity on this connection in milliseconds.
+	 */
+	private long lastActive = System.currentTimeMillis();
+	/**
+	 * Output waiting to be written.
+	 */
+	private Queue<PendingOutput> pending = new ConcurrentLinkedQueue<>();
+	/**
+	 * Number of buffered bytes waiting to be written. Regions of files aren't counted,
+	 * as they don't occupy the heap.
+	 */
+	private long pendingBytes;
+	/**
+	 * Lock guarding {@link #pendingBytes}.
+	 */
+	private final Object pendingLock = new Object();
+	/**
+	 * Flag showing whether the connection should be closed once the output is written.
+	 */
+	private volatile boolean closeRequested;
+	/**
+	 * Flag showing whether the connection has been closed.
+	 */
+	private volatile boolean closed;
+	/**
+	 * Output stream used by the workers.
+	 */
+	private OutputStream outputStream = new ConnectionOutputStream();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param channel {@link #channel}
+	 * @param loop {@link #loop}
+	 * @param maxHeaderSize maximum size of a request header in bytes
+	 */
+	public NioConnection(SocketChannel channel, Executor loop, int maxHeaderSize) {
+		this.channel = channel;
+		this.loop = loop;
+		this.parser = new HttpHeaderParser(maxHeaderSize);
+	}
+
+	/**
+	 * Sets the selection key of this connection.
+	 *
+	 * @param key {@link #key}
+	 */
+	public void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	/**
+	 * Sets the handler to which complete request headers are passed.
+	 * The handler is called from the event loop.
+	 * 
+	 * @param requestHandler {@link #requestHandler}
+	 */
+	public void setRequestHandler(Consumer<HttpRequestHeader> requestHandler) {
+		this.requestHandler = requestHandler;
+	}
+
+	/**
+	 * Sets the listener notified of the status code of every request rejected by this connection,
+	 * such as a request whose header is too large. The listener is called from the event loop.
+	 * 
+	 * @param rejectionListener {@link #rejectionListener}
+	 */
+	public void setRejectionListener(IntConsumer rejectionListener) {
+		this.rejectionListener = rejectionListener;
+	}
+
+	/**
+	 * Returns the number of requests received over this connection.
+	 * 
+	 * @return {@link #requestCount}
+	 */
+	public int getRequestCount() {
+		return requestCount;
+	}
+
+	/**
+	 * Returns the address of the client.
+	 *
+	 * @return address of the client, or null if the connection is closed
+	 */
+	public InetAddress getRemoteAddress() {
+		return channel.socket().getInetAddress();
+	}
+
+	/**
+	 * Returns the stream through which the response is written.
+	 *
+	 * @return {@link #outputStream}
+	 */
+	public OutputStream getOutputStream() {
+		return outputStream;
+	}
+
+	/**
+	 * Reads the available bytes from the channel and passes the request
+	 * to the request handler once its header is complete.
+	 *
+	 * @throws IOException if the client closed the connection
+	 */
+	public void onReadable() throws IOException {
+		if (parser.fill(channel) == -1) {
+			throw new IOException("Connection closed by client.");
+		}
+		lastActive = System.currentTimeMillis();
+		dispatchNext();
+	}
+
+	/**
+	 * Called by the worker once the response to the current request has been written.
+	 * A persistent connection continues with the next buffered request, or waits for one,
+	 * while any other connection is closed once its output has been written.
+	 *
+	 * @param keepAlive whether the connection should be kept open
+	 * @throws IOException in case of an I/O error
+	 */
+	public void requestDone(boolean keepAlive) throws IOException {
+		if (!keepAlive) {
+			close();
+			return;
+		}
+
+		outputStream.flush();
+		loop.execute(() -> {
+			processing = false;
+			lastActive = System.currentTimeMillis();
+			try {
+				dispatchNext();
+				if (!processing && key.isValid()) {
+					key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+				}
+			} catch (IOException e) {
+				closeNow();
+			}
+		});
+	}
+
+	/**
+	 * Checks whether the connection has been idle since the given time.
+	 * A connection is idle while it isn't processing a request and has nothing to write.
+	 *
+	 * @param time time in milliseconds
+	 * @return true if the connection has been idle since the given time
+	 */
+	public boolean isIdleSince(long time) {
+		return !processing && pending.isEmpty() && lastActive < time;
+	}
+
+	/**
+	 * Passes the next complete request to the request handler, if one has been received.
+	 * A request whose header is too large is rejected and the connection is closed.
+	 *
+	 * @throws IOException in case of an I/O error
+	 */
+	private void dispatchNext() throws IOException {
+		if (processing) return;
+		
+		HttpRequestHeader header;
+		try {
+			header = parser.nextHeader();
+		} catch (HeaderTooLargeException e) {
+			if (rejectionListener != null) {
+				rejectionListener.accept(431);
+			}
+			reject(HEADER_TOO_LARGE_RESPONSE);
+			return;
+		}
+		if (header == null) return;
+
+		processing = true;
+		requestCount++;
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+		requestHandler.accept(header);
+	}
+
+	/**
+	 * Sends the given complete response and closes the connection without reading
+	 * any further requests. Has to be called from the event loop, so the response is queued
+	 * without waiting for the queue to drain, as only the event loop drains it.
+	 *
+	 * @param response response, including the header
+	 * @throws IOException in case of an I/O error
+	 */
+	public void reject(byte[] response) throws IOException {
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+		offer(new BufferOutput(ByteBuffer.wrap(response)));
+		closeRequested = true;
+		writePending();
+	}
+
+	/**
+	 * Writes as much queued output as the channel accepts.
+	 *
+	 * @throws IOException in case of an I/O error
+	 */
+	public void writePending() throws IOException {
+		PendingOutput output;
+		while ((output = pending.peek()) != null) {
+			if (!output.writeTo(channel)) {
+				key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+				return;
+			}
+			pending.poll();
+		}
+
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+		if (closeRequested) {
+			closeNow();
+		}
+	}
+
+	/**
+	 * Closes the connection once all queued bytes have been written.
+	 *
+	 * @throws IOException in case of an I/O error
+	 */
+	public void close() throws IOException {
+		outputStream.flush();
+		closeRequested = true;
+		loop.execute(this::writePendingQuietly);
+	}
+
+	/**
+	 * Closes the connection from a thread other than the event loop. Further writes fail at once
+	 * and writers waiting for the queue to drain are woken up, while the channel itself is closed
+	 * by the event loop.
+	 */
+	public void abort() {
+		closed = true;
+		synchronized (pendingLock) {
+			pendingLock.notifyAll();
+		}
+		loop.execute(this::closeNow);
+	}
+
+	/**
+	 * Immediately closes the connection. Has to be called from the event loop.
+	 */
+	public void closeNow() {
+		closed = true;
+		if (key != null) {
+			key.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException ignorable) {
+		}
+		discardPending();
+		synchronized (pendingLock) {
+			pendingLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Discards all queued output, closing the queued files.
+	 */
+	private void discardPending() {
+		PendingOutput output;
+		while ((output = pending.poll()) != null) {
+			output.discard();
+		}
+	}
+
+	/**
+	 * Writes the queued bytes, closing the connection on failure.
+	 */
+	private void writePendingQuietly() {
+		if (closed) return;
+		try {
+			writePending();
+		} catch (IOException e) {
+			closeNow();
+		}
+	}
+
+	/**
+	 * Queues the given output and waits if too many bytes are queued.
+	 * Must not be called from the event loop, which would wait for itself.
+	 *
+	 * @param output output to be written
+	 * @throws IOException if the connection is closed or the wait is interrupted
+	 */
+	private void enqueue(PendingOutput output) throws IOException {
+		offer(output);
+		loop.execute(this::writePendingQuietly);
+
+		synchronized (pendingLock) {
+			while (pendingBytes > MAX_PENDING_BYTES && !closed) {
+				try {
+					pendingLock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while writing.", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Queues the given output without waiting.
+	 *
+	 * @param output output to be written
+	 * @throws IOException if the connection is closed
+	 */
+	private void offer(PendingOutput output) throws IOException {
+		if (closed) {
+			output.discard();
+			throw new IOException("Connection is closed.");
+		}
+
+		synchronized (pendingLock) {
+			pendingBytes += output.bufferedBytes();
+		}
+		pending.add(output);
+		if (closed) {
+			// The connection was closed concurrently, so nothing will write the output.
+			discardPending();
+			throw new IOException("Connection is closed.");
+		}
+	}
+
+	/**
+	 * Marks the given number of bytes as written.
+	 *
+	 * @param count number of written bytes
+	 */
+	private void released(int count) {
+		synchronized (pendingLock) {
+			pendingBytes -= count;
+			if (pendingBytes <= MAX_PENDING_BYTES) {
+				pendingLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Output waiting to be written by the event loop.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private interface PendingOutput {
+		/**
+		 * Writes as much of the output as the channel accepts.
+		 *
+		 * @param channel client channel
+		 * @return true if the whole output has been written
+		 * @throws IOException in case of an I/O error
+		 */
+		boolean writeTo(SocketChannel channel) throws IOException;
+
+		/**
+		 * Returns the number of heap bytes occupied by this output.
+		 *
+		 * @return number of bytes
+		 */
+		int bufferedBytes();
+
+		/**
+		 * Releases the resources of output which won't be written.
+		 */
+		void discard();
+	}
+
+	/**
+	 * Chunk of buffered bytes.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private class BufferOutput implements PendingOutput {
+		/**
+		 * Buffered bytes.
+		 */
+		private ByteBuffer buffer;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param buffer {@link #buffer}
+		 */
+		public BufferOutput(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public boolean writeTo(SocketChannel channel) throws IOException {
+			released(channel.write(buffer));
+			return !buffer.hasRemaining();
+		}
+
+		@Override
+		public int bufferedBytes() {
+			return buffer.remaining();
+		}
+
+		@Override
+		public void discard() {
+		}
+	}
+
+	/**
+	 * Region of a file transferred directly to the channel.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private static class FileRegion implements PendingOutput {
+		/**
+		 * File channel.
+		 */
+		private FileChannel file;
+		/**
+		 * Position of the next byte to be written.
+		 */
+		private long position;
+		/**
+		 * End of the region.
+		 */
+		private long end;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param file {@link #file}
+		 * @param position {@link #position}
+		 * @param count number of bytes in the region
+		 */
+		public FileRegion(FileChannel file, long position, long count) {
+			this.file = file;
+			this.position = position;
+			this.end = position + count;
+		}
+
+		@Override
+		public boolean writeTo(SocketChannel channel) throws IOException {
+			try {
+				while (position < end) {
+					long transferred = file.transferTo(position, end - position, channel);
+					if (transferred <= 0) {
+						if (position >= file.size()) {
+							throw new IOException("File has been truncated while being sent.");
+						}
+						return false;
+					}
+					position += transferred;
+				}
+			} catch (IOException e) {
+				discard();
+				throw e;
+			}
+			discard();
+			return true;
+		}
+
+		@Override
+		public int bufferedBytes() {
+			return 0;
+		}
+
+		@Override
+		public void discard() {
+			try {
+				file.close();
+			} catch (IOException ignorable) {
+			}
+		}
+	}
+
+	/**
+	 * Output stream which splits the written bytes into chunks
+	 * that are queued for writing by the event loop.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private class ConnectionOutputStream extends OutputStream implements FileRegionOutput, SharedBufferOutput {
+		/**
+		 * Chunk currently being filled.
+		 */
+		private ByteBuffer chunk = ByteBuffer.allocate(OUTPUT_CHUNK_SIZE);
+
+		@Override
+		public void write(int b) throws IOException {
+			if (!chunk.hasRemaining()) {
+				flush();
+			}
+			chunk.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len >= OUTPUT_CHUNK_SIZE) {
+				flush();
+				// The caller may reuse the array once this returns, so it is copied.
+				enqueue(new BufferOutput(ByteBuffer.wrap(Arrays.copyOfRange(b, off, off + len))));
+				return;
+			}
+			if (len > chunk.remaining()) {
+				flush();
+			}
+			chunk.put(b, off, len);
+		}
+
+		@Override
+		public void writeShared(byte[] b, int off, int len) throws IOException {
+			if (len < OUTPUT_CHUNK_SIZE) {
+				write(b, off, len);
+				return;
+			}
+			flush();
+			enqueue(new BufferOutput(ByteBuffer.wrap(b, off, len)));
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (chunk.position() == 0) return;
+
+			chunk.flip();
+			ByteBuffer full = chunk;
+			chunk = ByteBuffer.allocate(OUTPUT_CHUNK_SIZE);
+			enqueue(new BufferOutput(full));
+		}
+
+		@Override
+		public void writeFileRegion(FileChannel file, long position, long count) throws IOException {
+			try {
+				flush();
+			} catch (IOException e) {
+				file.close();
+				throw e;
+			}
+			enqueue(new FileRegion(file, position, count));
+		}
+	}
+}
@@ -1,12 +1,24 @@
 package hr.fer.zemris.java.webserver;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -37,11 +49,36 @@ public class RequestContext {
 	 * Default mime type.
 	 */
 	private static final String DEFAULT_MIME_TYPE = "text/html";
+	/**
+	 * Size of the buffer into which text is encoded, and of the chunks of a chunked body.
+	 */
+	private static final int BUFFER_SIZE = 8192;
 	
 	/**
 	 * Context output stream.
 	 */
 	private OutputStream outputStream;
+	/**
+	 * Stream to which the body is written, which is {@link #outputStream},
+	 * {@link #chunkedStream} or {@link #compressingStream}.
+	 */
+	private OutputStream bodyStream;
+	/**
+	 * Stream writing a body of unknown length in chunks, created when first needed.
+	 */
+	private ChunkedOutputStream chunkedStream;
+	/**
+	 * Stream compressing a body of unknown length, created when first needed.
+	 */
+	private CompressingOutputStream compressingStream;
+	/**
+	 * Encoder of {@link #charset}, reused by all writes of text.
+	 */
+	private CharsetEncoder encoder;
+	/**
+	 * Buffer into which text is encoded.
+	 */
+	private ByteBuffer encoded;
 	/**
 	 * Current charset.
 	 */
@@ -82,6 +119,10 @@ public class RequestContext {
 	 * List of cookies.
 	 */
 	private List<RCCookie> outputCookies;
+	/**
+	 * Additional response headers.
+	 */
+	private Map<String, String> headers = new LinkedHashMap<>();
 	/**
 	 * Flag showing whether or not a header has already been generated.
 	 */
@@ -94,6 +135,42 @@ public class RequestContext {
 	 * Session id.
 	 */
 	private String sid;
+	/**
+	 * Flag showing whether the connection is kept open after this response.
+	 */
+	private boolean keepAlive;
+	/**
+	 * Flag showing whether a body of unknown length can be sent using the chunked transfer coding.
+	 */
+	private boolean chunkingAllowed;
+	/**
+	 * Flag showing whether the body is being sent using the chunked transfer coding.
+	 */
+	private boolean chunked;
+	/**
+	 * Flag showing whether bodies of unknown length can be compressed.
+	 */
+	private boolean compressionEnabled;
+	/**
+	 * Content coding accepted by the client, or null if it doesn't accept compressed bodies.
+	 */
+	private String compression;
+	/**
+	 * Flag showing whether the body is being compressed.
+	 */
+	private boolean compressed;
+	/**
+	 * Buffer into which the body of a captured response is written, or null if the response isn't captured.
+	 */
+	private ByteArrayOutputStream capture;
+	/**
+	 * Number of cookies added before the response started being captured.
+	 */
+	private int capturedCookies;
+	/**
+	 * Called once the header of a response has been written to the output stream, or null.
+	 */
+	private Runnable headerListener;
 
 	/**
 	 * Constructor.
@@ -107,6 +184,7 @@ public class RequestContext {
 			Map<String, String> persistentParameters, List<RCCookie> outputCookies) {
 		
 		this.outputStream = Objects.requireNonNull(outputStream, "Output stream mustn't be null!");
+		this.bodyStream = outputStream;
 		this.parameters = initProperty(parameters, HashMap::new);
 		this.persistentParameters = initProperty(persistentParameters, HashMap::new);
 		this.outputCookies = initProperty(outputCookies, ArrayList::new);
@@ -139,6 +217,161 @@ public class RequestContext {
 		this.sid = sid;
 	}
 
+	/**
+	 * Prepares this context for the next request received over the same connection.
+	 * Parameters and cookies are cleared and all response properties are set to their
+	 * default values, so a single context can serve all requests of a persistent connection.
+	 */
+	void reset() {
+		parameters.clear();
+		temporaryParameters.clear();
+		outputCookies.clear();
+		headers.clear();
+		
+		encoding = DEFAULT_ENCODING;
+		statusCode = DEFAULT_STATUS_CODE;
+		statusText = DEFAULT_STATUS_TEXT;
+		mimeType = DEFAULT_MIME_TYPE;
+		charset = null;
+		contentLength = null;
+		headerGenerated = false;
+		keepAlive = false;
+		chunkingAllowed = false;
+		chunked = false;
+		compressionEnabled = false;
+		compression = null;
+		compressed = false;
+		bodyStream = outputStream;
+		capture = null;
+		if (chunkedStream != null) {
+			chunkedStream.reset();
+		}
+		if (compressingStream != null) {
+			compressingStream.reset();
+		}
+	}
+
+	/**
+	 * Releases the resources of this context once its connection has been closed.
+	 */
+	void release() {
+		if (compressingStream != null) {
+			compressingStream.end();
+			compressingStream = null;
+		}
+	}
+
+	/**
+	 * Sets the session of the current request.
+	 * 
+	 * @param sid {@link #sid}
+	 * @param persistentParameters {@link #persistentParameters}
+	 */
+	void setSession(String sid, Map<String, String> persistentParameters) {
+		this.sid = sid;
+		this.persistentParameters = persistentParameters;
+	}
+
+	/**
+	 * Sets whether the connection should be kept open after this response.
+	 * The connection is closed regardless if the length of the response isn't known.
+	 * 
+	 * @param keepAlive {@link #keepAlive}
+	 */
+	void setKeepAlive(boolean keepAlive) {
+		checkHeader();
+		this.keepAlive = keepAlive;
+	}
+
+	/**
+	 * Sets the listener which is called once the header of a response has been written
+	 * to the output stream, that is, once the body starts being sent.
+	 * 
+	 * @param headerListener {@link #headerListener}
+	 */
+	void setHeaderListener(Runnable headerListener) {
+		this.headerListener = headerListener;
+	}
+
+	/**
+	 * Sets whether a body of unknown length can be sent using the chunked transfer coding,
+	 * which is supported only by HTTP/1.1 clients. Otherwise the end of such a body
+	 * is marked by closing the connection.
+	 * 
+	 * @param chunkingAllowed {@link #chunkingAllowed}
+	 */
+	void setChunkingAllowed(boolean chunkingAllowed) {
+		checkHeader();
+		this.chunkingAllowed = chunkingAllowed;
+	}
+
+	/**
+	 * Sets whether a body of unknown length with a compressible mime type is compressed.
+	 * Bodies of known length, such as static files, are sent as they are.
+	 * 
+	 * @param enabled {@link #compressionEnabled}
+	 * @param compression {@link #compression}, {@code gzip}, {@code deflate} or null
+	 */
+	void setCompression(boolean enabled, String compression) {
+		checkHeader();
+		this.compressionEnabled = enabled;
+		this.compression = compression;
+	}
+
+	/**
+	 * Returns whether the connection is kept open after this response.
+	 * 
+	 * @return {@link #keepAlive}
+	 */
+	boolean isKeepAlive() {
+		return keepAlive;
+	}
+
+	/**
+	 * Completes the response. If nothing has been written, an empty response is sent.
+	 * 
+	 * @throws IOException in case of an I/O error
+	 */
+	void finish() throws IOException {
+		if (!headerGenerated) {
+			if (contentLength == null) contentLength = 0L;
+			constructHeader();
+		}
+		if (compressed) {
+			compressingStream.finish();
+		}
+		if (chunked) {
+			chunkedStream.finish();
+		}
+		outputStream.flush();
+	}
+
+	/**
+	 * Starts capturing the response, so it can be cached. The header isn't sent and the body
+	 * is kept in memory, until the response is taken with {@link #endCapture()}.
+	 */
+	void startCapture() {
+		checkHeader();
+		capture = new ByteArrayOutputStream();
+		capturedCookies = outputCookies.size();
+	}
+
+	/**
+	 * Stops capturing the response and returns it. Properties of the response can be set
+	 * again afterwards, so the captured response can be written with {@link ResponseCache.Response#replay}.
+	 * 
+	 * @return captured response
+	 */
+	ResponseCache.Response endCapture() {
+		ResponseCache.Response response = new ResponseCache.Response(statusCode, statusText, mimeType,
+				encoding, contentLength, new LinkedHashMap<>(headers), capture.toByteArray(),
+				outputCookies.size() > capturedCookies);
+		capture = null;
+		headerGenerated = false;
+		bodyStream = outputStream;
+		return response;
+	}
+
 	/**
 	 * Initializes the property.
 	 * 
@@ -274,6 +507,25 @@ public class RequestContext {
 		this.statusCode = statusCode;
 	}
 
+	/**
+	 * Returns the status code.
+	 * 
+	 * @return {@link #statusCode}
+	 */
+	int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Returns the charset in which text is written. Once the header has been generated it can't change,
+	 * so text encoded in this charset can be written with {@link #write(byte[])}.
+	 * 
+	 * @return charset of the response
+	 */
+	public Charset getCharset() {
+		return headerGenerated ? charset : Charset.forName(encoding);
+	}
+
 	/**
 	 * Sets status text.
 	 * 
@@ -304,6 +556,31 @@ public class RequestContext {
 		this.contentLength = contentLength;
 	}
 
+	/**
+	 * Adds a header to the response, replacing any previously added header with the same name.
+	 * 
+	 * @param name header name
+	 * @param value header value
+	 */
+	public void addHeader(String name, String value) {
+		checkHeader();
+		headers.put(name, value);
+	}
+
+	/**
+	 * Sends everything written so far to the client, generating the header if necessary.
+	 * If the length of the content isn't known, the properties of the response can't
+	 * be changed afterwards.
+	 * 
+	 * @throws IOException in case of an I/O error
+	 */
+	public void flush() throws IOException {
+		if (!headerGenerated) {
+			constructHeader();
+		}
+		bodyStream.flush();
+	}
+
 	/**
 	 * Checks if header has already been generated.
 	 */
@@ -346,7 +623,78 @@ public class RequestContext {
 		if (!headerGenerated) {
 			constructHeader();
 		}
-		outputStream.write(data, offset, len);
+		bodyStream.write(data, offset, len);
+		return this;
+	}
+	
+	/**
+	 * Writes the given bytes, which are never modified, such as cached contents. If the output
+	 * supports it, the bytes are sent without being copied, so the array mustn't be modified afterwards.
+	 * 
+	 * @param data bytes to be written
+	 * @return this instance of context
+	 * @throws IOException
+	 */
+	public RequestContext writeShared(byte[] data) throws IOException {
+		return writeShared(data, 0, data.length);
+	}
+	
+	/**
+	 * Writes the given bytes, which are never modified, such as cached contents. If the output
+	 * supports it, the bytes are sent without being copied, so the array mustn't be modified afterwards.
+	 * 
+	 * @param data bytes to be written
+	 * @param offset offset
+	 * @param len length of bytes
+	 * @return this instance of context
+	 * @throws IOException
+	 */
+	public RequestContext writeShared(byte[] data, int offset, int len) throws IOException {
+		if (!headerGenerated) {
+			constructHeader();
+		}
+		if (bodyStream instanceof SharedBufferOutput) {
+			((SharedBufferOutput) bodyStream).writeShared(data, offset, len);
+		} else {
+			bodyStream.write(data, offset, len);
+		}
+		return this;
+	}
+	
+	/**
+	 * Writes the given region of a file. If the output supports it, the region is sent
+	 * directly from the file, so it is never loaded onto the heap.
+	 * 
+	 * @param file file
+	 * @param position position of the first byte
+	 * @param count number of bytes
+	 * @return this instance of context
+	 * @throws IOException
+	 */
+	public RequestContext write(Path file, long position, long count) throws IOException {
+		if (!headerGenerated) {
+			constructHeader();
+		}
+		if (count == 0) {
+			return this;
+		}
+		
+		FileChannel fc = FileChannel.open(file, StandardOpenOption.READ);
+		if (bodyStream instanceof FileRegionOutput) {
+			((FileRegionOutput) bodyStream).writeFileRegion(fc, position, count);
+			return this;
+		}
+		
+		try (fc) {
+			WritableByteChannel target = Channels.newChannel(bodyStream);
+			for (long end = position + count; position < end; ) {
+				long transferred = fc.transferTo(position, end - position, target);
+				if (transferred <= 0) {
+					throw new IOException("File has been truncated while being sent.");
+				}
+				position += transferred;
+			}
+		}
 		return this;
 	}
 	
@@ -357,28 +705,109 @@ public class RequestContext {
 	 */
 	private void constructHeader() throws IOException {
 		charset = Charset.forName(encoding);
+		if (capture != null) {
+			// The header of a captured response is sent once the response is written again.
+			bodyStream = capture;
+			headerGenerated = true;
+			return;
+		}
 		StringBuilder sb = new StringBuilder("HTTP/1.1 " + statusCode + " " + statusText + "\r\n");
 		sb.append("Content-Type: " + mimeType);
 		if (mimeType.startsWith("text/")) sb.append("; charset=" + encoding);
 		sb.append("\r\n");
 		if (contentLength != null) sb.append("Content-Length: " + contentLength + "\r\n");
+		boolean compressible = compressionEnabled && contentLength == null && Compression.isCompressible(mimeType);
+		compressed = compressible && compression != null;
+		if (compressed) sb.append("Content-Encoding: " + compression + "\r\n");
+		if (compressible) sb.append("Vary: Accept-Encoding\r\n");
+		chunked = contentLength == null && chunkingAllowed;
+		if (chunked) sb.append("Transfer-Encoding: chunked\r\n");
+		// Without a known length or chunks the end of the response is marked by closing the connection.
+		if (contentLength == null && !chunked) keepAlive = false;
+		sb.append("Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n");
+		headers.forEach((name, value) -> sb.append(name + ": " + value + "\r\n"));
 		outputCookies.forEach(c -> sb.append(c.toString()));
 		sb.append("\r\n");
 		outputStream.write(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
 		headerGenerated = true;
+		if (headerListener != null) {
+			headerListener.run();
+		}
+		
+		if (chunked) {
+			if (chunkedStream == null) {
+				chunkedStream = new ChunkedOutputStream(outputStream, BUFFER_SIZE);
+			}
+			bodyStream = chunkedStream;
+		}
+		if (compressed) {
+			if (compressingStream == null) {
+				compressingStream = new CompressingOutputStream(BUFFER_SIZE);
+			}
+			compressingStream.start(bodyStream, compression.equals(Compression.GZIP));
+			bodyStream = compressingStream;
+		}
 	}
 	
 	/**
-	 * Writes the given string.
+	 * Writes the given string. The string is encoded piece by piece into a buffer which is
+	 * reused by all writes, so no copy of the encoded string is ever made.
 	 * 
 	 * @param text string to be written
 	 * @return this instance of cntext
 	 * @throws IOException
 	 */
 	public RequestContext write(String text) throws IOException {
-		// If charset hasn't been initialized in header construction yet, uses encoding string.
-		return charset == null ? write(text.getBytes(encoding)) 
-							   : write(text.getBytes(charset));
+		if (!headerGenerated) {
+			constructHeader();
+		}
+		
+		CharsetEncoder encoder = encoder();
+		encoder.reset();
+		CharBuffer in = CharBuffer.wrap(text);
+		boolean flushed = false;
+		while (true) {
+			CoderResult result = flushed ? encoder.flush(encoded) : encoder.encode(in, encoded, true);
+			if (result.isOverflow()) {
+				writeEncoded();
+			} else if (!flushed) {
+				flushed = true;
+			} else {
+				break;
+			}
+		}
+		writeEncoded();
+		return this;
+	}
+
+	/**
+	 * Returns the encoder of the current charset, creating it if the charset has changed.
+	 * Unmappable and malformed characters are replaced, just like {@link String#getBytes(Charset)} does.
+	 * 
+	 * @return encoder
+	 */
+	private CharsetEncoder encoder() {
+		if (encoder == null || !encoder.charset().equals(charset)) {
+			encoder = charset.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			if (encoded == null) {
+				encoded = ByteBuffer.allocate(BUFFER_SIZE);
+			}
+		}
+		return encoder;
+	}
+
+	/**
+	 * Writes and clears the content of the encoding buffer.
+	 * 
+	 * @throws IOException in case of an I/O error
+	 */
+	private void writeEncoded() throws IOException {
+		if (encoded.position() > 0) {
+			bodyStream.write(encoded.array(), 0, encoded.position());
+			encoded.clear();
+		}
 	}
 	
 	/**
@@ -0,0 +1,282 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of responses of {@link ICacheableWebWorker}s, keyed by the request path and
+ * the values of the parameters declared by the worker. The cache is limited by the total
+ * number of cached bytes, from which the least recently used responses are evicted first,
+ * and every response expires after the time to live of its worker.
+ * <p>
+ * Responses keep the body as written by the worker, before it is compressed or chunked,
+ * so a cached response is sent to every client in the way it accepts.
+ *
+ * @author stipe
+ *
+ */
+public class ResponseCache {
+
+	/**
+	 * Estimated number of bytes taken by a cached response apart from its body and key.
+	 */
+	private static final int ENTRY_OVERHEAD = 256;
+
+	/**
+	 * Maximum total number of cached bytes.
+	 */
+	private long maxBytes;
+	/**
+	 * Cached responses, in access order.
+	 */
+	private Map<String, Response> responses = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * Total number of cached bytes.
+	 */
+	private long cachedBytes;
+	/**
+	 * Number of requests served from the cache.
+	 */
+	private LongAdder hits = new LongAdder();
+	/**
+	 * Number of requests for which the worker had to be invoked.
+	 */
+	private LongAdder misses = new LongAdder();
+	/**
+	 * Number of evicted responses.
+	 */
+	private LongAdder evictions = new LongAdder();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxBytes {@link #maxBytes}
+	 */
+	public ResponseCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Builds the cache key of a request to the given worker.
+	 *
+	 * @param path request path
+	 * @param worker worker serving the path
+	 * @param context context of the request
+	 * @return cache key
+	 */
+	public static String key(String path, ICacheableWebWorker worker, RequestContext context) {
+		StringBuilder sb = new StringBuilder(path);
+		for (String name : worker.getCacheKeyParameters()) {
+			String value = context.getParameter(name);
+			// Missing parameters are told apart from empty ones, as workers may treat them differently.
+			sb.append('\n').append(value == null ? "\0" : value);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Looks up the response cached under the given key.
+	 *
+	 * @param key cache key
+	 * @return response, or null if there is none or it has expired
+	 */
+	public Response get(String key) {
+		long now = System.nanoTime();
+		synchronized (responses) {
+			Response response = responses.get(key);
+			if (response != null && now - response.expires < 0) {
+				hits.increment();
+				return response;
+			}
+			if (response != null) {
+				responses.remove(key);
+				cachedBytes -= response.cachedSize;
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Caches the given response if it is a successful one without cookies of its own.
+	 *
+	 * @param key cache key
+	 * @param response response
+	 * @param ttl time to live in seconds
+	 */
+	public void put(String key, Response response, int ttl) {
+		if (response.statusCode != 200 || response.setsCookies || ttl <= 0) {
+			return;
+		}
+		response.expires = System.nanoTime() + ttl * 1_000_000_000L;
+		response.cachedSize = response.body.length + 2L * key.length() + ENTRY_OVERHEAD;
+		if (response.cachedSize > maxBytes) {
+			return;
+		}
+
+		synchronized (responses) {
+			Response previous = responses.put(key, response);
+			if (previous != null) {
+				cachedBytes -= previous.cachedSize;
+			}
+			cachedBytes += response.cachedSize;
+
+			Iterator<Response> it = responses.values().iterator();
+			while (cachedBytes > maxBytes && it.hasNext()) {
+				Response eldest = it.next();
+				it.remove();
+				cachedBytes -= eldest.cachedSize;
+				evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of requests served from the cache.
+	 *
+	 * @return number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of requests for which the worker had to be invoked.
+	 *
+	 * @return number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of responses evicted from the cache.
+	 *
+	 * @return number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the total number of cached bytes.
+	 *
+	 * @return number of bytes
+	 */
+	public long getCachedBytes() {
+		synchronized (responses) {
+			return cachedBytes;
+		}
+	}
+
+	/**
+	 * Returns the number of cached responses, including expired ones which haven't been requested since.
+	 *
+	 * @return number of responses
+	 */
+	public int size() {
+		synchronized (responses) {
+			return responses.size();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("hits=%d misses=%d evictions=%d responses=%d bytes=%d/%d",
+				getHits(), getMisses(), getEvictions(), size(), getCachedBytes(), maxBytes);
+	}
+
+	/**
+	 * Response captured from a worker, see {@link RequestContext#startCapture()}.
+	 *
+	 * @author stipe
+	 *
+	 */
+	public static class Response {
+		/**
+		 * Status code.
+		 */
+		private int statusCode;
+		/**
+		 * Status text.
+		 */
+		private String statusText;
+		/**
+		 * Mime type.
+		 */
+		private String mimeType;
+		/**
+		 * Encoding of the text of the body.
+		 */
+		private String encoding;
+		/**
+		 * Content length set by the worker, or null if it hasn't set it.
+		 */
+		private Long contentLength;
+		/**
+		 * Additional headers.
+		 */
+		private Map<String, String> headers;
+		/**
+		 * Body.
+		 */
+		private byte[] body;
+		/**
+		 * Flag showing whether the worker has added cookies to the response.
+		 */
+		private boolean setsCookies;
+		/**
+		 * Time in nanoseconds at which the cached response expires.
+		 */
+		private long expires;
+		/**
+		 * Number of bytes counted for the cached response.
+		 */
+		private long cachedSize;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param statusCode {@link #statusCode}
+		 * @param statusText {@link #statusText}
+		 * @param mimeType {@link #mimeType}
+		 * @param encoding {@link #encoding}
+		 * @param contentLength {@link #contentLength}
+		 * @param headers {@link #headers}
+		 * @param body {@link #body}
+		 * @param setsCookies {@link #setsCookies}
+		 */
+		Response(int statusCode, String statusText, String mimeType, String encoding, Long contentLength,
+				Map<String, String> headers, byte[] body, boolean setsCookies) {
+			this.statusCode = statusCode;
+			this.statusText = statusText;
+			this.mimeType = mimeType;
+			this.encoding = encoding;
+			this.contentLength = contentLength;
+			this.headers = headers;
+			this.body = body;
+			this.setsCookies = setsCookies;
+		}
+
+		/**
+		 * Writes this response to the given context, in the same way the worker did.
+		 *
+		 * @param context context of the request
+		 * @throws IOException in case of an I/O error
+		 */
+		public void replay(RequestContext context) throws IOException {
+			context.setStatusCode(statusCode);
+			context.setStatusText(statusText);
+			context.setMimeType(mimeType);
+			context.setEncoding(encoding);
+			context.setContentLength(contentLength);
+			headers.forEach(context::addHeader);
+			if (body.length > 0) {
+				context.writeShared(body);
+			}
+		}
+	}
+}
@@ -0,0 +1,258 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import hr.fer.zemris.java.custom.scripting.exec.SmartScriptCompiler;
+import hr.fer.zemris.java.custom.scripting.exec.SmartScriptProgram;
+import hr.fer.zemris.java.custom.scripting.parser.SmartScriptParser;
+import hr.fer.zemris.java.custom.scripting.parser.SmartScriptParserException;
+
+/**
+ * Cache of compiled smart scripts. Every script is parsed and compiled once and the
+ * program is shared by all worker threads, which is safe as programs are immutable.
+ * A script is compiled again once its modification time or size changes on disk.
+ * <p>
+ * All scripts of a directory tree can be compiled ahead of time, in parallel, so invalid
+ * scripts are found and valid ones are cached before any request is served.
+ *
+ * @author stipe
+ *
+ */
+public class ScriptCache {
+
+	/**
+	 * Compiled scripts.
+	 */
+	private Map<Path, Script> scripts = new ConcurrentHashMap<>();
+	/**
+	 * Number of lookups served from the cache.
+	 */
+	private LongAdder hits = new LongAdder();
+	/**
+	 * Number of lookups for which the script had to be compiled.
+	 */
+	private LongAdder misses = new LongAdder();
+
+	/**
+	 * Returns the compiled script at the given path, compiling it if it isn't cached or has changed.
+	 *
+	 * @param path path of the script
+	 * @return program, or null if there is no readable script at the given path
+	 * @throws IOException in case of an I/O error
+	 * @throws hr.fer.zemris.java.custom.scripting.parser.SmartScriptParserException if the script is invalid
+	 */
+	public SmartScriptProgram get(Path path) throws IOException {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			scripts.remove(path);
+			return null;
+		}
+		if (!attributes.isRegularFile() || !Files.isReadable(path)) {
+			return null;
+		}
+		long size = attributes.size();
+		long lastModified = attributes.lastModifiedTime().toMillis();
+
+		Script script = scripts.get(path);
+		if (script != null && script.size == size && script.lastModified == lastModified) {
+			hits.increment();
+			return script.program;
+		}
+
+		misses.increment();
+		SmartScriptProgram program;
+		// The script is parsed while it is read, so its whole text is never held in memory.
+		try (Reader reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8)) {
+			program = SmartScriptCompiler.compile(new SmartScriptParser(reader).getDocumentNode());
+		}
+		scripts.put(path, new Script(size, lastModified, program));
+		return program;
+	}
+
+	/**
+	 * Compiles all scripts, which are files with the {@code .smscr} extension, in the given
+	 * directory and its subdirectories, and caches them. Directories and scripts are
+	 * processed in parallel, by the common fork/join pool.
+	 *
+	 * @param root root directory
+	 * @return errors of the scripts which couldn't be compiled, ordered by path
+	 */
+	public List<ScriptError> precompile(Path root) {
+		List<ScriptError> errors = ForkJoinPool.commonPool().invoke(new PrecompileTask(root));
+		errors.sort(Comparator.comparing(ScriptError::getPath));
+		return errors;
+	}
+
+	/**
+	 * Returns the number of lookups served from the cache.
+	 *
+	 * @return number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups for which the script had to be compiled.
+	 *
+	 * @return number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of cached scripts.
+	 *
+	 * @return number of scripts
+	 */
+	public int size() {
+		return scripts.size();
+	}
+
+	/**
+	 * Task which compiles a script, or forks a task for every script and subdirectory
+	 * of a directory.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private class PrecompileTask extends RecursiveTask<List<ScriptError>> {
+
+		/**
+		 * Default serial ID.
+		 */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * Script or directory.
+		 */
+		private final Path path;
+		/**
+		 * Flag showing whether the path is a directory.
+		 */
+		private final boolean directory;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param path {@link #path}
+		 * @param directory {@link #directory}
+		 */
+		public PrecompileTask(Path path, boolean directory) {
+			this.path = path;
+			this.directory = directory;
+		}
+
+		/**
+		 * Constructor of the task of a directory.
+		 *
+		 * @param directory directory
+		 */
+		public PrecompileTask(Path directory) {
+			this(directory, true);
+		}
+
+		@Override
+		protected List<ScriptError> compute() {
+			return directory ? computeDirectory() : computeScript();
+		}
+
+		/**
+		 * Forks the tasks of all scripts and subdirectories of the directory.
+		 *
+		 * @return errors
+		 */
+		private List<ScriptError> computeDirectory() {
+			List<PrecompileTask> tasks = new ArrayList<>();
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+				for (Path entry : entries) {
+					if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+						tasks.add(new PrecompileTask(entry, true));
+					} else if (entry.getFileName().toString().endsWith(".smscr")) {
+						tasks.add(new PrecompileTask(entry, false));
+					}
+				}
+			} catch (IOException e) {
+				return new ArrayList<>(List.of(new ScriptError(path, 0, 0, "Couldn't read the directory: " + e)));
+			}
+
+			List<ScriptError> errors = new ArrayList<>();
+			for (PrecompileTask task : invokeAll(tasks)) {
+				errors.addAll(task.join());
+			}
+			return errors;
+		}
+
+		/**
+		 * Compiles the script.
+		 *
+		 * @return error of the script, if it couldn't be compiled
+		 */
+		private List<ScriptError> computeScript() {
+			try {
+				ScriptCache.this.get(path);
+				return Collections.emptyList();
+			} catch (SmartScriptParserException e) {
+				// The message of the cause doesn't repeat the position.
+				String message = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+				return List.of(new ScriptError(path, e.getLine(), e.getColumn(), message));
+			} catch (IOException | RuntimeException e) {
+				return List.of(new ScriptError(path, 0, 0, e.toString()));
+			}
+		}
+	}
+
+	/**
+	 * Compiled script together with the attributes of the file it was parsed from.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private static class Script {
+		/**
+		 * Size of the file.
+		 */
+		private final long size;
+		/**
+		 * Modification time of the file in milliseconds.
+		 */
+		private final long lastModified;
+		/**
+		 * Compiled program.
+		 */
+		private final SmartScriptProgram program;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param size {@link #size}
+		 * @param lastModified {@link #lastModified}
+		 * @param program {@link #program}
+		 */
+		public Script(long size, long lastModified, SmartScriptProgram program) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.program = program;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package hr.fer.zemris.java.webserver;
+
+import java.nio.file.Path;
+
+/**
+ * Error of a smart script which couldn't be compiled, found when scripts are compiled
+ * ahead of time.
+ *
+ * @author stipe
+ * @see ScriptCache#precompile(Path)
+ *
+ */
+public class ScriptError {
+
+	/**
+	 * Path of the script.
+	 */
+	private final Path path;
+	/**
+	 * Line at which the script is invalid, or 0 if it isn't known.
+	 */
+	private final int line;
+	/**
+	 * Column at which the script is invalid, or 0 if it isn't known.
+	 */
+	private final int column;
+	/**
+	 * Description of the error.
+	 */
+	private final String message;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param path {@link #path}
+	 * @param line {@link #line}
+	 * @param column {@link #column}
+	 * @param message {@link #message}
+	 */
+	public ScriptError(Path path, int line, int column, String message) {
+		this.path = path;
+		this.line = line;
+		this.column = column;
+		this.message = message;
+	}
+
+	/**
+	 * Getter for the path of the script.
+	 *
+	 * @return {@link #path}
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Getter for the line.
+	 *
+	 * @return {@link #line}
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Getter for the column.
+	 *
+	 * @return {@link #column}
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Getter for the description of the error.
+	 *
+	 * @return {@link #message}
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Returns the error as {@code path:line:column: message}, which editors and build
+	 * tools recognize.
+	 */
+	@Override
+	public String toString() {
+		return line > 0 ? path + ":" + line + ":" + column + ": " + message : path + ": " + message;
+	}
+}
@@ -0,0 +1,57 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Batch compiler of all smart scripts in the document root of a server, which is
+ * meant to be run at deployment. Scripts are compiled in parallel and every invalid
+ * script is reported with the position of its error, so broken scripts are found before
+ * users request them. The program exits with status 1 if any script is invalid.
+ * <p>
+ * Argument: the server configuration file, whose {@code server.documentRoot} is used.
+ *
+ * @author stipe
+ *
+ */
+public class ScriptPrecompiler {
+
+	/**
+	 * Main method.
+	 *
+	 * @param args arguments
+	 */
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			System.out.println("Exactly one argument is expected!");
+			return;
+		}
+
+		Properties config = new Properties();
+		try (InputStream is = new FileInputStream(args[0])) {
+			config.load(is);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(2);
+		}
+		Path documentRoot = Paths.get(config.getProperty("server.documentRoot"));
+
+		ScriptCache scripts = new ScriptCache();
+		long start = System.nanoTime();
+		List<ScriptError> errors = scripts.precompile(documentRoot);
+		long time = (System.nanoTime() - start) / 1_000_000;
+
+		for (ScriptError error : errors) {
+			System.err.println(error);
+		}
+		System.out.printf("Compiled %d scripts in %d ms, %d invalid.%n", scripts.size(), time, errors.size());
+		if (!errors.isEmpty()) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,242 @@
+package hr.fer.zemris.java.webserver;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of requests served by {@link SmartHttpServer}. Requests are counted per
+ * status code and per route, and the latencies of three phases of every request are
+ * recorded into histograms: parsing of the header, dispatching, which includes the
+ * work of workers and scripts, and writing of the remaining buffered output.
+ * <p>
+ * All counters are lock-free, so recording a request costs a few atomic additions.
+ * The metrics can be written in the Prometheus text exposition format.
+ *
+ * @author stipe
+ *
+ */
+public class ServerMetrics {
+
+	/**
+	 * Upper bounds of the exported histogram buckets in seconds.
+	 */
+	private static final double[] BUCKET_BOUNDS = {
+			0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+	};
+	/**
+	 * Exported quantiles.
+	 */
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+	/**
+	 * Number of responses per status code.
+	 */
+	private Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+	/**
+	 * Number of requests per route.
+	 */
+	private Map<String, LongAdder> routes = new ConcurrentHashMap<>();
+	/**
+	 * Number of requests which have failed with an exception.
+	 */
+	private LongAdder errors = new LongAdder();
+	/**
+	 * Number of requests aborted because they have exceeded their deadline.
+	 */
+	private LongAdder aborted = new LongAdder();
+	/**
+	 * Latencies of header parsing.
+	 */
+	private LatencyHistogram parse = new LatencyHistogram();
+	/**
+	 * Latencies of dispatching.
+	 */
+	private LatencyHistogram dispatch = new LatencyHistogram();
+	/**
+	 * Latencies of writing the remaining output.
+	 */
+	private LatencyHistogram write = new LatencyHistogram();
+
+	/**
+	 * Records a processed request.
+	 *
+	 * @param statusCode status code of the response
+	 * @param route route which served the request, such as a worker or a script
+	 * @param parseNanos time spent parsing the header
+	 * @param dispatchNanos time spent dispatching, or a negative value if the request wasn't dispatched
+	 * @param writeNanos time spent writing the remaining output, or a negative value if the request wasn't dispatched
+	 */
+	public void recordRequest(int statusCode, String route, long parseNanos, long dispatchNanos, long writeNanos) {
+		recordResponse(statusCode);
+		routes.computeIfAbsent(route, r -> new LongAdder()).increment();
+		parse.record(parseNanos);
+		if (dispatchNanos >= 0) {
+			dispatch.record(dispatchNanos);
+			write.record(writeNanos);
+		}
+	}
+
+	/**
+	 * Records a response which has been sent without processing a request,
+	 * such as a rejection of an overloaded server.
+	 *
+	 * @param statusCode status code of the response
+	 */
+	public void recordResponse(int statusCode) {
+		statusCodes.computeIfAbsent(statusCode, c -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Records a request which has failed with an exception.
+	 */
+	public void recordError() {
+		errors.increment();
+	}
+
+	/**
+	 * Records a request aborted because it has exceeded its deadline.
+	 */
+	public void recordAborted() {
+		aborted.increment();
+	}
+
+	/**
+	 * Returns the number of responses with the given status code.
+	 *
+	 * @param statusCode status code
+	 * @return number of responses
+	 */
+	public long getResponses(int statusCode) {
+		LongAdder adder = statusCodes.get(statusCode);
+		return adder == null ? 0 : adder.sum();
+	}
+
+	/**
+	 * Returns the histogram of header parsing latencies.
+	 *
+	 * @return {@link #parse}
+	 */
+	public LatencyHistogram getParseHistogram() {
+		return parse;
+	}
+
+	/**
+	 * Returns the histogram of dispatching latencies.
+	 *
+	 * @return {@link #dispatch}
+	 */
+	public LatencyHistogram getDispatchHistogram() {
+		return dispatch;
+	}
+
+	/**
+	 * Returns the histogram of latencies of writing the remaining output.
+	 *
+	 * @return {@link #write}
+	 */
+	public LatencyHistogram getWriteHistogram() {
+		return write;
+	}
+
+	/**
+	 * Writes the request metrics in the Prometheus text exposition format.
+	 *
+	 * @param sb builder to which the metrics are appended
+	 */
+	public void writePrometheus(StringBuilder sb) {
+		header(sb, "smarthttp_responses_total", "counter", "Responses per status code.");
+		new TreeMap<>(statusCodes).forEach((code, adder) ->
+				sb.append("smarthttp_responses_total{code=\"").append(code).append("\"} ")
+					.append(adder.sum()).append('\n'));
+
+		header(sb, "smarthttp_route_requests_total", "counter", "Requests per worker, script or static files.");
+		new TreeMap<>(routes).forEach((route, adder) ->
+				sb.append("smarthttp_route_requests_total{route=\"").append(escape(route)).append("\"} ")
+					.append(adder.sum()).append('\n'));
+
+		counter(sb, "smarthttp_request_errors_total", "Requests failed with an exception.", errors.sum());
+		counter(sb, "smarthttp_requests_aborted_total", "Requests aborted after their deadline.", aborted.sum());
+
+		histogram(sb, "smarthttp_header_parse_seconds", "Time spent parsing request headers.", parse);
+		histogram(sb, "smarthttp_dispatch_seconds", "Time spent dispatching requests to workers, scripts and files.", dispatch);
+		histogram(sb, "smarthttp_write_seconds", "Time spent writing the remaining output of responses.", write);
+	}
+
+	/**
+	 * Writes a counter.
+	 *
+	 * @param sb builder
+	 * @param name metric name
+	 * @param help description
+	 * @param value value
+	 */
+	static void counter(StringBuilder sb, String name, String help, long value) {
+		header(sb, name, "counter", help);
+		sb.append(name).append(' ').append(value).append('\n');
+	}
+
+	/**
+	 * Writes a gauge.
+	 *
+	 * @param sb builder
+	 * @param name metric name
+	 * @param help description
+	 * @param value value
+	 */
+	static void gauge(StringBuilder sb, String name, String help, long value) {
+		header(sb, name, "gauge", help);
+		sb.append(name).append(' ').append(value).append('\n');
+	}
+
+	/**
+	 * Writes a histogram, followed by a gauge of its quantiles.
+	 *
+	 * @param sb builder
+	 * @param name metric name
+	 * @param help description
+	 * @param histogram histogram
+	 */
+	private static void histogram(StringBuilder sb, String name, String help, LatencyHistogram histogram) {
+		header(sb, name, "histogram", help);
+		for (double bound : BUCKET_BOUNDS) {
+			sb.append(name).append("_bucket{le=\"").append(bound).append("\"} ")
+				.append(histogram.countAtMost((long) (bound * 1e9))).append('\n');
+		}
+		long count = histogram.getCount();
+		sb.append(name).append("_bucket{le=\"+Inf\"} ").append(count).append('\n');
+		sb.append(name).append("_sum ").append(histogram.getSum() / 1e9).append('\n');
+		sb.append(name).append("_count ").append(count).append('\n');
+
+		String quantiles = name + "_quantile";
+		header(sb, quantiles, "gauge", "Quantiles of " + name + ", accurate to 12.5%.");
+		for (double quantile : QUANTILES) {
+			sb.append(quantiles).append("{quantile=\"").append(quantile).append("\"} ")
+				.append(histogram.getValueAtQuantile(quantile) / 1e9).append('\n');
+		}
+	}
+
+	/**
+	 * Writes the help and type lines of a metric.
+	 *
+	 * @param sb builder
+	 * @param name metric name
+	 * @param type metric type
+	 * @param help description
+	 */
+	private static void header(StringBuilder sb, String name, String type, String help) {
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	/**
+	 * Escapes a label value.
+	 *
+	 * @param value label value
+	 * @return escaped value
+	 */
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -0,0 +1,403 @@
+package hr.fer.zemris.java.webserver;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Store of user sessions, which can be used by any number of threads at once.
+ * <p>
+ * Sessions are kept in a concurrent map and expire after the configured timeout
+ * without access. Expiry is tracked by a hashed timing wheel with one bucket per second:
+ * every session is put into the bucket of its expiry time, and a background thread
+ * checks only the bucket of the current second. Accessing a session just moves its
+ * expiry time, and the session is moved to the right bucket once its old bucket is checked.
+ * <p>
+ * Once the maximum number of sessions is reached, the session closest to expiry,
+ * which is the least recently used one, is evicted to make room for the new session.
+ *
+ * @author stipe
+ *
+ */
+public class SessionStore {
+
+	/**
+	 * Length of a tick of the timing wheel in milliseconds.
+	 */
+	private static final long TICK = 1000;
+	/**
+	 * Number of buckets of the timing wheel, which is a power of two.
+	 */
+	private static final int WHEEL_SIZE = 1024;
+	/**
+	 * Characters of which session ids are made.
+	 */
+	private static final char[] SID_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+	/**
+	 * Length of session ids.
+	 */
+	private static final int SID_LENGTH = 20;
+	/**
+	 * Generators of session ids, one per thread so that threads don't contend on a single generator.
+	 */
+	private static final ThreadLocal<Random> SID_RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+	/**
+	 * Sessions mapped to their ids.
+	 */
+	private Map<String, Session> sessions = new ConcurrentHashMap<>();
+	/**
+	 * Buckets of the timing wheel.
+	 */
+	private Set<Session>[] wheel;
+	/**
+	 * Session timeout in milliseconds.
+	 */
+	private long timeout;
+	/**
+	 * Maximum number of sessions.
+	 */
+	private int maxSessions;
+	/**
+	 * Last tick whose bucket has been checked.
+	 */
+	private volatile long lastTick;
+	/**
+	 * Thread removing expired sessions.
+	 */
+	private Thread sweeper;
+	/**
+	 * Number of created sessions.
+	 */
+	private LongAdder created = new LongAdder();
+	/**
+	 * Number of sessions removed because they have expired.
+	 */
+	private LongAdder expired = new LongAdder();
+	/**
+	 * Number of sessions evicted because the maximum number of sessions has been reached.
+	 */
+	private LongAdder evicted = new LongAdder();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param timeout session timeout in seconds
+	 * @param maxSessions maximum number of sessions
+	 */
+	public SessionStore(int timeout, int maxSessions) {
+		this.timeout = timeout * 1000L;
+		this.maxSessions = maxSessions;
+		@SuppressWarnings("unchecked")
+		Set<Session>[] slots = (Set<Session>[]) new Set<?>[WHEEL_SIZE];
+		this.wheel = slots;
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			wheel[i] = ConcurrentHashMap.newKeySet();
+		}
+		this.lastTick = System.currentTimeMillis() / TICK - 1;
+	}
+
+	/**
+	 * Starts the thread removing expired sessions.
+	 */
+	public synchronized void start() {
+		if (sweeper != null) {
+			return;
+		}
+		sweeper = new Thread(() -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				try {
+					Thread.sleep(TICK);
+				} catch (InterruptedException e) {
+					return;
+				}
+				expire(System.currentTimeMillis());
+			}
+		}, "session-sweeper");
+		sweeper.setDaemon(true);
+		sweeper.start();
+	}
+
+	/**
+	 * Stops the thread removing expired sessions.
+	 */
+	public synchronized void stop() {
+		if (sweeper != null) {
+			sweeper.interrupt();
+			sweeper = null;
+		}
+	}
+
+	/**
+	 * Returns the session with the given id if it exists, belongs to the given host
+	 * and hasn't expired, extending its validity.
+	 *
+	 * @param sid session id
+	 * @param host host of the request
+	 * @return session, or null if there is no valid session
+	 */
+	public Session get(String sid, String host) {
+		Session session = sessions.get(sid);
+		if (session == null || !session.host.equals(host)) {
+			return null;
+		}
+
+		long now = System.currentTimeMillis();
+		if (session.validUntil <= now) {
+			remove(session);
+			return null;
+		}
+		session.validUntil = now + timeout;
+		return session;
+	}
+
+	/**
+	 * Creates a new session with the given id, replacing any existing session with that id.
+	 * If the maximum number of sessions has been reached, the least recently used session is evicted.
+	 *
+	 * @param sid session id
+	 * @param host host of the request
+	 * @return new session
+	 */
+	public Session create(String sid, String host) {
+		while (sessions.size() >= maxSessions && evictOne()) {
+			evicted.increment();
+		}
+
+		Session session = new Session(sid, host, System.currentTimeMillis() + timeout);
+		Session old = sessions.put(sid, session);
+		if (old != null) {
+			old.removed = true;
+		}
+		bucket(session.validUntil).add(session);
+		created.increment();
+		return session;
+	}
+
+	/**
+	 * Generates a new random session id.
+	 *
+	 * @return session id
+	 */
+	public String newSid() {
+		Random random = SID_RANDOM.get();
+		// Random bytes are fetched in bulk, as every call of a secure generator is expensive.
+		byte[] bytes = new byte[2 * SID_LENGTH];
+		random.nextBytes(bytes);
+		// Bytes above the largest multiple of the number of characters are skipped, so all characters are equally likely.
+		int limit = 256 - 256 % SID_CHARACTERS.length;
+		char[] sid = new char[SID_LENGTH];
+		for (int i = 0, j = 0; i < SID_LENGTH; j++) {
+			if (j == bytes.length) {
+				random.nextBytes(bytes);
+				j = 0;
+			}
+			int value = bytes[j] & 0xFF;
+			if (value < limit) {
+				sid[i++] = SID_CHARACTERS[value % SID_CHARACTERS.length];
+			}
+		}
+		return new String(sid);
+	}
+
+	/**
+	 * Removes the sessions which have expired up to the given time, checking the
+	 * buckets of all ticks which have passed since the last check.
+	 *
+	 * @param now current time in milliseconds
+	 */
+	void expire(long now) {
+		// Buckets are checked only once their tick has passed completely.
+		long tick = now / TICK - 1;
+		if (tick - lastTick > WHEEL_SIZE) {
+			lastTick = tick - WHEEL_SIZE;
+		}
+		while (lastTick < tick) {
+			lastTick++;
+			Iterator<Session> it = wheel[index(lastTick)].iterator();
+			while (it.hasNext()) {
+				Session session = it.next();
+				if (session.removed) {
+					it.remove();
+				} else if (session.validUntil <= now) {
+					it.remove();
+					if (remove(session)) {
+						expired.increment();
+					}
+				} else if (reschedule(session, lastTick)) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Evicts the session closest to expiry. Buckets are checked starting from the
+	 * oldest unchecked tick, and sessions whose expiry time has been moved are
+	 * rescheduled on the way.
+	 *
+	 * @return true if a session has been evicted
+	 */
+	private boolean evictOne() {
+		long start = lastTick + 1;
+		for (long tick = start; tick < start + WHEEL_SIZE; tick++) {
+			Iterator<Session> it = wheel[index(tick)].iterator();
+			while (it.hasNext()) {
+				Session session = it.next();
+				it.remove();
+				if (!session.removed && !reschedule(session, tick) && remove(session)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the given session to the bucket of its expiry time, unless it is in
+	 * the bucket of the given tick. If moved, the caller removes it from its current bucket.
+	 *
+	 * @param session session
+	 * @param tick tick of the bucket in which the session currently is
+	 * @return true if the session has been moved
+	 */
+	private boolean reschedule(Session session, long tick) {
+		long expiry = session.validUntil / TICK;
+		if (index(expiry) == index(tick)) {
+			return false;
+		}
+		bucket(session.validUntil).add(session);
+		return true;
+	}
+
+	/**
+	 * Removes the given session from the map.
+	 *
+	 * @param session session
+	 * @return true if the session was in the map
+	 */
+	private boolean remove(Session session) {
+		session.removed = true;
+		return sessions.remove(session.sid, session);
+	}
+
+	/**
+	 * Returns the bucket for the given time.
+	 *
+	 * @param time time in milliseconds
+	 * @return bucket
+	 */
+	private Set<Session> bucket(long time) {
+		return wheel[index(time / TICK)];
+	}
+
+	/**
+	 * Returns the index of the bucket of the given tick.
+	 *
+	 * @param tick tick
+	 * @return index of the bucket
+	 */
+	private static int index(long tick) {
+		return (int) (tick & (WHEEL_SIZE - 1));
+	}
+
+	/**
+	 * Returns the number of sessions.
+	 *
+	 * @return number of sessions
+	 */
+	public int size() {
+		return sessions.size();
+	}
+
+	/**
+	 * Returns the number of created sessions.
+	 *
+	 * @return number of created sessions
+	 */
+	public long getCreated() {
+		return created.sum();
+	}
+
+	/**
+	 * Returns the number of sessions removed because they have expired.
+	 *
+	 * @return number of expired sessions
+	 */
+	public long getExpired() {
+		return expired.sum();
+	}
+
+	/**
+	 * Returns the number of sessions evicted because the maximum number of sessions has been reached.
+	 *
+	 * @return number of evicted sessions
+	 */
+	public long getEvicted() {
+		return evicted.sum();
+	}
+
+	/**
+	 * Class representing a user session.
+	 *
+	 * @author stipe
+	 *
+	 */
+	public static class Session {
+		/**
+		 * Session id.
+		 */
+		private final String sid;
+		/**
+		 * Host for which the session was created.
+		 */
+		private final String host;
+		/**
+		 * Time in milliseconds until which the session is valid.
+		 */
+		private volatile long validUntil;
+		/**
+		 * Flag showing whether the session has been removed from the store.
+		 */
+		private volatile boolean removed;
+		/**
+		 * Persistent parameters of the session.
+		 */
+		private final Map<String, String> parameters = new ConcurrentHashMap<>();
+
+		/**
+		 * Constructor.
+		 *
+		 * @param sid {@link #sid}
+		 * @param host {@link #host}
+		 * @param validUntil {@link #validUntil}
+		 */
+		private Session(String sid, String host, long validUntil) {
+			this.sid = sid;
+			this.host = host;
+			this.validUntil = validUntil;
+		}
+
+		/**
+		 * Returns the session id.
+		 *
+		 * @return {@link #sid}
+		 */
+		public String getSid() {
+			return sid;
+		}
+
+		/**
+		 * Returns the persistent parameters of the session.
+		 *
+		 * @return {@link #parameters}
+		 */
+		public Map<String, String> getParameters() {
+			return parameters;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.IOException;
+
+/**
+ * Interface implemented by output streams which can send bytes that are never modified,
+ * such as cached file contents, by keeping a reference to them instead of copying them.
+ *
+ * @author stipe
+ *
+ */
+interface SharedBufferOutput {
+
+	/**
+	 * Sends the given bytes after all bytes written so far. The array may still be read
+	 * after this method returns, so it mustn't be modified afterwards.
+	 *
+	 * @param b bytes
+	 * @param off offset of the first byte
+	 * @param len number of bytes
+	 * @throws IOException in case of an I/O error
+	 */
+	void writeShared(byte[] b, int off, int len) throws IOException;
+}
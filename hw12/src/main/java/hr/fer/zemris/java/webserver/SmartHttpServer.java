@@ -1,38 +1,49 @@
 package hr.fer.zemris.java.webserver;
 
-import static hr.fer.zemris.java.util.Util.readFromDisk;
-
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Properties;
-import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import hr.fer.zemris.java.custom.scripting.exec.SmartScriptEngine;
-import hr.fer.zemris.java.custom.scripting.parser.SmartScriptParser;
+import hr.fer.zemris.java.custom.scripting.exec.SmartScriptInterpreter;
+import hr.fer.zemris.java.custom.scripting.exec.SmartScriptProgram;
+import hr.fer.zemris.java.webserver.HttpHeaderParser.HeaderTooLargeException;
 import hr.fer.zemris.java.webserver.RequestContext.RCCookie;
+import hr.fer.zemris.java.webserver.StaticFileCache.StaticFile;
 
 /**
  * Class representing a http server capable of using smart scripts
@@ -43,6 +54,19 @@ import hr.fer.zemris.java.webserver.RequestContext.RCCookie;
  */
 public class SmartHttpServer {
 	
+	/**
+	 * Default package of workers.
+	 */
+	private static final String WORKERS_PACKAGE = "hr.fer.zemris.java.webserver.workers.";
+	/**
+	 * Response sent when the server is processing too many requests.
+	 */
+	private static final byte[] SERVICE_UNAVAILABLE_RESPONSE = (
+			"HTTP/1.1 503 Service Unavailable\r\n" +
+			"Content-Length: 0\r\n" +
+			"Retry-After: 1\r\n" +
+			"Connection: close\r\n" +
+			"\r\n").getBytes(StandardCharsets.US_ASCII);
 	/**
 	 * Server address.
 	 */
@@ -60,17 +84,78 @@ public class SmartHttpServer {
 	 */
 	private int workerThreads;
 	/**
-	 * Session timeout.
+	 * Flag showing whether every task runs on its own virtual thread instead of the thread pool.
+	 */
+	private boolean virtualThreads;
+	/**
+	 * Number of threads running CPU-heavy work of asynchronous workers in non-blocking mode.
+	 */
+	private int computeThreads;
+	/**
+	 * Executor of CPU-heavy work of asynchronous workers, used in non-blocking mode only.
+	 */
+	private ExecutorService computePool;
+	/**
+	 * Permits limiting the number of tasks queued or running at once, or null if unlimited.
+	 */
+	private Semaphore taskPermits;
+	/**
+	 * Time in seconds after which processing of a request is aborted, or 0 if unlimited.
+	 */
+	private int requestTimeout;
+	/**
+	 * Thread aborting requests which have exceeded their deadline.
+	 */
+	private ScheduledExecutorService watchdog;
+	/**
+	 * Time in seconds after which an idle persistent connection is closed.
+	 */
+	private int keepAliveTimeout;
+	/**
+	 * Time in seconds after which an idle persistent connection is closed in blocking mode,
+	 * where waiting for the next request holds a thread of the pool.
+	 */
+	private int blockingKeepAliveTimeout;
+	/**
+	 * Maximum number of requests served over a single persistent connection.
+	 */
+	private int maxKeepAliveRequests;
+	/**
+	 * Maximum size of a request header in bytes.
+	 */
+	private int maxHeaderSize;
+	/**
+	 * Cache of static files.
+	 */
+	private StaticFileCache staticFiles;
+	/**
+	 * Flag showing whether responses are compressed for clients which accept it.
 	 */
-	private int sessionTimeout;
+	private boolean compression;
+	/**
+	 * Size in bytes of the smallest static file which is sent compressed.
+	 */
+	private long compressionMinSize;
+	/**
+	 * Cache of responses of cacheable workers, or null if they aren't cached.
+	 */
+	private ResponseCache responses;
+	/**
+	 * Cache of compiled smart scripts.
+	 */
+	private ScriptCache scripts = new ScriptCache();
 	/**
 	 * Map of mime types.
 	 */
 	private Map<String, String> mimeTypes = new HashMap<String, String>();
+	/**
+	 * Flag showing whether the selector based non-blocking mode is used.
+	 */
+	private boolean nonBlocking;
 	/**
 	 * Server thread.
 	 */
-	private ServerThread serverThread;
+	private Thread serverThread;
 	/**
 	 * Flag used for stopping the server thread.
 	 */
@@ -84,17 +169,25 @@ public class SmartHttpServer {
 	 */
 	private Path documentRoot;
 	/**
-	 * Map of workers.
+	 * Router of requests to workers.
+	 */
+	private WorkerRouter workers;
+	/**
+	 * Store of sessions.
 	 */
-	private Map<String,IWebWorker> workersMap;
+	private SessionStore sessions;
 	/**
-	 * Map of sessions.
+	 * Metrics of served requests.
 	 */
-	private Map<String, SessionMapEntry> sessions = new HashMap<>();
+	private ServerMetrics metrics = new ServerMetrics();
 	/**
-	 * Random generator used for session generating.
+	 * Path at which the metrics are exposed, or an empty string if they aren't.
 	 */
-	private Random sessionRandom = new Random();
+	private String metricsPath;
+	/**
+	 * Flag showing whether all scripts are compiled before connections are accepted.
+	 */
+	private boolean precompileScripts;
 
 	/**
 	 * Constructor
@@ -112,51 +205,120 @@ public class SmartHttpServer {
 		domainName = config.getProperty("server.domainName");
 		port = Integer.parseInt(config.getProperty("server.port"));
 		workerThreads = Integer.parseInt(config.getProperty("server.workerThreads"));
-		sessionTimeout = Integer.parseInt(config.getProperty("session.timeout"));
+		virtualThreads = "virtual".equalsIgnoreCase(config.getProperty("server.executor", "pool").strip());
+		computeThreads = Integer.parseInt(config.getProperty("server.computeThreads", "0").strip());
+		if (computeThreads <= 0) {
+			computeThreads = Runtime.getRuntime().availableProcessors();
+		}
+		int maxConcurrentRequests = Integer.parseInt(config.getProperty("server.maxConcurrentRequests", "256").strip());
+		taskPermits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests) : null;
+		requestTimeout = Integer.parseInt(config.getProperty("server.requestTimeout", "30").strip());
+		metricsPath = config.getProperty("server.metricsPath", "").strip();
+		sessions = new SessionStore(Integer.parseInt(config.getProperty("session.timeout").strip()),
+				Integer.parseInt(config.getProperty("session.maxSessions", "10000").strip()));
+		nonBlocking = "nio".equalsIgnoreCase(config.getProperty("server.mode", "blocking").strip());
+		keepAliveTimeout = Integer.parseInt(config.getProperty("server.keepAliveTimeout", "5").strip());
+		blockingKeepAliveTimeout = Integer.parseInt(config.getProperty("server.blockingKeepAliveTimeout", "1").strip());
+		maxKeepAliveRequests = Integer.parseInt(config.getProperty("server.maxKeepAliveRequests", "100").strip());
+		maxHeaderSize = Integer.parseInt(config.getProperty("server.maxHeaderSize", "8192").strip());
+		staticFiles = new StaticFileCache(
+				Long.parseLong(config.getProperty("server.staticCache.maxBytes", "16777216").strip()),
+				Long.parseLong(config.getProperty("server.staticCache.maxFileSize", "1048576").strip()));
+		long responseCacheBytes = Long.parseLong(config.getProperty("server.responseCache.maxBytes", "0").strip());
+		responses = responseCacheBytes > 0 ? new ResponseCache(responseCacheBytes) : null;
+		compression = Boolean.parseBoolean(config.getProperty("server.compression", "false").strip());
+		compressionMinSize = Long.parseLong(config.getProperty("server.compression.minSize", "1024").strip());
 		initMimeTypes(config);
-		serverThread = new ServerThread();
+		serverThread = nonBlocking ? new NioServerThread() : new ServerThread();
 		documentRoot = Paths.get(config.getProperty("server.documentRoot"));
-		initWorkersMap(config);
+		precompileScripts = Boolean.parseBoolean(config.getProperty("server.precompileScripts", "false").strip());
+		initWorkers(config);
 	}
 
 	/**
-	 * Initializes the worker map.
+	 * Returns the cache of static files, whose counters show how well it is sized.
 	 * 
-	 * @param config
+	 * @return {@link #staticFiles}
 	 */
-	private void initWorkersMap(Properties config) {
-		// Using Files.lines as the size of the file could be large so Files.readAllLines might not be a good choice.
-		try (Stream<String> stream = Files.lines(Paths.get(config.getProperty("server.workers")))) {
-			workersMap = stream.map(l -> l.split("\\="))
-					.collect(Collectors.toMap(
-						l -> l[0].strip(),
-						l -> instantiateWorker(l[1].strip())
-					));
-		//Exception when keys are duplicate.
-		} catch (IllegalStateException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+	public StaticFileCache getStaticFileCache() {
+		return staticFiles;
 	}
 
 	/**
-	 * Instantiates a worker from the given class.
+	 * Returns the cache of responses of cacheable workers.
 	 * 
-	 * @param fqcn full qualifying class name
-	 * @return instance of wanted worker
+	 * @return {@link #responses}, or null if responses aren't cached
 	 */
-	@SuppressWarnings("deprecation")
-	private IWebWorker instantiateWorker(String fqcn) {
-		Class<?> referenceToClass = null;
-		Object newObject = null;
-		try {
-			referenceToClass = this.getClass().getClassLoader().loadClass(fqcn);
-			newObject = referenceToClass.newInstance();
-		} catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
+	public ResponseCache getResponseCache() {
+		return responses;
+	}
+
+	/**
+	 * Returns the metrics of served requests.
+	 * 
+	 * @return {@link #metrics}
+	 */
+	public ServerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the router of requests to workers.
+	 * 
+	 * @return {@link #workers}
+	 */
+	public WorkerRouter getWorkerRouter() {
+		return workers;
+	}
+
+	/**
+	 * Returns the store of sessions.
+	 * 
+	 * @return {@link #sessions}
+	 */
+	public SessionStore getSessionStore() {
+		return sessions;
+	}
+
+	/**
+	 * Returns the cache of compiled smart scripts.
+	 * 
+	 * @return {@link #scripts}
+	 */
+	public ScriptCache getScriptCache() {
+		return scripts;
+	}
+
+	/**
+	 * Initializes the worker router. Every line of the workers file maps a path, or a
+	 * prefix ending with {@code /*}, to the class of a worker.
+	 * 
+	 * @param config
+	 */
+	private void initWorkers(Properties config) {
+		ClassLoader classLoader = this.getClass().getClassLoader();
+		workers = new WorkerRouter(WORKERS_PACKAGE, classLoader);
+		// Using Files.lines as the size of the file could be large so Files.readAllLines might not be a good choice.
+		try (Stream<String> stream = Files.lines(Paths.get(config.getProperty("server.workers")))) {
+			stream.map(l -> l.split("\\="))
+				.forEach(l -> {
+					String fqcn = l[1].strip();
+					IWebWorker worker = WorkerRouter.instantiate(fqcn, classLoader);
+					if (worker == null) {
+						System.err.println("Couldn't instantiate worker " + fqcn + "!");
+						return;
+					}
+					workers.add(l[0].strip(), worker);
+				});
+			if (!metricsPath.isEmpty()) {
+				workers.add(metricsPath, new MetricsWorker(this));
+			}
+		//Exception when paths are duplicate.
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
-		return (IWebWorker) newObject;
 	}
 	
 	/**
@@ -178,34 +340,102 @@ public class SmartHttpServer {
 	 * Starts the client serving.
 	 */
 	protected synchronized void start() {
+		// Executors have to exist before the first connection is accepted.
+		if (threadPool == null) {
+			threadPool = createExecutor();
+		}
+		if (computePool == null && nonBlocking) {
+			computePool = Executors.newFixedThreadPool(computeThreads, r -> {
+				Thread thread = new Thread(r, "compute");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		if (watchdog == null && requestTimeout > 0) {
+			watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "request-watchdog");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		sessions.start();
 		if (!serverThread.isAlive()) {
+			if (precompileScripts) {
+				precompileScripts();
+			}
 			serverThread.start();
 		}
-		threadPool = Executors.newFixedThreadPool(workerThreads);
-		
-		Thread sessionRemover = createRemover();
-		sessionRemover.setDaemon(true);
-		sessionRemover.start();
 	}
 
 	/**
-	 * Creates a cleaner thhread.
+	 * Compiles all scripts in the document root, so the first requests don't wait for
+	 * them, and reports the scripts which are invalid.
+	 */
+	private void precompileScripts() {
+		long start = System.nanoTime();
+		List<ScriptError> errors = scripts.precompile(documentRoot);
+		for (ScriptError error : errors) {
+			System.err.println(error);
+		}
+		System.out.printf("Compiled %d scripts in %d ms, %d invalid.%n", scripts.size(),
+				(System.nanoTime() - start) / 1_000_000, errors.size());
+	}
+
+	/**
+	 * Creates the executor of client workers. In virtual mode every task runs on its
+	 * own virtual thread, so blocking workers don't hold up other requests. If the
+	 * JVM doesn't support virtual threads, a new platform thread is used per task.
 	 * 
-	 * @return
+	 * @return executor
 	 */
-	private Thread createRemover() {
-		return new Thread(() -> {
-			try {
-				Thread.sleep(300000);
-			} catch (InterruptedException e) {
-			}
-			
-			for (Entry<String, SessionMapEntry> e : sessions.entrySet()) {
-				if (e.getValue().validUntil < System.currentTimeMillis() / 1000) {
-					sessions.remove(e.getKey());
+	private ExecutorService createExecutor() {
+		if (!virtualThreads) {
+			return Executors.newFixedThreadPool(workerThreads);
+		}
+		try {
+			// Looked up reflectively, as virtual threads are available only since Java 21.
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			System.err.println("Virtual threads aren't supported, using a new thread per task instead.");
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Checks whether connections are waiting for a thread of the pool. A persistent
+	 * connection served in blocking mode is then closed after its current request,
+	 * so idle connections can't keep the waiting ones from being served.
+	 * 
+	 * @return true if tasks are queued in the pool
+	 */
+	private boolean isPoolSaturated() {
+		return threadPool instanceof ThreadPoolExecutor && !((ThreadPoolExecutor) threadPool).getQueue().isEmpty();
+	}
+
+	/**
+	 * Submits the given task to the executor, unless the maximum number of concurrent
+	 * tasks has been reached, in which case the task isn't queued at all.
+	 * 
+	 * @param task task
+	 * @return true if the task has been submitted
+	 */
+	private boolean submit(Runnable task) {
+		if (taskPermits != null && !taskPermits.tryAcquire()) {
+			return false;
+		}
+		try {
+			threadPool.execute(() -> {
+				try {
+					task.run();
+				} finally {
+					if (taskPermits != null) taskPermits.release();
 				}
-			}
-		});
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			if (taskPermits != null) taskPermits.release();
+			return false;
+		}
 	}
 
 	/**
@@ -213,7 +443,17 @@ public class SmartHttpServer {
 	 */
 	protected synchronized void stop() {
 		stop = true;
+		if (serverThread instanceof NioServerThread) {
+			((NioServerThread) serverThread).wakeup();
+		}
 		threadPool.shutdown();
+		if (computePool != null) {
+			computePool.shutdown();
+		}
+		if (watchdog != null) {
+			watchdog.shutdownNow();
+		}
+		sessions.stop();
 	}
 
 	/**
@@ -225,42 +465,219 @@ public class SmartHttpServer {
 	protected class ServerThread extends Thread {
 		@Override
 		public void run() {
-			try (ServerSocket serverSocket = new ServerSocket()) {
-				serverSocket.bind(new InetSocketAddress(InetAddress.getByName(address), port));
+			// Sockets of a channel can send files with FileChannel.transferTo.
+			try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+				serverChannel.bind(new InetSocketAddress(InetAddress.getByName(address), port));
 				while (true) {
 					if (stop) {
 						break;
 					}
-					Socket client = serverSocket.accept();
+					Socket client = serverChannel.accept().socket();
 					ClientWorker cw = new ClientWorker(client);
-					threadPool.submit(cw);
+					if (!submit(cw)) {
+						metrics.recordResponse(503);
+						rejectClient(client);
+					}
 				}
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 			}
 		}
+
+		/**
+		 * Answers a client which can't be served right now and closes its socket.
+		 * The response fits into the send buffer of a new socket, so this doesn't block.
+		 * 
+		 * @param client client socket
+		 */
+		private void rejectClient(Socket client) {
+			try (client) {
+				client.getOutputStream().write(SERVICE_UNAVAILABLE_RESPONSE);
+			} catch (IOException ignorable) {
+			}
+		}
 	}
 
 	/**
-	 * Class representing a worker.
+	 * Server thread running a selector based event loop. Connections are accepted and
+	 * request headers are read without blocking, so only complete requests
+	 * are handed to the thread pool.
 	 * 
 	 * @author stipe
 	 *
 	 */
-	private class ClientWorker implements Runnable, IDispatcher {
+	protected class NioServerThread extends Thread {
+		/**
+		 * Interval in milliseconds in which idle connections are looked for.
+		 */
+		private static final long SWEEP_INTERVAL = 1000;
+		/**
+		 * Selector of the event loop.
+		 */
+		private volatile Selector selector;
+		/**
+		 * Tasks which have to be run on the event loop.
+		 */
+		private Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+		@Override
+		public void run() {
+			try (ServerSocketChannel serverChannel = ServerSocketChannel.open();
+					Selector selector = Selector.open()) {
+				this.selector = selector;
+				serverChannel.bind(new InetSocketAddress(InetAddress.getByName(address), port));
+				serverChannel.configureBlocking(false);
+				serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+				
+				long nextSweep = System.currentTimeMillis() + SWEEP_INTERVAL;
+				while (!stop) {
+					selector.select(SWEEP_INTERVAL);
+					runTasks();
+					
+					long now = System.currentTimeMillis();
+					if (now >= nextSweep) {
+						closeIdle(now - keepAliveTimeout * 1000L);
+						nextSweep = now + SWEEP_INTERVAL;
+					}
+					
+					Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+					while (it.hasNext()) {
+						SelectionKey key = it.next();
+						it.remove();
+						if (!key.isValid()) continue;
+						
+						if (key.isAcceptable()) {
+							accept(serverChannel);
+						} else {
+							serve(key);
+						}
+					}
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		/**
+		 * Wakes up the event loop.
+		 */
+		public void wakeup() {
+			Selector current = selector;
+			if (current != null) {
+				current.wakeup();
+			}
+		}
+
+		/**
+		 * Schedules the given task to be run on the event loop.
+		 * 
+		 * @param task task
+		 */
+		private void execute(Runnable task) {
+			tasks.add(task);
+			wakeup();
+		}
+
+		/**
+		 * Runs all scheduled tasks.
+		 */
+		private void runTasks() {
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				task.run();
+			}
+		}
+
+		/**
+		 * Accepts all pending connections.
+		 * 
+		 * @param serverChannel server channel
+		 * @throws IOException in case of an I/O error
+		 */
+		private void accept(ServerSocketChannel serverChannel) throws IOException {
+			SocketChannel client;
+			while ((client = serverChannel.accept()) != null) {
+				client.configureBlocking(false);
+				NioConnection connection = new NioConnection(client, this::execute, maxHeaderSize);
+				ClientWorker worker = new ClientWorker(connection);
+				connection.setRequestHandler(header -> {
+					worker.setRequestHeader(header);
+					if (!submit(worker)) {
+						metrics.recordResponse(503);
+						try {
+							connection.reject(SERVICE_UNAVAILABLE_RESPONSE);
+						} catch (IOException e) {
+							connection.closeNow();
+						}
+					}
+				});
+				connection.setRejectionListener(metrics::recordResponse);
+				connection.setKey(client.register(selector, SelectionKey.OP_READ, connection));
+			}
+		}
+
 		/**
-		 * Default package of workers.
+		 * Closes all connections idle since the given time.
+		 * 
+		 * @param time time in milliseconds
 		 */
-		private static final String WORKERS_PACKAGE = "hr.fer.zemris.java.webserver.workers.";
+		private void closeIdle(long time) {
+			for (SelectionKey key : selector.keys()) {
+				Object attachment = key.attachment();
+				if (attachment instanceof NioConnection && ((NioConnection) attachment).isIdleSince(time)) {
+					((NioConnection) attachment).closeNow();
+				}
+			}
+		}
+
+		/**
+		 * Reads from or writes to the client connection of the given key.
+		 * 
+		 * @param key selection key
+		 */
+		private void serve(SelectionKey key) {
+			NioConnection connection = (NioConnection) key.attachment();
+			try {
+				if (key.isWritable()) {
+					connection.writePending();
+				}
+				if (key.isValid() && key.isReadable()) {
+					connection.onReadable();
+				}
+			} catch (IOException e) {
+				connection.closeNow();
+			}
+		}
+	}
+
+	/**
+	 * Class representing a worker.
+	 * 
+	 * @author stipe
+	 *
+	 */
+	private class ClientWorker implements Runnable, IDispatcher {
 		/**
 		 * Client socket.
 		 */
 		private Socket csocket;
+		/**
+		 * Non-blocking client connection, used instead of the socket in non-blocking mode.
+		 */
+		private NioConnection connection;
+		/**
+		 * Header of the request being served. In non-blocking mode it is read by the event loop.
+		 */
+		private HttpRequestHeader requestHeader;
+		/**
+		 * Parser of request headers in blocking mode.
+		 */
+		private HttpHeaderParser headerParser;
 		/**
 		 * Input stream.
 		 */
-		private PushbackInputStream istream;
+		private InputStream istream;
 		/**
 		 * Output stream.
 		 */
@@ -301,6 +718,34 @@ public class SmartHttpServer {
 		 * Worker context.
 		 */
 		private RequestContext context;
+		/**
+		 * Route which served the current request, used for metrics.
+		 */
+		private String route;
+		/**
+		 * Time spent dispatching the current request, or -1 if it hasn't been dispatched.
+		 */
+		private long dispatchNanos;
+		/**
+		 * Time spent writing the remaining output of the current request, or -1 if it hasn't been dispatched.
+		 */
+		private long writeNanos;
+		/**
+		 * Content coding accepted by the client of the current request, or null if compression isn't used.
+		 */
+		private String contentCoding;
+		/**
+		 * Future of the asynchronous worker processing the current request, or null.
+		 */
+		private CompletableFuture<Void> pending;
+		/**
+		 * Deadline of the current request, or null if requests have no deadline.
+		 */
+		private RequestDeadline deadline;
+		/**
+		 * Time at which the current request has been dispatched.
+		 */
+		private long dispatchStart;
 
 		/**
 		 * Constructor.
@@ -312,6 +757,37 @@ public class SmartHttpServer {
 			this.csocket = csocket;
 		}
 
+		/**
+		 * Constructor used in non-blocking mode, where request headers
+		 * are read by the event loop.
+		 * 
+		 * @param connection client connection
+		 */
+		public ClientWorker(NioConnection connection) {
+			super();
+			this.connection = connection;
+			this.ostream = connection.getOutputStream();
+		}
+
+		/**
+		 * Sets the header of the next request in non-blocking mode.
+		 * 
+		 * @param requestHeader request header
+		 */
+		public void setRequestHeader(HttpRequestHeader requestHeader) {
+			this.requestHeader = requestHeader;
+		}
+
+		/**
+		 * Checks whether the client connects from the loopback address.
+		 * 
+		 * @return true if the client is local
+		 */
+		private boolean isLoopbackClient() {
+			InetAddress address = connection != null ? connection.getRemoteAddress() : csocket.getInetAddress();
+			return address != null && address.isLoopbackAddress();
+		}
+
 		/**
 		 * Handles the dispatch request.
 		 * 
@@ -327,39 +803,87 @@ public class SmartHttpServer {
 				return;
 			}
 			
-			if (urlPath.startsWith("/ext/")) {
-				String fqcn = WORKERS_PACKAGE + urlPath.substring(5);
-				IWebWorker worker = instantiateWorker(fqcn);
-				worker.processRequest(context);
-				closeEverything();
+			IWebWorker worker = workers.route(urlPath);
+			if (worker instanceof MetricsWorker && !isLoopbackClient()) {
+				// Metrics are private, so other clients aren't told they exist.
+				sendError(404, "File not found");
 				return;
 			}
-			
-			IWebWorker worker = workersMap.get(urlPath);
 			if (worker != null) {
-				worker.processRequest(context);
-				// Mozda tu closeEverything() i return?
+				if (directCall) route = worker.getClass().getSimpleName();
+				String key = null;
+				if (directCall && responses != null && worker instanceof ICacheableWebWorker) {
+					key = ResponseCache.key(urlPath, (ICacheableWebWorker) worker, context);
+					ResponseCache.Response response = responses.get(key);
+					if (response != null) {
+						response.replay(context);
+						return;
+					}
+					context.startCapture();
+				}
+				
+				if (directCall && connection != null && worker instanceof IAsyncWebWorker) {
+					// The response is finished once the worker completes, see serveRequest.
+					pending = ((IAsyncWebWorker) worker).processRequestAsync(context, computePool);
+				} else {
+					worker.processRequest(context);
+				}
+				
+				if (key != null) {
+					String cacheKey = key;
+					int ttl = ((ICacheableWebWorker) worker).getCacheTtl();
+					if (pending != null) {
+						pending = pending.thenRun(() -> {
+							try {
+								cacheResponse(cacheKey, ttl);
+							} catch (IOException e) {
+								throw new UncheckedIOException(e);
+							}
+						});
+					} else {
+						cacheResponse(key, ttl);
+					}
+				}
 			} else {
 				Path filePath = resolveChild(urlPath.substring(1));
 				if (filePath == null) {
 					sendError(403, "Forbidden");
 					return;
 				}
-				if (!(Files.exists(filePath) && Files.isReadable(filePath))) {
-					sendError(404, "File not found");
-					return;
-				}
 				String extension = extractExtension(filePath);
 				if ("smscr".equals(extension)) {
-					executeScript(filePath);
+					SmartScriptProgram program = scripts.get(filePath);
+					if (program == null) {
+						sendError(404, "File not found");
+						return;
+					}
+					if (directCall) route = urlPath;
+					executeScript(program);
 				} else {
-					executeNormal(filePath, extension);
-				}				
+					StaticFile file = staticFiles.get(filePath);
+					if (file == null) {
+						sendError(404, "File not found");
+						return;
+					}
+					if (directCall) route = "static";
+					executeNormal(file, extension);
+				}
 			}
-			
-			closeEverything();
 		}
 		
+		/**
+		 * Caches the captured response of a worker and writes it.
+		 * 
+		 * @param key cache key
+		 * @param ttl time to live in seconds
+		 * @throws IOException in case of an I/O error
+		 */
+		private void cacheResponse(String key, int ttl) throws IOException {
+			ResponseCache.Response response = context.endCapture();
+			responses.put(key, response, ttl);
+			response.replay(context);
+		}
+
 		/**
 		 * Checks if the url is private.
 		 * 
@@ -374,15 +898,10 @@ public class SmartHttpServer {
 		/**
 		 * Executes smart script.
 		 * 
-		 * @param filePath path
+		 * @param program compiled script
 		 */
-		private void executeScript(Path filePath) {
-			String documentBody = readFromDisk(filePath);
-			
-			new SmartScriptEngine(
-					new SmartScriptParser(documentBody).getDocumentNode(),
-					context
-				).execute();
+		private void executeScript(SmartScriptProgram program) {
+			new SmartScriptInterpreter(program, context).execute();
 		}
 
 		/**
@@ -397,24 +916,132 @@ public class SmartHttpServer {
 						outputCookies, tempParams, 
 						this, SID
 					);
+				context.setHeaderListener(() -> {
+					// The deadline doesn't cover sending the body, such as streaming a large file.
+					if (deadline != null) {
+						deadline.release();
+					}
+				});
 			}
 			return context;
 		}
 
 		/**
-		 * Executes teh normal file writing.
+		 * Executes teh normal file writing. Files which aren't cached are streamed rather than
+		 * read into memory. Unchanged files are answered with 304 and a single byte range
+		 * is served if requested. Compressible files are sent gzip compressed if the client
+		 * accepts it, unless a range is requested.
 		 * 
-		 * @param filePath file
+		 * @param file file
 		 * @param extension extension of the file
 		 * @throws IOException
 		 */
-		private void executeNormal(Path filePath, String extension) throws IOException {
+		private void executeNormal(StaticFile file, String extension) throws IOException {
 			String mimeType = determineMimetype(extension);
+			long size = file.getSize();
 			context.setMimeType(mimeType);
-			context.setStatusCode(200);
 			
-			byte[] bytes = Files.readAllBytes(filePath);
-			context.write(bytes);
+			boolean compressible = compression && size >= compressionMinSize && Compression.isCompressible(mimeType);
+			if (compressible) {
+				context.addHeader("Vary", "Accept-Encoding");
+				if (Compression.GZIP.equals(contentCoding) && requestHeader.getHeader("Range") == null
+						&& executeCompressed(file)) {
+					return;
+				}
+			}
+			
+			context.addHeader("Accept-Ranges", "bytes");
+			context.addHeader("ETag", file.getETag());
+			context.addHeader("Last-Modified", file.getLastModifiedText());
+			
+			if (file.isNotModified(file.getETag(), requestHeader.getHeader("If-None-Match"), 
+					requestHeader.getHeader("If-Modified-Since"))) {
+				context.setStatusCode(304);
+				context.setStatusText("Not Modified");
+				// Length of the unchanged file, while the response itself has no body.
+				context.setContentLength(size);
+				return;
+			}
+			
+			ByteRange range = file.isRangeValid(requestHeader.getHeader("If-Range"))
+					? ByteRange.parse(requestHeader.getHeader("Range"), size)
+					: null;
+			if (range == null) {
+				context.setStatusCode(200);
+				context.setContentLength(size);
+				writeFile(file, 0, size);
+				return;
+			}
+			
+			context.addHeader("Content-Range", range.toContentRange());
+			if (!range.isSatisfiable()) {
+				sendError(416, "Range Not Satisfiable");
+				return;
+			}
+			context.setStatusCode(206);
+			context.setStatusText("Partial Content");
+			context.setContentLength(range.getCount());
+			writeFile(file, range.getFirst(), range.getCount());
+		}
+
+		/**
+		 * Sends the gzip compressed variant of the given file. A precompressed sibling file
+		 * with the {@code .gz} extension is preferred if it isn't older than the file,
+		 * otherwise a compressed copy of a cached file is used.
+		 * 
+		 * @param file file
+		 * @return true if the response has been sent, false if there is no compressed variant
+		 * @throws IOException
+		 */
+		private boolean executeCompressed(StaticFile file) throws IOException {
+			Path path = file.getPath();
+			StaticFile sibling = staticFiles.get(path.resolveSibling(path.getFileName() + ".gz"));
+			byte[] gzip = null;
+			if (sibling == null || sibling.getLastModified() < file.getLastModified()) {
+				sibling = null;
+				gzip = staticFiles.getGzipContent(file);
+				if (gzip == null) {
+					return false;
+				}
+			}
+			
+			context.addHeader("Content-Encoding", Compression.GZIP);
+			context.addHeader("ETag", file.getGzipETag());
+			context.addHeader("Last-Modified", file.getLastModifiedText());
+			long size = sibling != null ? sibling.getSize() : gzip.length;
+			context.setContentLength(size);
+			
+			if (file.isNotModified(file.getGzipETag(), requestHeader.getHeader("If-None-Match"), 
+					requestHeader.getHeader("If-Modified-Since"))) {
+				context.setStatusCode(304);
+				context.setStatusText("Not Modified");
+				return true;
+			}
+			
+			context.setStatusCode(200);
+			if (sibling != null) {
+				writeFile(sibling, 0, size);
+			} else {
+				context.writeShared(gzip);
+			}
+			return true;
+		}
+
+		/**
+		 * Writes the given region of a static file, from memory if the file is cached.
+		 * 
+		 * @param file file
+		 * @param position position of the first byte
+		 * @param count number of bytes
+		 * @throws IOException
+		 */
+		private void writeFile(StaticFile file, long position, long count) throws IOException {
+			byte[] content = file.getContent();
+			if (content != null) {
+				context.writeShared(content, (int) position, (int) count);
+			} else {
+				context.write(file.getPath(), position, count);
+			}
 		}
 
 		/**
@@ -426,116 +1053,368 @@ public class SmartHttpServer {
 		
 		@Override
 		public void run() {
+			// Clears an interrupt left over by an abort of a previous task of this thread.
+			Thread.interrupted();
+			boolean keepAlive = false;
+			boolean detached = false;
 			try {
-				istream = new PushbackInputStream(csocket.getInputStream());
-				ostream = new BufferedOutputStream(csocket.getOutputStream());
-				
-				List<String> request = readRequest();
-				if (request == null || request.isEmpty()) {
-					sendError(400, "Bad request");
-					return;
-				}
-				
-				String firstLine = request.get(0);
-				String[] lineParts = firstLine.split(" ");
-				if (lineParts.length != 3) {
-					sendError(400, "Bad request");
-					return;
-				}
-				
-				method = lineParts[0].toUpperCase();
-				if(!method.equals("GET")) {
-					sendError(405, "Method Not Allowed");
-					return;
+				if (connection == null) {
+					csocket.setSoTimeout(keepAliveTimeout * 1000);
+					istream = csocket.getInputStream();
+					ostream = new SocketOutputStream(csocket);
+					headerParser = new HttpHeaderParser(maxHeaderSize);
+					
+					int served = 0;
+					do {
+						served++;
+						keepAlive = serveRequest(headerParser.readHeader(istream),
+								served < maxKeepAliveRequests && !isPoolSaturated());
+						// Waiting for the next request holds a thread, so only a short wait is allowed.
+						csocket.setSoTimeout(blockingKeepAliveTimeout * 1000);
+					} while (keepAlive && !isPoolSaturated());
+					
+				} else {
+					keepAlive = serveRequest(requestHeader, connection.getRequestCount() < maxKeepAliveRequests);
+					if (pending != null) {
+						detached = true;
+						closeWhenDone(pending);
+						pending = null;
+					}
 				}
 				
-				version = lineParts[2].toUpperCase();
-				if(!(version.equals("HTTP/1.1") || version.equals("HTTP/1.0"))) {
-					sendError(505, "HTTP Version Not Supported");
-					return;
+			} catch (HeaderTooLargeException e) {
+				metrics.recordResponse(431);
+				try {
+					getContext().reset();
+					sendError(431, "Request Header Fields Too Large");
+				} catch (IOException ignorable) {
 				}
-				
-				String requestedPath = lineParts[1];
-				
-				host = request.stream()
-					.filter(l -> l.startsWith("Host:"))
-					.map(l -> l.split(":")[1].strip())
-					.reduce((f,  s) -> s)
-					.orElse(domainName);
-
-				checkSession(request);
-				
-				String[] pathParts = requestedPath.split("\\?");
-				String path = pathParts[0];
-				if (pathParts.length > 1) {
-					String paramString = pathParts[1];				
-					parseParameters(paramString);					
-				}
-				
-				internalDispatchRequest(path, true);
-				
+			} catch (SocketTimeoutException e) {
+				// Persistent connection has been idle for too long.
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 			} catch (Exception e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
+			} finally {
+				if (!detached) {
+					try {
+						closeEverything(keepAlive);
+					} catch (IOException ignorable) {
+					}
+				}
 			}
 		}
 
 		/**
-		 * Checks the session id.
+		 * Hands the connection back to the event loop, or closes it, once the given response
+		 * of an asynchronous worker has been finished.
 		 * 
-		 * @param request
+		 * @param response future of the finished response
 		 */
-		private synchronized void checkSession(List<String> request) {
-			String sidCandidate = findCandidate(request);
+		private void closeWhenDone(CompletableFuture<Void> response) {
+			response.whenComplete((v, e) -> {
+				Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+				if (cause != null && !(cause instanceof CancellationException)) {
+					metrics.recordError();
+					cause.printStackTrace();
+				}
+				try {
+					closeEverything(e == null && context.isKeepAlive());
+				} catch (IOException ignorable) {
+				}
+			});
+		}
+
+		/**
+		 * Serves a single request.
+		 * 
+		 * @param request request header, or null if the client closed the connection
+		 * @param keepAliveAllowed whether the connection can be kept open after this request
+		 * @return true if the connection should be kept open for the next request
+		 * @throws Exception in case of an error
+		 */
+		private boolean serveRequest(HttpRequestHeader request, boolean keepAliveAllowed) throws Exception {
+			if (request == null) {
+				return false;
+			}
+			RequestDeadline requestDeadline = watchdog == null ? null : new RequestDeadline(Thread.currentThread());
+			deadline = requestDeadline;
+			route = "none";
+			dispatchNanos = -1;
+			writeNanos = -1;
+			boolean keepAlive;
+			try {
+				keepAlive = processRequest(request, keepAliveAllowed);
+				if (pending != null) {
+					pending = finishLater(pending, request, requestDeadline);
+					return false;
+				}
+				metrics.recordRequest(context.getStatusCode(), route, request.getParseNanos(), dispatchNanos, writeNanos);
+			} catch (Exception e) {
+				metrics.recordError();
+				throw e;
+			} finally {
+				if (requestDeadline != null) {
+					requestDeadline.releaseThread();
+					// Clears an interrupt of an abort, which can't be running any more.
+					Thread.interrupted();
+				}
+			}
+			// An aborted request has closed the connection.
+			return keepAlive && (requestDeadline == null || !requestDeadline.isAborted());
+		}
+
+		/**
+		 * Finishes the response once the given asynchronous worker completes, on the thread
+		 * which completes it. The deadline of the request still applies, and if it is exceeded
+		 * the connection is closed and the worker is cancelled.
+		 * 
+		 * @param future future of the worker
+		 * @param request request header
+		 * @param requestDeadline deadline of the request, or null if there is none
+		 * @return future of the finished response
+		 */
+		private CompletableFuture<Void> finishLater(CompletableFuture<Void> future, HttpRequestHeader request,
+				RequestDeadline requestDeadline) {
+			if (requestDeadline != null) {
+				requestDeadline.setFuture(future);
+			}
 			
-			if (sidCandidate == null) {
-				sidCandidate = createCandidate();
-				createNewSession(sidCandidate);
-				
+			return future.whenComplete((v, e) -> {
+				if (requestDeadline != null) requestDeadline.release();
+			}).thenRun(() -> {
+				try {
+					finishRequest();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				metrics.recordRequest(context.getStatusCode(), route, request.getParseNanos(), dispatchNanos, writeNanos);
+			});
+		}
+
+		/**
+		 * Aborts the request which has exceeded its deadline by closing the connection,
+		 * which makes any further reading or writing fail, and interrupting the worker thread.
+		 * 
+		 * @param thread thread processing the request, or null if it is processed asynchronously
+		 */
+		private void abort(Thread thread) {
+			metrics.recordAborted();
+			if (connection != null) {
+				connection.abort();
 			} else {
-				checkExistingCandidate(sidCandidate);
+				try {
+					csocket.close();
+				} catch (IOException ignorable) {
+				}
+			}
+			if (thread != null) {
+				thread.interrupt();
 			}
-			
-			permPrams = sessions.get(sidCandidate).map;
 		}
 
 		/**
-		 * Checks the existing session.
+		 * Deadline of a single request, after which the request is aborted unless its header
+		 * has been sent or it has completed. An abort and the release of the deadline exclude
+		 * each other, so an abort which fires as the request completes either finishes before
+		 * the thread and the connection move on to the next request, or doesn't happen at all.
 		 * 
-		 * @param sidCandidate
+		 * @author stipe
+		 *
 		 */
-		private void checkExistingCandidate(String sidCandidate) {
-			SessionMapEntry entry = sessions.get(sidCandidate);
-			if (entry != null && entry.host.equals(host)) {
-				long time = System.currentTimeMillis() / 1000;
-				if (entry.validUntil > time) {
-					entry.validUntil = time + sessionTimeout;
-				} else {
-					sessions.remove(sidCandidate);
-					createNewSession(sidCandidate);
+		private class RequestDeadline {
+			/**
+			 * Scheduled abort.
+			 */
+			private ScheduledFuture<?> timer;
+			/**
+			 * Thread processing the request, or null once it has stopped processing it.
+			 */
+			private Thread thread;
+			/**
+			 * Future of the asynchronous worker processing the request, or null.
+			 */
+			private CompletableFuture<Void> future;
+			/**
+			 * Flag showing whether the deadline no longer applies.
+			 */
+			private boolean released;
+			/**
+			 * Flag showing whether the request has been aborted.
+			 */
+			private boolean aborted;
+			
+			/**
+			 * Constructor, which schedules the abort.
+			 * 
+			 * @param thread {@link #thread}
+			 */
+			private RequestDeadline(Thread thread) {
+				this.thread = thread;
+				timer = watchdog.schedule(this::expire, requestTimeout, TimeUnit.SECONDS);
+			}
+			
+			/**
+			 * Aborts the request unless the deadline has been released.
+			 */
+			private synchronized void expire() {
+				if (released) return;
+				released = true;
+				aborted = true;
+				abort(thread);
+				if (future != null) {
+					future.cancel(false);
 				}
-			} else {
-				createNewSession(sidCandidate);
+			}
+			
+			/**
+			 * Releases the deadline, so the request is never aborted.
+			 */
+			private synchronized void release() {
+				released = true;
+				timer.cancel(false);
+			}
+			
+			/**
+			 * Called once the thread has stopped processing the request. The deadline is released,
+			 * unless the request is still being processed by an asynchronous worker.
+			 */
+			private synchronized void releaseThread() {
+				thread = null;
+				if (future == null) {
+					release();
+				}
+			}
+			
+			/**
+			 * Sets the future of the asynchronous worker, which is cancelled on abort,
+			 * or at once if the request has already been aborted.
+			 * 
+			 * @param future {@link #future}
+			 */
+			private synchronized void setFuture(CompletableFuture<Void> future) {
+				this.future = future;
+				if (aborted) {
+					future.cancel(false);
+				}
+			}
+			
+			/**
+			 * Checks whether the request has been aborted.
+			 * 
+			 * @return true if the request has been aborted
+			 */
+			private synchronized boolean isAborted() {
+				return aborted;
 			}
 		}
 
 		/**
-		 * Creates a candidate session id.
+		 * Processes a single request.
 		 * 
-		 * @return
+		 * @param request request header
+		 * @param keepAliveAllowed whether the connection can be kept open after this request
+		 * @return true if the connection should be kept open for the next request
+		 * @throws Exception in case of an error
+		 */
+		private boolean processRequest(HttpRequestHeader request, boolean keepAliveAllowed) throws Exception {
+			requestHeader = request;
+			getContext().reset();
+			
+			if (!request.isRequestLineValid()) {
+				sendError(400, "Bad request");
+				return false;
+			}
+			
+			method = request.getMethod().toUpperCase();
+			if(!method.equals("GET")) {
+				sendError(405, "Method Not Allowed");
+				return false;
+			}
+			
+			version = request.getVersion().toUpperCase();
+			if(!(version.equals("HTTP/1.1") || version.equals("HTTP/1.0"))) {
+				sendError(505, "HTTP Version Not Supported");
+				return false;
+			}
+			
+			String requestedPath = request.getRequestTarget();
+			
+			String hostHeader = request.getHeader("Host");
+			host = hostHeader == null ? domainName : hostHeader.split(":")[0].strip();
+			
+			context.setKeepAlive(keepAliveAllowed && isKeepAliveRequested(request));
+			context.setChunkingAllowed(version.equals("HTTP/1.1"));
+			contentCoding = compression ? Compression.negotiate(request.getHeader("Accept-Encoding")) : null;
+			context.setCompression(compression, contentCoding);
+
+			checkSession(request);
+			context.setSession(SID, permPrams);
+			
+			String[] pathParts = requestedPath.split("\\?");
+			String path = pathParts[0];
+			if (pathParts.length > 1) {
+				String paramString = pathParts[1];				
+				parseParameters(paramString);					
+			}
+			
+			dispatchStart = System.nanoTime();
+			internalDispatchRequest(path, true);
+			if (pending != null) {
+				return false;
+			}
+			return finishRequest();
+		}
+
+		/**
+		 * Writes the remaining output of the dispatched request.
+		 * 
+		 * @return true if the connection should be kept open for the next request
+		 * @throws IOException in case of an I/O error
+		 */
+		private boolean finishRequest() throws IOException {
+			long writeStart = System.nanoTime();
+			context.finish();
+			dispatchNanos = writeStart - dispatchStart;
+			writeNanos = System.nanoTime() - writeStart;
+			return context.isKeepAlive();
+		}
+
+		/**
+		 * Checks whether the client wants the connection to be kept open.
+		 * HTTP/1.1 connections are persistent unless closed explicitly, while
+		 * HTTP/1.0 connections have to ask for it.
+		 * 
+		 * @param request request header
+		 * @return true if the connection should be kept open
 		 */
-		private String createCandidate() {
-			StringBuilder sb = new StringBuilder();
-			int min = 'A';
-			int max = 'Z';
-			for (int i = 0; i < 20; i++) {
-				int value = min + (int) sessionRandom.nextDouble() * (max - min + 1);
-				sb.append((char) value);
+		private boolean isKeepAliveRequested(HttpRequestHeader request) {
+			String connectionHeader = request.getHeader("Connection");
+			if (connectionHeader == null) connectionHeader = "";
+			
+			if (version.equals("HTTP/1.1")) {
+				return !connectionHeader.equalsIgnoreCase("close");
+			}
+			return connectionHeader.equalsIgnoreCase("keep-alive");
+		}
+
+		/**
+		 * Checks the session id.
+		 * 
+		 * @param request
+		 */
+		private void checkSession(HttpRequestHeader request) {
+			String sidCandidate = findCandidate(request);
+			
+			SessionStore.Session session = sidCandidate == null ? null : sessions.get(sidCandidate, host);
+			if (session == null) {
+				session = createNewSession(sidCandidate == null ? sessions.newSid() : sidCandidate);
 			}
-			return sb.toString();
+			
+			SID = session.getSid();
+			permPrams = session.getParameters();
 		}
 		
 		/**
@@ -544,10 +1423,9 @@ public class SmartHttpServer {
 		 * @param request
 		 * @return
 		 */
-		private String findCandidate(List<String> request) {
+		private String findCandidate(HttpRequestHeader request) {
 			String sidCandidate = null;
-			for (String line : request) {
-				if (!line.startsWith("Cookie:")) continue;
+			for (String line : request.getHeaders("Cookie")) {
 				if (!line.contains("sid=")) continue;
 			
 				int i = line.indexOf("sid=") + 4;
@@ -564,14 +1442,12 @@ public class SmartHttpServer {
 		 * Creates ne session with the given candidate.
 		 * 
 		 * @param sidCandidate
+		 * @return new session
 		 */
-		private void createNewSession(String sidCandidate) {
-			long time = System.currentTimeMillis() / 1000 + sessionTimeout;
-			SessionMapEntry session = new SessionMapEntry(
-					sidCandidate, host, time, new ConcurrentHashMap<>()
-				);
-			sessions.put(sidCandidate, session);
+		private SessionStore.Session createNewSession(String sidCandidate) {
+			SessionStore.Session session = sessions.create(sidCandidate, host);
 			outputCookies.add(new RCCookie("sid", sidCandidate, null, host, "/"));
+			return session;
 		}
 
 		/**
@@ -627,140 +1503,45 @@ public class SmartHttpServer {
 		}
 
 		/**
-		 * Reads header request.
-		 * 
-		 * @return list of header lines
-		 * @throws IOException
-		 */
-		private List<String> readRequest() throws IOException {
-			byte[] request = readRequest(istream);
-			if (request == null) return null;
-			
-			String requestText = new String(
-					request, 
-					StandardCharsets.US_ASCII
-				);
-//			return requestText.lines().collect(Collectors.toList());
-			return extractHeaders(requestText);
-		}
-
-		/**
-		 * Reads bytes of the header.
-		 * 
-		 * @param is
-		 * @return
-		 * @throws IOException
-		 */
-		private byte[] readRequest(InputStream is) throws IOException {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			int state = 0;
-			l: 
-			while (true) {
-				int b = is.read();
-				if(b==-1) return null;
-				if(b!=13) {
-					bos.write(b);
-				}
-				switch(state) {
-				case 0: 
-					if(b==13) { state=1; } else if(b==10) state=4;
-					break;
-				case 1: 
-					if(b==10) { state=2; } else state=0;
-					break;
-				case 2: 
-					if(b==13) { state=3; } else state=0;
-					break;
-				case 3: 
-					if(b==10) { break l; } else state=0;
-					break;
-				case 4: 
-					if(b==10) { break l; } else state=0;
-					break;
-				}
-			}
-			return bos.toByteArray();
-		}
-
-		/**
-		 * Extracts header elements.
-		 * 
-		 * @param requestHeader header text
-		 * @return
-		 */
-		private List<String> extractHeaders(String requestHeader) {
-			List<String> headers = new ArrayList<String>();
-			String currentLine = null;
-			for(String s : requestHeader.split("\n")) {
-				if(s.isEmpty()) break;
-				char c = s.charAt(0);
-				if(c==9 || c==32) {
-					currentLine += s;
-				} else {
-					if(currentLine != null) {
-						headers.add(currentLine);
-					}
-					currentLine = s;
-				}
-			}
-			if(!currentLine.isEmpty()) {
-				headers.add(currentLine);
-			}
-			return headers;
-		}
-		
-		/**
-		 * Error sending method.
+		 * Error sending method. The connection is kept open only if the
+		 * request itself was valid and asked for a persistent connection.
 		 * 
 		 * @param statusCode error code
 		 * @param statusText error text
 		 * @throws IOException
 		 */
 		private void sendError(int statusCode, String statusText) throws IOException {
-			ostream.write(
-				("HTTP/1.1 " + statusCode + " " + statusText + "\r\n"+
-				"Server: simple java server\r\n"+
-				"Content-Type: text/plain;charset=UTF-8\r\n"+
-				"Content-Length: 0\r\n"+
-				"Connection: close\r\n"+
-				"\r\n").getBytes(StandardCharsets.US_ASCII)
-			);
-			closeEverything();
+			RequestContext context = getContext();
+			context.setStatusCode(statusCode);
+			context.setStatusText(statusText);
+			context.setMimeType("text/plain");
+			context.setContentLength(0L);
+			context.finish();
 		}
 
 		/**
-		 * Flushes output and closes socket.
+		 * Flushes output and closes socket. In non-blocking mode a persistent
+		 * connection is handed back to the event loop instead.
 		 * 
+		 * @param keepAlive whether a persistent connection should be kept open
 		 * @throws IOException
 		 */
-		private void closeEverything() throws IOException {
-			ostream.flush();
+		private void closeEverything(boolean keepAlive) throws IOException {
+			if (!keepAlive && context != null) {
+				context.release();
+			}
+			if (connection != null) {
+				connection.requestDone(keepAlive);
+				return;
+			}
+			if (ostream != null) {
+				ostream.flush();
+			}
 			csocket.close();
 		}
 		
 	}
 	
-	/**
-	 * Static class representing session entry.
-	 * 
-	 * @author stipe
-	 *
-	 */
-	private static class SessionMapEntry {
-		@SuppressWarnings("unused")
-		String sid;
-		String host;
-		long validUntil;
-		Map<String, String> map;
-		
-		public SessionMapEntry(String sid, String host, long validUntil, Map<String, String> map) {
-			this.sid = sid;
-			this.host = host;
-			this.validUntil = validUntil;
-			this.map = map;
-		}
-	}
-	
 	/**
 	 * Main method. Accepts only one argument which is the configuration file path.
 	 * 
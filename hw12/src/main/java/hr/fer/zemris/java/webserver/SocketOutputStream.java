@@ -0,0 +1,49 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Buffered output stream of a blocking client socket. Regions of files are
+ * transferred to the socket channel with {@link FileChannel#transferTo}, which
+ * lets the operating system copy them directly from the file to the socket.
+ *
+ * @author stipe
+ *
+ */
+class SocketOutputStream extends BufferedOutputStream implements FileRegionOutput {
+
+	/**
+	 * Channel of the socket.
+	 */
+	private SocketChannel channel;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param socket client socket, which has to be created by a server socket channel
+	 * @throws IOException in case of an I/O error
+	 */
+	public SocketOutputStream(Socket socket) throws IOException {
+		super(socket.getOutputStream());
+		this.channel = socket.getChannel();
+	}
+
+	@Override
+	public void writeFileRegion(FileChannel file, long position, long count) throws IOException {
+		try (FileChannel fc = file) {
+			flush();
+			long end = position + count;
+			while (position < end) {
+				long transferred = fc.transferTo(position, end - position, channel);
+				if (transferred <= 0 && position >= fc.size()) {
+					throw new IOException("File has been truncated while being sent.");
+				}
+				position += transferred;
+			}
+		}
+	}
+}
@@ -0,0 +1,435 @@
+package hr.fer.zemris.java.webserver;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of static files. Contents of small files are kept in memory, in a cache
+ * limited by the total number of cached bytes from which the least recently used
+ * files are evicted first. A cached file is reloaded once its modification time
+ * or size changes, so every lookup costs a single file system call.
+ * <p>
+ * Files larger than the maximum cached file size are never loaded into memory,
+ * but their metadata is provided in the same way.
+ * <p>
+ * A gzip compressed variant of a cached file is created on the first request
+ * which accepts it and is kept, and counted, together with the file.
+ *
+ * @author stipe
+ *
+ */
+public class StaticFileCache {
+
+	/**
+	 * Format of dates used in http headers.
+	 */
+	public static final DateTimeFormatter HTTP_DATE_FORMAT = DateTimeFormatter
+			.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+			.withZone(ZoneOffset.UTC);
+	/**
+	 * Compressed variant of a file which doesn't get smaller when compressed.
+	 */
+	private static final byte[] INCOMPRESSIBLE = new byte[0];
+
+	/**
+	 * Maximum total number of cached bytes.
+	 */
+	private long maxBytes;
+	/**
+	 * Maximum size of a single cached file.
+	 */
+	private long maxFileSize;
+	/**
+	 * Cached files, in access order.
+	 */
+	private Map<Path, StaticFile> files = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * Total number of cached bytes.
+	 */
+	private long cachedBytes;
+	/**
+	 * Number of lookups served from memory.
+	 */
+	private LongAdder hits = new LongAdder();
+	/**
+	 * Number of lookups for which the file had to be read from disk.
+	 */
+	private LongAdder misses = new LongAdder();
+	/**
+	 * Number of evicted files.
+	 */
+	private LongAdder evictions = new LongAdder();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxBytes {@link #maxBytes}
+	 * @param maxFileSize {@link #maxFileSize}
+	 */
+	public StaticFileCache(long maxBytes, long maxFileSize) {
+		this.maxBytes = maxBytes;
+		this.maxFileSize = Math.min(maxFileSize, maxBytes);
+	}
+
+	/**
+	 * Looks up the file at the given path.
+	 *
+	 * @param path path of the file
+	 * @return file, or null if there is no readable regular file at the given path
+	 * @throws IOException in case of an I/O error
+	 */
+	public StaticFile get(Path path) throws IOException {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		if (!attributes.isRegularFile()) {
+			return null;
+		}
+		long size = attributes.size();
+		long lastModified = attributes.lastModifiedTime().toMillis();
+
+		StaticFile file;
+		synchronized (files) {
+			file = files.get(path);
+		}
+		if (file != null && file.size == size && file.lastModified == lastModified) {
+			hits.increment();
+			return file;
+		}
+
+		misses.increment();
+		byte[] content = null;
+		try {
+			if (size <= maxFileSize) {
+				content = Files.readAllBytes(path);
+			} else if (!Files.isReadable(path)) {
+				return null;
+			}
+		} catch (AccessDeniedException | NoSuchFileException e) {
+			return null;
+		}
+		// The file may have changed while it was read.
+		if (content != null && content.length != size) {
+			size = content.length;
+			lastModified = Files.getLastModifiedTime(path).toMillis();
+		}
+
+		file = new StaticFile(path, size, lastModified, content);
+		if (content != null) {
+			put(file);
+		}
+		return file;
+	}
+
+	/**
+	 * Returns the gzip compressed content of the given file, compressing it if this
+	 * hasn't been done yet. Only files kept in memory are compressed.
+	 *
+	 * @param file file returned by this cache
+	 * @return compressed content, or null if the file isn't kept in memory
+	 *         or doesn't get smaller when compressed
+	 */
+	public byte[] getGzipContent(StaticFile file) {
+		byte[] gzip = file.gzipContent;
+		if (gzip == null) {
+			if (file.content == null) {
+				return null;
+			}
+			gzip = Compression.gzip(file.content);
+			if (gzip.length >= file.content.length) {
+				gzip = INCOMPRESSIBLE;
+			}
+
+			synchronized (files) {
+				if (file.gzipContent != null) {
+					gzip = file.gzipContent;
+				} else {
+					file.gzipContent = gzip;
+					if (files.get(file.path) == file) {
+						cachedBytes += gzip.length;
+						evict();
+					}
+				}
+			}
+		}
+		return gzip == INCOMPRESSIBLE ? null : gzip;
+	}
+
+	/**
+	 * Stores the given file and evicts the least recently used files if the cache is full.
+	 *
+	 * @param file file
+	 */
+	private void put(StaticFile file) {
+		synchronized (files) {
+			StaticFile previous = files.put(file.path, file);
+			if (previous != null) {
+				cachedBytes -= previous.cachedSize();
+			}
+			cachedBytes += file.cachedSize();
+			evict();
+		}
+	}
+
+	/**
+	 * Evicts the least recently used files while the cache is full. Has to be called
+	 * while holding the lock of {@link #files}.
+	 */
+	private void evict() {
+		Iterator<StaticFile> it = files.values().iterator();
+		while (cachedBytes > maxBytes && it.hasNext()) {
+			StaticFile eldest = it.next();
+			it.remove();
+			cachedBytes -= eldest.cachedSize();
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * Returns the number of lookups served from memory.
+	 *
+	 * @return number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups for which the file had to be read from disk.
+	 * Lookups of files too large to be cached are counted as well.
+	 *
+	 * @return number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of files evicted from the cache.
+	 *
+	 * @return number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the total number of cached bytes.
+	 *
+	 * @return number of bytes
+	 */
+	public long getCachedBytes() {
+		synchronized (files) {
+			return cachedBytes;
+		}
+	}
+
+	/**
+	 * Returns the number of cached files.
+	 *
+	 * @return number of files
+	 */
+	public int getCachedFiles() {
+		synchronized (files) {
+			return files.size();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("hits=%d misses=%d evictions=%d files=%d bytes=%d/%d",
+				getHits(), getMisses(), getEvictions(), getCachedFiles(), getCachedBytes(), maxBytes);
+	}
+
+	/**
+	 * Class representing a static file together with its validators.
+	 *
+	 * @author stipe
+	 *
+	 */
+	public static class StaticFile {
+		/**
+		 * Path of the file.
+		 */
+		private Path path;
+		/**
+		 * Size of the file in bytes.
+		 */
+		private long size;
+		/**
+		 * Time of the last modification in milliseconds.
+		 */
+		private long lastModified;
+		/**
+		 * Content of the file, or null if it isn't kept in memory.
+		 */
+		private byte[] content;
+		/**
+		 * Gzip compressed content, {@link #INCOMPRESSIBLE}, or null if it hasn't been created yet.
+		 */
+		private volatile byte[] gzipContent;
+		/**
+		 * Entity tag.
+		 */
+		private String etag;
+		/**
+		 * Entity tag of the gzip compressed variant.
+		 */
+		private String gzipETag;
+		/**
+		 * Time of the last modification formatted as a http date.
+		 */
+		private String lastModifiedText;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param path {@link #path}
+		 * @param size {@link #size}
+		 * @param lastModified {@link #lastModified}
+		 * @param content {@link #content}
+		 */
+		private StaticFile(Path path, long size, long lastModified, byte[] content) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.content = content;
+			this.etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+			this.gzipETag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+			this.lastModifiedText = HTTP_DATE_FORMAT.format(Instant.ofEpochMilli(lastModified));
+		}
+
+		/**
+		 * @return the path
+		 */
+		public Path getPath() {
+			return path;
+		}
+
+		/**
+		 * @return the size
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return the time of the last modification in milliseconds
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return the content, or null if the file isn't kept in memory
+		 */
+		public byte[] getContent() {
+			return content;
+		}
+
+		/**
+		 * @return the strong entity tag, derived from the size and the modification time
+		 */
+		public String getETag() {
+			return etag;
+		}
+
+		/**
+		 * @return the strong entity tag of the gzip compressed variant
+		 */
+		public String getGzipETag() {
+			return gzipETag;
+		}
+
+		/**
+		 * @return the time of the last modification formatted as a http date
+		 */
+		public String getLastModifiedText() {
+			return lastModifiedText;
+		}
+
+		/**
+		 * Checks whether the client's copy of the file is still valid, according to
+		 * the {@code If-None-Match} and {@code If-Modified-Since} request headers.
+		 * The date is ignored if entity tags are given. Only the tag of the served
+		 * variant matches, as the original and the compressed variant are different entities.
+		 *
+		 * @param servedETag entity tag of the variant being served, {@link #getETag()} or {@link #getGzipETag()}
+		 * @param ifNoneMatch value of the {@code If-None-Match} header, may be null
+		 * @param ifModifiedSince value of the {@code If-Modified-Since} header, may be null
+		 * @return true if the file hasn't been modified
+		 */
+		public boolean isNotModified(String servedETag, String ifNoneMatch, String ifModifiedSince) {
+			if (ifNoneMatch != null) {
+				for (String tag : ifNoneMatch.split(",")) {
+					tag = tag.strip();
+					if (tag.startsWith("W/")) tag = tag.substring(2);
+					if (tag.equals("*") || tag.equals(servedETag)) return true;
+				}
+				return false;
+			}
+
+			Long since = parseDate(ifModifiedSince);
+			return since != null && lastModified / 1000 <= since;
+		}
+
+		/**
+		 * Checks whether a range request can be served, according to the {@code If-Range}
+		 * request header. The header has to match the current entity tag or modification date exactly.
+		 *
+		 * @param ifRange value of the {@code If-Range} header, may be null
+		 * @return true if the requested range can be served
+		 */
+		public boolean isRangeValid(String ifRange) {
+			if (ifRange == null) return true;
+
+			ifRange = ifRange.strip();
+			if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+				return ifRange.equals(etag);
+			}
+			Long date = parseDate(ifRange);
+			return date != null && date == lastModified / 1000;
+		}
+
+		/**
+		 * Returns the number of bytes this file occupies in the cache.
+		 *
+		 * @return size of the content and of its compressed variant
+		 */
+		private long cachedSize() {
+			byte[] gzip = gzipContent;
+			return size + (gzip == null ? 0 : gzip.length);
+		}
+
+		/**
+		 * Parses a http date.
+		 *
+		 * @param text date, may be null
+		 * @return seconds since the epoch, or null if the date is invalid
+		 */
+		private static Long parseDate(String text) {
+			if (text == null) return null;
+			try {
+				return Instant.from(HTTP_DATE_FORMAT.parse(text.strip())).getEpochSecond();
+			} catch (DateTimeParseException e) {
+				return null;
+			}
+		}
+	}
+}
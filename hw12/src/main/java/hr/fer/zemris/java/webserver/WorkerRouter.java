@@ -0,0 +1,186 @@
+package hr.fer.zemris.java.webserver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Router mapping request paths to web workers.
+ * <p>
+ * Routes are kept in a trie of path segments. A route is either an exact path,
+ * such as {@code /hello}, or a prefix ending with {@code /*}, such as {@code /app/*},
+ * which matches the prefix itself and every path below it. An exact route takes
+ * precedence over prefixes, and a longer prefix over a shorter one.
+ * <p>
+ * Paths of the form {@code /ext/Name} are routed to the class {@code Name} of the
+ * conventional workers package. The class is loaded and instantiated only on the first
+ * request, and the same instance serves all later requests, so workers have to be
+ * thread-safe, as the workers mapped in {@code workers.properties} always had to be.
+ *
+ * @author stipe
+ *
+ */
+public class WorkerRouter {
+
+	/**
+	 * Prefix of paths of convention based workers.
+	 */
+	private static final String EXT_PREFIX = "/ext/";
+
+	/**
+	 * Root of the trie.
+	 */
+	private Node root = new Node();
+	/**
+	 * Package of convention based workers, ending with a dot.
+	 */
+	private String extPackage;
+	/**
+	 * Class loader of convention based workers.
+	 */
+	private ClassLoader classLoader;
+	/**
+	 * Convention based workers mapped to their names.
+	 */
+	private Map<String, IWebWorker> extWorkers = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param extPackage package of convention based workers, ending with a dot
+	 * @param classLoader class loader of convention based workers
+	 */
+	public WorkerRouter(String extPackage, ClassLoader classLoader) {
+		this.extPackage = extPackage;
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Adds a route. Routes have to be added before the router is used by other threads.
+	 *
+	 * @param pattern exact path, or prefix ending with {@code /*}
+	 * @param worker worker serving the matching paths
+	 * @throws IllegalArgumentException if the pattern doesn't start with {@code /}
+	 *         or if a worker has already been added for it
+	 */
+	public void add(String pattern, IWebWorker worker) {
+		if (!pattern.startsWith("/")) {
+			throw new IllegalArgumentException("Route must start with '/': " + pattern);
+		}
+		boolean prefix = pattern.endsWith("/*");
+		String path = prefix ? pattern.substring(0, pattern.length() - 2) : pattern;
+
+		Node node = root;
+		for (int start = 1; start <= path.length(); ) {
+			int end = path.indexOf('/', start);
+			if (end == -1) {
+				end = path.length();
+			}
+			node = node.children.computeIfAbsent(path.substring(start, end), s -> new Node());
+			start = end + 1;
+		}
+
+		if ((prefix ? node.prefixWorker : node.worker) != null) {
+			throw new IllegalArgumentException("Duplicate route: " + pattern);
+		}
+		if (prefix) {
+			node.prefixWorker = worker;
+		} else {
+			node.worker = worker;
+		}
+	}
+
+	/**
+	 * Returns the worker serving the given path.
+	 *
+	 * @param path request path
+	 * @return worker, or null if no worker serves the path
+	 */
+	public IWebWorker route(String path) {
+		if (path.startsWith(EXT_PREFIX)) {
+			return extWorker(path.substring(EXT_PREFIX.length()));
+		}
+
+		Node node = root;
+		IWebWorker prefixMatch = root.prefixWorker;
+		for (int start = 1; start <= path.length(); ) {
+			int end = path.indexOf('/', start);
+			if (end == -1) {
+				end = path.length();
+			}
+			node = node.children.get(path.substring(start, end));
+			if (node == null) {
+				return prefixMatch;
+			}
+			if (node.prefixWorker != null) {
+				prefixMatch = node.prefixWorker;
+			}
+			start = end + 1;
+		}
+		return node.worker != null ? node.worker : prefixMatch;
+	}
+
+	/**
+	 * Returns the convention based worker with the given name, instantiating it on first use.
+	 * Names which don't denote a worker are not cached, so clients can't fill the cache.
+	 *
+	 * @param name simple name of the worker class
+	 * @return worker, or null if there is no such worker
+	 */
+	private IWebWorker extWorker(String name) {
+		IWebWorker worker = extWorkers.get(name);
+		if (worker != null || name.isEmpty() || name.indexOf('/') != -1 || name.indexOf('.') != -1) {
+			return worker;
+		}
+
+		worker = instantiate(extPackage + name, classLoader);
+		if (worker == null) {
+			return null;
+		}
+		IWebWorker existing = extWorkers.putIfAbsent(name, worker);
+		return existing != null ? existing : worker;
+	}
+
+	/**
+	 * Instantiates a worker of the given class using its public no-argument constructor.
+	 *
+	 * @param fqcn fully qualified class name
+	 * @param classLoader class loader
+	 * @return worker, or null if the class doesn't exist or isn't an instantiable worker
+	 */
+	public static IWebWorker instantiate(String fqcn, ClassLoader classLoader) {
+		try {
+			Class<?> referenceToClass = classLoader.loadClass(fqcn);
+			if (!IWebWorker.class.isAssignableFrom(referenceToClass)) {
+				return null;
+			}
+			return (IWebWorker) referenceToClass.getConstructor().newInstance();
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (ReflectiveOperationException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Node of the trie, representing a path segment.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private static class Node {
+		/**
+		 * Children mapped to their segments.
+		 */
+		private Map<String, Node> children = new HashMap<>();
+		/**
+		 * Worker serving exactly the path of this node.
+		 */
+		private IWebWorker worker;
+		/**
+		 * Worker serving the path of this node and all paths below it.
+		 */
+		private IWebWorker prefixWorker;
+	}
+}
@@ -0,0 +1,191 @@
+package hr.fer.zemris.java.webserver.demo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import hr.fer.zemris.java.webserver.HttpHeaderParser;
+
+/**
+ * Micro benchmark comparing the byte-at-a-time state machine previously used for
+ * reading request headers with {@link HttpHeaderParser}. Both variants read a typical
+ * browser request and look up its {@code Host} header.
+ * <p>
+ * Reported are the average time and, when the JVM supports it, the average number
+ * of allocated bytes per parsed header. Arguments (optional): number of measured
+ * iterations and number of warm-up iterations.
+ *
+ * @author stipe
+ *
+ */
+public class HeaderParserBenchmark {
+
+	/**
+	 * Sample request header.
+	 */
+	private static final byte[] REQUEST = (
+			"GET /scripts/fibonaccih.smscr?name=pero HTTP/1.1\r\n" +
+			"Host: www.localhost.com:5721\r\n" +
+			"Connection: keep-alive\r\n" +
+			"Upgrade-Insecure-Requests: 1\r\n" +
+			"User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) " +
+			"Chrome/73.0.3683.86 Safari/537.36\r\n" +
+			"Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8\r\n" +
+			"Accept-Encoding: gzip, deflate\r\n" +
+			"Accept-Language: hr-HR,hr;q=0.9,en-US;q=0.8,en;q=0.7\r\n" +
+			"Cookie: sid=\"ABCDEFGHIJKLMNOPQRST\"\r\n" +
+			"\r\n").getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Main method.
+	 *
+	 * @param args arguments
+	 * @throws IOException never, as all data is read from memory
+	 */
+	public static void main(String[] args) throws IOException {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+		HttpHeaderParser parser = new HttpHeaderParser(8192);
+
+		for (int round = 0; round < 2; round++) {
+			run("state machine", warmup, () -> stateMachine(new ByteArrayInputStream(REQUEST)));
+			run("bulk parser", warmup, () -> parser.readHeader(new ByteArrayInputStream(REQUEST)).getHeader("Host"));
+		}
+
+		System.out.println("Measured:");
+		report("state machine", iterations, () -> stateMachine(new ByteArrayInputStream(REQUEST)));
+		report("bulk parser", iterations, () -> parser.readHeader(new ByteArrayInputStream(REQUEST)).getHeader("Host"));
+	}
+
+	/**
+	 * Runs the given variant and prints its average time and allocation per operation.
+	 *
+	 * @param name variant name
+	 * @param iterations number of iterations
+	 * @param variant variant
+	 * @throws IOException never
+	 */
+	private static void report(String name, int iterations, Variant variant) throws IOException {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocations = bean instanceof com.sun.management.ThreadMXBean
+				? (com.sun.management.ThreadMXBean) bean : null;
+		long id = Thread.currentThread().getId();
+
+		long bytesBefore = allocations == null ? 0 : allocations.getThreadAllocatedBytes(id);
+		long nanos = run(name, iterations, variant);
+		long bytesAfter = allocations == null ? 0 : allocations.getThreadAllocatedBytes(id);
+
+		System.out.printf("%-14s %8.1f ns/op", name, nanos / (double) iterations);
+		if (allocations != null) {
+			System.out.printf(" %8.1f B/op", (bytesAfter - bytesBefore) / (double) iterations);
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Runs the given variant.
+	 *
+	 * @param name variant name
+	 * @param iterations number of iterations
+	 * @param variant variant
+	 * @return elapsed time in nanoseconds
+	 * @throws IOException never
+	 */
+	private static long run(String name, int iterations, Variant variant) throws IOException {
+		int check = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			check += variant.parse().length();
+		}
+		long elapsed = System.nanoTime() - start;
+		if (check == 0) System.out.println(name + " produced no result");
+		return elapsed;
+	}
+
+	/**
+	 * Reads the header the way the server used to: one byte at a time through a
+	 * state machine, followed by splitting the text into lines and searching them.
+	 *
+	 * @param input input
+	 * @return value of the host header
+	 * @throws IOException never
+	 */
+	private static String stateMachine(InputStream input) throws IOException {
+		PushbackInputStream is = new PushbackInputStream(input);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		int state = 0;
+		l:
+		while (true) {
+			int b = is.read();
+			if(b==-1) return null;
+			if(b!=13) {
+				bos.write(b);
+			}
+			switch(state) {
+			case 0:
+				if(b==13) { state=1; } else if(b==10) state=4;
+				break;
+			case 1:
+				if(b==10) { state=2; } else state=0;
+				break;
+			case 2:
+				if(b==13) { state=3; } else state=0;
+				break;
+			case 3:
+				if(b==10) { break l; } else state=0;
+				break;
+			case 4:
+				if(b==10) { break l; } else state=0;
+				break;
+			}
+		}
+
+		String requestHeader = new String(bos.toByteArray(), StandardCharsets.US_ASCII);
+		List<String> headers = new ArrayList<String>();
+		String currentLine = null;
+		for(String s : requestHeader.split("\n")) {
+			if(s.isEmpty()) break;
+			char c = s.charAt(0);
+			if(c==9 || c==32) {
+				currentLine += s;
+			} else {
+				if(currentLine != null) {
+					headers.add(currentLine);
+				}
+				currentLine = s;
+			}
+		}
+		if(!currentLine.isEmpty()) {
+			headers.add(currentLine);
+		}
+
+		return headers.stream()
+				.filter(l -> l.startsWith("Host:"))
+				.map(l -> l.split(":")[1].strip())
+				.reduce((f,  s) -> s)
+				.orElse("");
+	}
+
+	/**
+	 * Benchmarked variant.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private interface Variant {
+		/**
+		 * Parses the sample header.
+		 *
+		 * @return value of the host header
+		 * @throws IOException never
+		 */
+		String parse() throws IOException;
+	}
+}
@@ -0,0 +1,167 @@
+package hr.fer.zemris.java.webserver.demo;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test measuring the throughput of a running {@code SmartHttpServer} before and
+ * after a large number of idle keep-alive connections has been opened. Every idle
+ * connection completes a single request and then stays open without sending anything.
+ * <p>
+ * In blocking mode every idle connection occupies a worker thread until it times out,
+ * so the throughput drops to zero once there are more idle connections than workers.
+ * In non-blocking mode the idle connections are kept by the event loop and throughput
+ * stays steady.
+ * <p>
+ * Arguments (all optional): host, port, number of idle connections, duration of a
+ * single measurement in seconds, number of active clients and requested path.
+ * The requested path should be a static file, so the server can keep the connection open.
+ * Opening 10000 connections requires a sufficiently large limit of open files, and
+ * {@code server.keepAliveTimeout} should be longer than the whole test.
+ *
+ * @author stipe
+ *
+ */
+public class IdleConnectionsLoadTest {
+
+	/**
+	 * Main method.
+	 *
+	 * @param args arguments
+	 * @throws Exception in case of an error
+	 */
+	public static void main(String[] args) throws Exception {
+		String host = args.length > 0 ? args[0] : "127.0.0.1";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 5721;
+		int idle = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+		int clients = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+		String path = args.length > 5 ? args[5] : "/sample.txt";
+		InetSocketAddress address = new InetSocketAddress(host, port);
+		byte[] request = ("GET " + path + " HTTP/1.1\r\nHost: " + host + "\r\n\r\n")
+				.getBytes(StandardCharsets.US_ASCII);
+
+		System.out.printf("Without idle connections: %.1f req/s%n",
+				measure(address, request, clients, seconds));
+
+		List<Socket> idleConnections = openIdle(address, request, idle);
+		System.out.printf("Opened %d idle connections.%n", idleConnections.size());
+
+		System.out.printf("With idle connections:    %.1f req/s%n",
+				measure(address, request, clients, seconds));
+
+		for (Socket socket : idleConnections) {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Opens the given number of connections, each of which completes a single
+	 * request and then stays idle.
+	 *
+	 * @param address server address
+	 * @param request request bytes
+	 * @param count number of connections
+	 * @return opened connections
+	 */
+	private static List<Socket> openIdle(InetSocketAddress address, byte[] request, int count) {
+		List<Socket> sockets = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Socket socket = new Socket();
+			try {
+				socket.connect(address, 1000);
+				socket.setSoTimeout(1000);
+				sockets.add(socket);
+				socket.getOutputStream().write(request);
+				readResponse(socket.getInputStream());
+			} catch (IOException e) {
+				// The server is busy, but the connection is still kept open.
+			}
+		}
+		return sockets;
+	}
+
+	/**
+	 * Measures the throughput of the given number of clients which send requests
+	 * sequentially over persistent connections.
+	 *
+	 * @param address server address
+	 * @param request request bytes
+	 * @param clients number of clients
+	 * @param seconds duration of the measurement
+	 * @return number of completed requests per second
+	 * @throws InterruptedException if interrupted while waiting for the clients
+	 */
+	private static double measure(InetSocketAddress address, byte[] request, int clients, int seconds)
+			throws InterruptedException {
+		AtomicLong completed = new AtomicLong();
+		long end = System.currentTimeMillis() + seconds * 1000L;
+
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < clients; i++) {
+			Thread t = new Thread(() -> {
+				while (System.currentTimeMillis() < end) {
+					try (Socket socket = new Socket()) {
+						socket.connect(address, 1000);
+						socket.setSoTimeout(1000);
+						OutputStream os = socket.getOutputStream();
+						InputStream is = new BufferedInputStream(socket.getInputStream());
+						boolean keepAlive = true;
+						while (keepAlive && System.currentTimeMillis() < end) {
+							os.write(request);
+							os.flush();
+							keepAlive = readResponse(is);
+							completed.incrementAndGet();
+						}
+					} catch (IOException ignorable) {
+						// Timed out requests are simply not counted.
+					}
+				}
+			});
+			t.start();
+			threads.add(t);
+		}
+
+		for (Thread t : threads) {
+			t.join();
+		}
+		return completed.get() / (double) seconds;
+	}
+
+	/**
+	 * Reads a single response.
+	 *
+	 * @param is input stream
+	 * @return true if the connection has been kept open
+	 * @throws IOException in case of an I/O error or a timeout
+	 */
+	private static boolean readResponse(InputStream is) throws IOException {
+		StringBuilder header = new StringBuilder();
+		while (!header.toString().endsWith("\r\n\r\n")) {
+			int b = is.read();
+			if (b == -1) throw new IOException("Connection closed.");
+			header.append((char) b);
+		}
+
+		String text = header.toString().toLowerCase();
+		int index = text.indexOf("content-length:");
+		if (index == -1 || text.contains("connection: close")) {
+			while (is.read() != -1);
+			return false;
+		}
+
+		long length = Long.parseLong(text.substring(index + 15, text.indexOf("\r\n", index)).strip());
+		for (long i = 0; i < length; i++) {
+			if (is.read() == -1) throw new IOException("Connection closed.");
+		}
+		return true;
+	}
+}
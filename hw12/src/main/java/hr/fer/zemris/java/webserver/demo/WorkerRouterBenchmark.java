@@ -0,0 +1,128 @@
+package hr.fer.zemris.java.webserver.demo;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import hr.fer.zemris.java.webserver.IWebWorker;
+import hr.fer.zemris.java.webserver.RequestContext;
+import hr.fer.zemris.java.webserver.WorkerRouter;
+
+/**
+ * Benchmark of serving {@code /ext/HelloWorker} requests. The previous dispatch, which
+ * loaded the worker class and instantiated it reflectively for every request, is
+ * compared with {@link WorkerRouter}, which does so only once. Every request is
+ * processed by the worker, writing its response to a null stream, and the
+ * throughput is reported in requests per second. The time of the dispatch alone,
+ * without processing, is reported as well.
+ * <p>
+ * Arguments (optional): number of measured requests.
+ *
+ * @author stipe
+ *
+ */
+public class WorkerRouterBenchmark {
+
+	/**
+	 * Package of convention based workers.
+	 */
+	private static final String WORKERS_PACKAGE = "hr.fer.zemris.java.webserver.workers.";
+	/**
+	 * Requested path.
+	 */
+	private static final String PATH = "/ext/HelloWorker";
+
+	/**
+	 * Main method.
+	 *
+	 * @param args arguments
+	 * @throws Exception if a request fails
+	 */
+	public static void main(String[] args) throws Exception {
+		int requests = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		ClassLoader classLoader = WorkerRouterBenchmark.class.getClassLoader();
+		WorkerRouter router = new WorkerRouter(WORKERS_PACKAGE, classLoader);
+
+		Dispatch reflective = () -> legacyInstantiate(WORKERS_PACKAGE + PATH.substring(5), classLoader);
+		Dispatch routed = () -> router.route(PATH);
+
+		for (int round = 0; round < 2; round++) {
+			measure(reflective, requests / 5, true);
+			measure(routed, requests / 5, true);
+		}
+		System.out.printf("%-20s %12s %14s%n", "dispatch", "req/s", "dispatch ns");
+		report("reflection", reflective, requests);
+		report("router", routed, requests);
+	}
+
+	/**
+	 * Measures the given dispatch and prints the results.
+	 *
+	 * @param name name of the dispatch
+	 * @param dispatch dispatch of a request to a worker
+	 * @param requests number of requests
+	 * @throws Exception if a request fails
+	 */
+	private static void report(String name, Dispatch dispatch, int requests) throws Exception {
+		double throughput = measure(dispatch, requests, true);
+		double dispatchOnly = measure(dispatch, requests, false);
+		System.out.printf("%-20s %12.0f %14.1f%n", name, throughput, 1e9 / dispatchOnly);
+	}
+
+	/**
+	 * Serves the given number of requests.
+	 *
+	 * @param dispatch dispatch of a request to a worker
+	 * @param requests number of requests
+	 * @param process whether the requests are processed by the worker
+	 * @return requests per second
+	 * @throws Exception if a request fails
+	 */
+	private static double measure(Dispatch dispatch, int requests, boolean process) throws Exception {
+		OutputStream sink = OutputStream.nullOutputStream();
+		long start = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			if (!process) {
+				dispatch.route();
+				continue;
+			}
+			Map<String, String> parameters = new HashMap<>();
+			parameters.put("name", "pero");
+			RequestContext context = new RequestContext(sink, parameters, new HashMap<>(),
+					new ArrayList<>(), new HashMap<>(), null, null);
+			dispatch.route().processRequest(context);
+		}
+		return requests / ((System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Instantiates a worker the way it was done for every {@code /ext/} request before the router.
+	 *
+	 * @param fqcn fully qualified class name
+	 * @param classLoader class loader
+	 * @return worker
+	 * @throws ReflectiveOperationException if the worker couldn't be instantiated
+	 */
+	@SuppressWarnings("deprecation")
+	private static IWebWorker legacyInstantiate(String fqcn, ClassLoader classLoader)
+			throws ReflectiveOperationException {
+		return (IWebWorker) classLoader.loadClass(fqcn).newInstance();
+	}
+
+	/**
+	 * Dispatch of a request to a worker.
+	 *
+	 * @author stipe
+	 *
+	 */
+	private interface Dispatch {
+		/**
+		 * Returns the worker serving the request.
+		 *
+		 * @return worker
+		 * @throws ReflectiveOperationException if the worker couldn't be instantiated
+		 */
+		IWebWorker route() throws ReflectiveOperationException;
+	}
+}
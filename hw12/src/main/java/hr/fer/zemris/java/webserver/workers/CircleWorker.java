@@ -5,41 +5,78 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import javax.imageio.ImageIO;
 
-import hr.fer.zemris.java.webserver.IWebWorker;
+import hr.fer.zemris.java.webserver.IAsyncWebWorker;
+import hr.fer.zemris.java.webserver.ICacheableWebWorker;
 import hr.fer.zemris.java.webserver.RequestContext;
 
 /**
- * Draws a filled circle.
- * 
+ * Draws a filled circle. The image is drawn and encoded on the compute executor,
+ * and as it is always the same, it is cached for an hour.
+ *
  * @author stipe
  *
  */
-public class CircleWorker implements IWebWorker {
+public class CircleWorker implements IAsyncWebWorker, ICacheableWebWorker {
+
+	/**
+	 * Parameters of the cache key, as the image doesn't depend on any.
+	 */
+	private static final String[] CACHE_KEY_PARAMETERS = {};
+
+	@Override
+	public String[] getCacheKeyParameters() {
+		return CACHE_KEY_PARAMETERS;
+	}
+
+	@Override
+	public int getCacheTtl() {
+		return 3600;
+	}
 
 	@Override
-	public void processRequest(RequestContext context) throws Exception {
+	public CompletableFuture<Void> processRequestAsync(RequestContext context, Executor executor) {
 		context.setMimeType("image/png");
 
+		return CompletableFuture.supplyAsync(CircleWorker::draw, executor)
+				.thenAccept(png -> {
+					try {
+						context.setContentLength((long) png.length);
+						context.writeShared(png);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+	}
+
+	/**
+	 * Draws the circle and encodes it as png.
+	 *
+	 * @return encoded image
+	 */
+	private static byte[] draw() {
 		BufferedImage bim = new BufferedImage(200, 200, BufferedImage.TYPE_3BYTE_BGR);
 		Graphics2D g2d = bim.createGraphics();
-		
+
 		g2d.setColor(Color.WHITE);
 		g2d.fillRect(0, 0, bim.getWidth(), bim.getHeight());
 		g2d.setColor(Color.RED);
 		g2d.fillOval(0, 0, bim.getWidth(), bim.getHeight());
 
 		g2d.dispose();
-		
+
 		ByteArrayOutputStream bos = new ByteArrayOutputStream();
 		try {
 			ImageIO.write(bim, "png", bos);
-			context.write(bos.toByteArray());
 		} catch (IOException e) {
-			e.printStackTrace();
+			throw new UncheckedIOException(e);
 		}
+		return bos.toByteArray();
 	}
 
 }
@@ -1,15 +1,15 @@
 package hr.fer.zemris.java.webserver.workers;
 
-import hr.fer.zemris.java.webserver.IWebWorker;
+import hr.fer.zemris.java.webserver.ICacheableWebWorker;
 import hr.fer.zemris.java.webserver.RequestContext;
 
 /**
- * Sums two numbers.
+ * Sums two numbers. Responses are cached per pair of parameters.
  * 
  * @author stipe
  *
  */
-public class SumWorker implements IWebWorker {
+public class SumWorker implements ICacheableWebWorker {
 
 	/**
 	 * First default value.
@@ -19,6 +19,10 @@ public class SumWorker implements IWebWorker {
 	 * Second default value.
 	 */
 	private static final Integer DEFAULT_B = 2;
+	/**
+	 * Parameters of the cache key.
+	 */
+	private static final String[] CACHE_KEY_PARAMETERS = { "a", "b" };
 
 	/**
 	 * Gets integer value from string or default value if not parsable.
@@ -35,6 +39,16 @@ public class SumWorker implements IWebWorker {
 		}
 	}
 
+	@Override
+	public String[] getCacheKeyParameters() {
+		return CACHE_KEY_PARAMETERS;
+	}
+
+	@Override
+	public int getCacheTtl() {
+		return 60;
+	}
+
 	@Override
 	public void processRequest(RequestContext context) throws Exception {
 		int a = getInteger(context.getParameter("a"), DEFAULT_A);
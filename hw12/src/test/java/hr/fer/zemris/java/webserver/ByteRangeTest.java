@@ -0,0 +1,86 @@
+package hr.fer.zemris.java.webserver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ByteRangeTest {
+
+	@Test
+	void testBoundedRange() {
+		ByteRange range = ByteRange.parse("bytes=10-19", 100);
+		assertTrue(range.isSatisfiable());
+		assertEquals(10, range.getFirst());
+		assertEquals(10, range.getCount());
+		assertEquals("bytes 10-19/100", range.toContentRange());
+	}
+
+	@Test
+	void testRangeClampedToLength() {
+		ByteRange range = ByteRange.parse("bytes=90-200", 100);
+		assertTrue(range.isSatisfiable());
+		assertEquals(10, range.getCount());
+		assertEquals("bytes 90-99/100", range.toContentRange());
+	}
+
+	@Test
+	void testOpenEndedRange() {
+		ByteRange range = ByteRange.parse("bytes=40-", 100);
+		assertTrue(range.isSatisfiable());
+		assertEquals(40, range.getFirst());
+		assertEquals(60, range.getCount());
+		assertEquals("bytes 40-99/100", range.toContentRange());
+	}
+
+	@Test
+	void testSuffixRange() {
+		ByteRange range = ByteRange.parse("bytes=-30", 100);
+		assertTrue(range.isSatisfiable());
+		assertEquals(70, range.getFirst());
+		assertEquals(30, range.getCount());
+		assertEquals("bytes 70-99/100", range.toContentRange());
+	}
+
+	@Test
+	void testSuffixLongerThanFile() {
+		ByteRange range = ByteRange.parse("bytes=-500", 100);
+		assertTrue(range.isSatisfiable());
+		assertEquals(0, range.getFirst());
+		assertEquals(100, range.getCount());
+	}
+
+	@Test
+	void testUnitCaseAndBlanks() {
+		ByteRange range = ByteRange.parse("Bytes= 5 - 9 ", 100);
+		assertEquals("bytes 5-9/100", range.toContentRange());
+	}
+
+	@Test
+	void testUnsatisfiableRanges() {
+		assertUnsatisfiable(ByteRange.parse("bytes=100-", 100));
+		assertUnsatisfiable(ByteRange.parse("bytes=150-200", 100));
+		assertUnsatisfiable(ByteRange.parse("bytes=-0", 100));
+		assertUnsatisfiable(ByteRange.parse("bytes=0-", 0));
+		assertUnsatisfiable(ByteRange.parse("bytes=-10", 0));
+	}
+
+	@Test
+	void testIgnoredRanges() {
+		assertNull(ByteRange.parse(null, 100));
+		assertNull(ByteRange.parse("items=0-10", 100));
+		assertNull(ByteRange.parse("bytes=0-10,20-30", 100));
+		assertNull(ByteRange.parse("bytes=10", 100));
+		assertNull(ByteRange.parse("bytes=20-10", 100));
+		assertNull(ByteRange.parse("bytes=a-b", 100));
+		assertNull(ByteRange.parse("bytes=-", 100));
+	}
+
+	/**
+	 * Checks that the range is answered with 416 and an unsatisfied {@code Content-Range}.
+	 */
+	private static void assertUnsatisfiable(ByteRange range) {
+		assertNotNull(range);
+		assertFalse(range.isSatisfiable());
+		assertTrue(range.toContentRange().startsWith("bytes */"));
+	}
+}
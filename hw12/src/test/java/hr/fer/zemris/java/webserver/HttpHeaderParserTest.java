@@ -0,0 +1,149 @@
+package hr.fer.zemris.java.webserver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class HttpHeaderParserTest {
+
+	private static final String REQUEST = "GET /index.html HTTP/1.1\r\nHost: localhost\r\nAccept: text/html\r\n\r\n";
+
+	@Test
+	void testConstructor() {
+		assertThrows(IllegalArgumentException.class, () -> new HttpHeaderParser(0));
+	}
+
+	@Test
+	void testSingleRead() throws IOException {
+		HttpHeaderParser parser = new HttpHeaderParser(1024);
+		HttpRequestHeader header = parser.readHeader(stream(REQUEST));
+		assertEquals("GET", header.getMethod());
+		assertEquals("/index.html", header.getRequestTarget());
+		assertEquals("HTTP/1.1", header.getVersion());
+		assertEquals("localhost", header.getHeader("host"));
+		assertEquals("text/html", header.getHeader("Accept"));
+	}
+
+	@Test
+	void testSplitReads() throws IOException {
+		HttpHeaderParser parser = new HttpHeaderParser(1024);
+		HttpRequestHeader header = parser.readHeader(new OneByteStream(REQUEST));
+		assertEquals("/index.html", header.getRequestTarget());
+		assertEquals("localhost", header.getHeader("Host"));
+		assertEquals("text/html", header.getHeader("Accept"));
+	}
+
+	@Test
+	void testSplitInsideTerminator() throws IOException {
+		HttpHeaderParser parser = new HttpHeaderParser(1024);
+		byte[] bytes = REQUEST.getBytes(StandardCharsets.ISO_8859_1);
+		int split = bytes.length - 3;
+
+		parser.fill(Channels.newChannel(new ByteArrayInputStream(bytes, 0, split)));
+		assertNull(parser.nextHeader());
+		parser.fill(Channels.newChannel(new ByteArrayInputStream(bytes, split, bytes.length - split)));
+		HttpRequestHeader header = parser.nextHeader();
+		assertNotNull(header);
+		assertEquals("text/html", header.getHeader("Accept"));
+	}
+
+	@Test
+	void testLineFeedsOnly() throws IOException {
+		HttpHeaderParser parser = new HttpHeaderParser(1024);
+		HttpRequestHeader header = parser.readHeader(stream("\r\n\nGET / HTTP/1.0\nHost: a\n\n"));
+		assertEquals("/", header.getRequestTarget());
+		assertEquals("a", header.getHeader("Host"));
+	}
+
+	@Test
+	void testHeaderTooLarge() {
+		HttpHeaderParser parser = new HttpHeaderParser(32);
+		assertThrows(HttpHeaderParser.HeaderTooLargeException.class, () -> parser.readHeader(stream(REQUEST)));
+	}
+
+	@Test
+	void testHeaderFillingBuffer() throws IOException {
+		String request = "GET / HTTP/1.1\r\n\r\n";
+		HttpHeaderParser parser = new HttpHeaderParser(request.length());
+		assertEquals("/", parser.readHeader(stream(request)).getRequestTarget());
+	}
+
+	@Test
+	void testPipelinedRequests() throws IOException {
+		HttpHeaderParser parser = new HttpHeaderParser(1024);
+		InputStream is = stream(REQUEST + "GET /second HTTP/1.1\r\nHost: other\r\n\r\nGET /th");
+
+		assertTrue(parser.fill(is) > 0);
+		HttpRequestHeader first = parser.nextHeader();
+		assertEquals("/index.html", first.getRequestTarget());
+		assertNull(first.getHeader("X-Missing"));
+		HttpRequestHeader second = parser.nextHeader();
+		assertEquals("/second", second.getRequestTarget());
+		assertEquals("other", second.getHeader("Host"));
+		assertNull(parser.nextHeader());
+	}
+
+	@Test
+	void testPipelinedBytesKeptAfterCompaction() throws IOException {
+		String second = "GET /second HTTP/1.1\r\n\r\n";
+		HttpHeaderParser parser = new HttpHeaderParser(REQUEST.length() + 10);
+		InputStream is = stream(REQUEST + second);
+
+		assertEquals("/index.html", parser.readHeader(is).getRequestTarget());
+		assertEquals("/second", parser.readHeader(is).getRequestTarget());
+		assertNull(parser.readHeader(is));
+	}
+
+	@Test
+	void testCleanEndOfStream() throws IOException {
+		HttpHeaderParser parser = new HttpHeaderParser(1024);
+		assertNull(parser.readHeader(stream("")));
+	}
+
+	@Test
+	void testEndOfStreamInsideHeader() {
+		HttpHeaderParser parser = new HttpHeaderParser(1024);
+		assertThrows(EOFException.class, () -> parser.readHeader(stream("GET / HTTP/1.1\r\nHost: a\r\n")));
+	}
+
+	@Test
+	void testMalformedRequestLine() throws IOException {
+		HttpHeaderParser parser = new HttpHeaderParser(1024);
+		HttpRequestHeader header = parser.readHeader(stream("GET /\r\nHost: a\r\n\r\n"));
+		assertFalse(header.isRequestLineValid());
+		assertEquals("a", header.getHeader("Host"));
+	}
+
+	private static InputStream stream(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Stream which returns at most one byte per read.
+	 */
+	private static class OneByteStream extends InputStream {
+
+		private final InputStream is;
+
+		OneByteStream(String text) {
+			is = stream(text);
+		}
+
+		@Override
+		public int read() throws IOException {
+			return is.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return is.read(b, off, Math.min(len, 1));
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package hr.fer.zemris.java.webserver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hr.fer.zemris.java.webserver.StaticFileCache.StaticFile;
+
+class StaticFileCacheTest {
+
+	@TempDir
+	Path directory;
+
+	StaticFile file;
+
+	@BeforeEach
+	void initFile() throws IOException {
+		Path path = directory.resolve("index.html");
+		Files.writeString(path, "<html><body>Hello</body></html>");
+		file = new StaticFileCache(1 << 20, 1 << 20).get(path);
+	}
+
+	@Test
+	void testMatchingTag() {
+		assertTrue(file.isNotModified(file.getETag(), file.getETag(), null));
+		assertTrue(file.isNotModified(file.getGzipETag(), file.getGzipETag(), null));
+		assertTrue(file.isNotModified(file.getETag(), "\"other\", W/" + file.getETag(), null));
+		assertTrue(file.isNotModified(file.getGzipETag(), "*", null));
+	}
+
+	@Test
+	void testTagOfOtherVariantDoesNotMatch() {
+		assertNotEquals(file.getETag(), file.getGzipETag());
+		assertFalse(file.isNotModified(file.getGzipETag(), file.getETag(), null));
+		assertFalse(file.isNotModified(file.getETag(), file.getGzipETag(), null));
+	}
+
+	@Test
+	void testDateIgnoredWithTags() {
+		String date = file.getLastModifiedText();
+		assertTrue(file.isNotModified(file.getETag(), null, date));
+		assertFalse(file.isNotModified(file.getETag(), "\"other\"", date));
+		assertFalse(file.isNotModified(file.getETag(), null, null));
+	}
+}